@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+/**
+ * Defines the thread, in which features receive an event. See {@link FeatureEvent#thread()}.
+ *
+ * @author sergej shafarenka
+ */
+public enum EventThread {
+
+    /**
+     * Event is delivered in the thread of the feature host dispatcher.
+     */
+    HOST,
+
+    /**
+     * Event is delivered in a background thread. Background events of a feature host are
+     * delivered serially and in the order of their dispatch calls, but concurrently to
+     * the events delivered in the feature host thread. {@code OnDispatchCompleted} is
+     * called in the feature host thread.
+     */
+    BACKGROUND
+
+}
@@ -41,4 +41,96 @@ public @interface FeatureEvent {
      */
     boolean dispatchCompleted() default false;
 
+    /**
+     * Defines the thread, in which features receive the event. Features receiving events in
+     * {@link EventThread#BACKGROUND} must not call dispatch methods of the feature host
+     * directly, but through {@code FeatureHost.getDispatcher()}.
+     *
+     * @return the thread, in which features receive the event
+     */
+    EventThread thread() default EventThread.HOST;
+
+    /**
+     * If set to true, generated feature host will have an additional {@code postOn<Event>()}
+     * method, which can be called from any thread. Posted events are dispatched in the
+     * feature host thread in the order they were posted by each thread.
+     *
+     * @return the flag defining whether a thread-safe post-method shall be generated
+     */
+    boolean postable() default false;
+
+    /**
+     * If set to true, a newly dispatched event replaces an event of the same type, which
+     * is still waiting in the queue of the feature host. Use it for events, where only
+     * the latest value matters. Annotate parameters with {@link CoalesceKey} to replace
+     * only events with equal key values. Coalescing events cannot have
+     * {@link #dispatchCompleted()} set.
+     *
+     * @return the flag defining whether pending events of the same type get replaced
+     */
+    boolean coalesce() default false;
+
+    /**
+     * If set to true, generated feature host will have an additional
+     * {@code dispatchOn<Event>WhenIdle()} method. Events dispatched with it wait in a
+     * low-priority lane of the feature host until the dispatcher thread becomes idle.
+     * Use it for events, which must not compete with drawing of the first frame, like
+     * warming caches or logging impressions.
+     *
+     * @return the flag defining whether an idle-time dispatch method shall be generated
+     */
+    boolean idle() default false;
+
+    /**
+     * If set to true, generated feature host will have an additional
+     * {@code dispatchOn<Event>Delayed(delayMillis, ...)} method, which dispatches the event
+     * after given delay. The method returns a handle for cancelling the event. Delayed
+     * events of a feature host share a single timer and get cancelled all together, when
+     * the feature host is destroyed.
+     *
+     * @return the flag defining whether a delayed dispatch method shall be generated
+     */
+    boolean delayable() default false;
+
+    /**
+     * If set to true, generated feature host will have two additional methods delivering
+     * the event to a part of the features only. {@code dispatchOn<Event>To(featureName, ...)}
+     * delivers the event to the feature registered under given name.
+     * {@code dispatchOn<Event>ToTagged(tags, ...)} delivers the event to the features
+     * carrying at least one of given tags. Features are tagged with
+     * {@code FeatureHost.setFeatureTags()}.
+     *
+     * @return the flag defining whether targeted dispatch methods shall be generated
+     */
+    boolean targetable() default false;
+
+    /**
+     * If set to true, the event is dispatched right away even if the feature host has used
+     * up its frame budget and defers other events to the next frame. Use it for events,
+     * which must be handled in the current frame, like input events.
+     *
+     * @return the flag defining whether the event ignores the frame budget
+     */
+    boolean urgent() default false;
+
+    /**
+     * If set to true, feature host keeps the last dispatched event and delivers it to
+     * features registered or lazily instantiated after the event has been dispatched.
+     * Generated feature host gets an additional {@code clearStickyOn<Event>()} method for
+     * dropping the kept event. Sticky events must be delivered in
+     * {@link EventThread#HOST}.
+     *
+     * @return the flag defining whether the event is kept for features added later
+     */
+    boolean sticky() default false;
+
+    /**
+     * Maximum time in milliseconds, an event dispatched at idle time waits for the
+     * dispatcher thread to become idle. Once the time is over, the event is dispatched
+     * anyway. The default value {@code 0} means no limit. Requires {@link #idle()}.
+     *
+     * @return maximum delay of events dispatched at idle time
+     */
+    long idleTimeout() default 0;
+
 }
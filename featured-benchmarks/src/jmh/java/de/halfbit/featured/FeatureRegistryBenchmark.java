@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.benchmark.NonSubscribingFeature;
+import de.halfbit.featured.benchmark.SubscribingFeature;
+
+/**
+ * Compares {@link FeatureRegistry} with the {@code HashMap<String, Feature>} keyed by
+ * {@code Class.toString()}, which feature host used before. Benchmarks find the feature
+ * registered by its class, as {@code getFeature(Class)} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeatureRegistryBenchmark {
+
+    @Param({"1", "10", "40"})
+    public int features;
+
+    private HashMap<String, Feature> mMap;
+    private FeatureRegistry mRegistry;
+
+    @Setup
+    public void setup() {
+        mMap = new HashMap<>(10);
+        mRegistry = new FeatureRegistry(10);
+
+        SubscribingFeature feature = new SubscribingFeature();
+        mMap.put(SubscribingFeature.class.toString(), feature);
+        mRegistry.add(feature, null);
+
+        for (int i = 1; i < features; i++) {
+            NonSubscribingFeature namedFeature = new NonSubscribingFeature();
+            mMap.put("feature" + i, namedFeature);
+            mRegistry.add(namedFeature, "feature" + i);
+        }
+    }
+
+    @Benchmark
+    public Feature mapLookup() {
+        return mMap.get(SubscribingFeature.class.toString());
+    }
+
+    @Benchmark
+    public Feature registryLookup() {
+        return mRegistry.get(SubscribingFeature.class);
+    }
+
+}
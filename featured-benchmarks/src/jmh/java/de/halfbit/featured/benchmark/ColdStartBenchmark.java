@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start of a feature host: loading, linking and initializing the
+ * generated feature host, its events and the library classes, and dispatching each
+ * event once. Every invocation uses a new class loader, so that all classes get loaded
+ * again. Compare results of both dispatch modes of the processor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColdStartBenchmark {
+
+    private static final String PACKAGE = "de.halfbit.featured.";
+
+    private URL[] mClassPath;
+
+    @Setup
+    public void setup() {
+        mClassPath = new URL[]{
+                BenchmarkFeatureHost.class.getProtectionDomain().getCodeSource().getLocation()
+        };
+    }
+
+    @Benchmark
+    public Object loadAndDispatch() throws Exception {
+        ClassLoader classLoader = new URLClassLoader(mClassPath, null);
+
+        Class<?> dispatcherClass = classLoader.loadClass(PACKAGE + "Dispatcher");
+        Class<?> featureClass = classLoader.loadClass(PACKAGE + "benchmark.BenchmarkFeature");
+        Class<?> featureHostClass =
+                classLoader.loadClass(PACKAGE + "benchmark.BenchmarkFeatureHost");
+
+        Object dispatcher = dispatcherClass.getMethod("callerThread").invoke(null);
+        Object featureHost = featureHostClass
+                .getConstructor(Object.class, dispatcherClass)
+                .newInstance(new Object(), dispatcher);
+        featureHostClass.getMethod("with", featureClass).invoke(featureHost,
+                classLoader.loadClass(PACKAGE + "benchmark.SubscribingFeature").newInstance());
+
+        for (Method method : featureHostClass.getDeclaredMethods()) {
+            if (method.getName().startsWith("dispatchOn")) {
+                method.invoke(featureHost, newArguments(method.getParameterTypes()));
+            }
+        }
+        return featureHost;
+    }
+
+    private static Object[] newArguments(Class<?>[] parameterTypes) {
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == int.class) {
+                arguments[i] = 0;
+            } else if (parameterTypes[i] == long.class) {
+                arguments[i] = 0L;
+            }
+        }
+        return arguments;
+    }
+
+}
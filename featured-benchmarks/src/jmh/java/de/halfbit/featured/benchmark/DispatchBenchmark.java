@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.Dispatcher;
+
+/**
+ * Measures dispatching of events through a generated feature host to a growing number
+ * of subscribing features. {@link #dispatch(EventType)} dispatches an event with the given number
+ * of parameters. {@link #mixed()} dispatches one event of each type, so that every
+ * invocation walks several subscriber lists and event pools.
+ * <p/>
+ * Run with the gc profiler to see the allocation rate, which is expected to be zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DispatchBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int features;
+
+    private BenchmarkFeatureHost mFeatureHost;
+    private Object mData;
+
+    @Setup
+    public void setup() {
+        mFeatureHost = new BenchmarkFeatureHost(this, Dispatcher.callerThread());
+        for (int i = 0; i < features; i++) {
+            mFeatureHost.with(new SubscribingFeature(), "feature" + i);
+        }
+        mData = new Object();
+    }
+
+    @Benchmark
+    public void dispatch(EventType eventType) {
+        switch (eventType.parameters) {
+            case 0:
+                mFeatureHost.dispatchOnTick();
+                break;
+            case 1:
+                mFeatureHost.dispatchOnEvent(1);
+                break;
+            default:
+                mFeatureHost.dispatchOnRecord(1, 2L, mData);
+                break;
+        }
+    }
+
+    @Benchmark
+    public void mixed() {
+        mFeatureHost.dispatchOnTick();
+        mFeatureHost.dispatchOnEvent(1);
+        mFeatureHost.dispatchOnData(mData);
+        mFeatureHost.dispatchOnRecord(1, 2L, mData);
+    }
+
+    @State(Scope.Thread)
+    public static class EventType {
+
+        @Param({"0", "1", "3"})
+        public int parameters;
+    }
+
+}
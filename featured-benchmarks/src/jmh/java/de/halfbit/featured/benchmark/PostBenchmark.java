@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.halfbit.featured.Dispatcher;
+import de.halfbit.featured.SingleThreadDispatcher;
+
+/**
+ * Measures dispatching of events raised by producer threads into a feature host, which
+ * runs in its own thread. {@link #inbox(Producer)} posts events through the lock-free
+ * inbox. {@link #execute(Producer)} submits a runnable per event to the dispatcher,
+ * which is how events had to be passed to a feature host thread before.
+ * <p/>
+ * Producers slow down if the feature host falls behind for too many events. Thus
+ * the score shows the end-to-end throughput of the producers and the feature host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public abstract class PostBenchmark {
+
+    private static final int BATCH = 256;
+    private static final long MAX_PENDING = 64 * 1024;
+
+    private final AtomicLong mPosted = new AtomicLong();
+    private SingleThreadDispatcher mDispatcher;
+    private BenchmarkFeatureHost mFeatureHost;
+    private CountingFeature mFeature;
+
+    @Setup
+    public void setup() {
+        mDispatcher = Dispatcher.newSingleThread("benchmark-host");
+        mFeature = new CountingFeature();
+        mFeatureHost = new BenchmarkFeatureHost(this, mDispatcher).with(mFeature);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mDispatcher.shutdown();
+    }
+
+    @Benchmark
+    public void inbox(Producer producer) {
+        producer.throttle(this);
+        mFeatureHost.postOnEvent(1);
+    }
+
+    @Benchmark
+    public void execute(Producer producer) {
+        producer.throttle(this);
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                mFeatureHost.dispatchOnEvent(1);
+            }
+        });
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+
+        private int mUncounted;
+
+        void throttle(PostBenchmark benchmark) {
+            if (++mUncounted == BATCH) {
+                mUncounted = 0;
+                long posted = benchmark.mPosted.addAndGet(BATCH);
+                while (posted - benchmark.mFeature.mCount > MAX_PENDING) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    public static class CountingFeature extends BenchmarkFeature {
+
+        volatile long mCount;
+
+        @Override
+        protected void onEvent(int value) {
+            // written by feature host thread only
+            //noinspection NonAtomicOperationOnVolatileField
+            mCount++;
+        }
+    }
+
+    @Threads(1)
+    public static class Producers1 extends PostBenchmark {
+    }
+
+    @Threads(4)
+    public static class Producers4 extends PostBenchmark {
+    }
+
+    @Threads(16)
+    public static class Producers16 extends PostBenchmark {
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.Dispatcher;
+
+/**
+ * Measures dispatching of an event, which causes the given number of nested dispatches
+ * from within feature callbacks. Nested events go through the event queue of the
+ * feature host and are dispatched by the outermost dispatch loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReentrantDispatchBenchmark {
+
+    @Param({"0", "1", "4", "16"})
+    public int depth;
+
+    @Param({"1", "10"})
+    public int features;
+
+    private BenchmarkFeatureHost mFeatureHost;
+
+    @Setup
+    public void setup() {
+        mFeatureHost = new BenchmarkFeatureHost(this, Dispatcher.callerThread())
+                .with(new NestingFeature());
+        for (int i = 0; i < features; i++) {
+            mFeatureHost.with(new SubscribingFeature(), "feature" + i);
+        }
+    }
+
+    @Benchmark
+    public void dispatch() {
+        mFeatureHost.dispatchOnNested(depth);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.Dispatcher;
+
+/**
+ * Measures dispatching of an event to a single subscribing feature while the number
+ * of features not overriding the event grows.
+ * <p/>
+ * {@link #indexed()} hosts {@link NonSubscribingFeature} instances, which the processor
+ * knows and skips. {@link #broadcast()} hosts {@link UnindexedFeature} instances, which
+ * are compiled without the processor and thus receive every event as before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubscriberIndexBenchmark {
+
+    @Param({"0", "10", "40", "160"})
+    public int nonSubscribers;
+
+    private BenchmarkFeatureHost mIndexedHost;
+    private BenchmarkFeatureHost mBroadcastHost;
+
+    @Setup
+    public void setup() {
+        Dispatcher dispatcher = Dispatcher.callerThread();
+        mIndexedHost = new BenchmarkFeatureHost(this, dispatcher).with(new SubscribingFeature());
+        mBroadcastHost = new BenchmarkFeatureHost(this, dispatcher).with(new SubscribingFeature());
+        for (int i = 0; i < nonSubscribers; i++) {
+            mIndexedHost.with(new NonSubscribingFeature(), "feature" + i);
+            mBroadcastHost.with(new UnindexedFeature(), "feature" + i);
+        }
+    }
+
+    @Benchmark
+    public void indexed() {
+        mIndexedHost.dispatchOnEvent(1);
+    }
+
+    @Benchmark
+    public void broadcast() {
+        mBroadcastHost.dispatchOnEvent(1);
+    }
+
+    public static class UnindexedFeature extends BenchmarkFeature {
+    }
+
+}
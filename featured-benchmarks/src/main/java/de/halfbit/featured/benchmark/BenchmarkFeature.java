@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import de.halfbit.featured.Feature;
+import de.halfbit.featured.FeatureEvent;
+
+/**
+ * Base feature used by benchmarks. {@code BenchmarkFeatureHost} is generated for it.
+ */
+public class BenchmarkFeature extends Feature<BenchmarkFeatureHost, Object> {
+
+    @FeatureEvent(postable = true)
+    protected void onEvent(int value) {
+        // nop
+    }
+
+    @FeatureEvent
+    protected void onTick() {
+        // nop
+    }
+
+    @FeatureEvent
+    protected void onData(Object data) {
+        // nop
+    }
+
+    @FeatureEvent
+    protected void onRecord(int id, long timestamp, Object data) {
+        // nop
+    }
+
+    @FeatureEvent
+    protected void onNested(int depth) {
+        // nop
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+/**
+ * Feature dispatching {@code onNested} again from within its callback until the
+ * given depth is reached. Every nested event gets queued by the feature host.
+ */
+public class NestingFeature extends BenchmarkFeature {
+
+    private int mCount;
+
+    @Override
+    protected void onNested(int depth) {
+        mCount++;
+        if (depth > 0) {
+            getFeatureHost().dispatchOnNested(depth - 1);
+        }
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+/**
+ * Feature receiving all benchmark events.
+ */
+public class SubscribingFeature extends BenchmarkFeature {
+
+    private int mSum;
+
+    @Override
+    protected void onEvent(int value) {
+        mSum += value;
+    }
+
+    @Override
+    protected void onTick() {
+        mSum++;
+    }
+
+    @Override
+    protected void onData(Object data) {
+        if (data != null) {
+            mSum++;
+        }
+    }
+
+    @Override
+    protected void onRecord(int id, long timestamp, Object data) {
+        if (data != null) {
+            mSum += id;
+        }
+    }
+
+    public int getSum() {
+        return mSum;
+    }
+
+}
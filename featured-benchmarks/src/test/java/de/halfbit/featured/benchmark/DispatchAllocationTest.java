@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.benchmark;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import de.halfbit.featured.Dispatcher;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class DispatchAllocationTest {
+
+    private static final int DISPATCHES = 10000;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private BenchmarkFeatureHost mFeatureHost;
+    private SubscribingFeature mSubscribingFeature;
+    private Object mData;
+
+    @Before
+    public void before() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mSubscribingFeature = new SubscribingFeature();
+        mFeatureHost = new BenchmarkFeatureHost(this, Dispatcher.callerThread())
+                .with(mSubscribingFeature)
+                .with(new CascadingFeature());
+        mData = new Object();
+    }
+
+    @Test
+    public void steadyStateDispatchDoesNotAllocate() {
+        // first dispatches fill event pools and subscriber arrays
+        dispatch(DISPATCHES);
+
+        long overhead = measureAllocatedBytes(0);
+        long allocated = measureAllocatedBytes(DISPATCHES);
+
+        assertThat(allocated - overhead).isEqualTo(0L);
+        assertThat(mSubscribingFeature.getSum()).isEqualTo(DISPATCHES * 2 * 7);
+    }
+
+    private long measureAllocatedBytes(int dispatches) {
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        dispatch(dispatches);
+        return mThreadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private void dispatch(int dispatches) {
+        for (int i = 0; i < dispatches; i++) {
+            mFeatureHost.dispatchOnEvent(1);
+            mFeatureHost.dispatchOnTick();
+            mFeatureHost.dispatchOnData(mData);
+        }
+    }
+
+    /** Dispatches further events from within callbacks, which makes events queue up. */
+    public static class CascadingFeature extends BenchmarkFeature {
+
+        @Override
+        protected void onEvent(int value) {
+            if (value == 1) {
+                getFeatureHost().dispatchOnData(this);
+                getFeatureHost().dispatchOnEvent(2);
+            }
+        }
+
+        @Override
+        protected void onData(Object data) {
+            if (data == this) {
+                getFeatureHost().dispatchOnTick();
+            }
+        }
+
+    }
+
+}
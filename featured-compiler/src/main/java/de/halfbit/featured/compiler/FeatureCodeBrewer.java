@@ -15,19 +15,30 @@
  */
 package de.halfbit.featured.compiler;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
 
 import de.halfbit.featured.compiler.model.FeatureNode;
 import de.halfbit.featured.compiler.model.MethodNode;
@@ -39,24 +50,64 @@ import static de.halfbit.featured.compiler.Assertions.assertNotNull;
 class FeatureCodeBrewer implements ModelNodeVisitor {
 
     private final Names mNames;
+    private final boolean mSwitchMode;
+    private final boolean mAggregating;
 
     // feature host
     private ClassName mFeatureClassName;
     private ClassName mFeatureHostClassName;
+    private ClassName mFeatureHostSuperClassName;
     private TypeSpec.Builder mFeatureHostTypeBuilder;
+    private List<MethodSpec> mDispatchMethods;
+    private Set<Element> mOriginatingElements;
+
+    // subscriptions
+    private CodeBlock.Builder mSubscriptionsBuilder;
+    private CodeBlock.Builder mLazySubscriptionsBuilder;
+    private CodeBlock.Builder mEventNameCasesBuilder;
+    private boolean mHasNonSubscribers;
+    private int mEventIndex;
 
     // event
     private ClassName mEventClassName;
     private TypeSpec.Builder mEventTypeBuilder;
-    private MethodSpec.Builder mEventConstructorBuilder;
+    private MethodSpec.Builder mEventInitMethodBuilder;
+    private MethodSpec.Builder mEventRecycleMethodBuilder;
     private MethodSpec.Builder mEventDispatchMethodBuilder;
+    private MethodSpec.Builder mEventPostMethodBuilder;
+    private MethodSpec.Builder mEventIdleMethodBuilder;
+    private MethodSpec.Builder mEventDelayedMethodBuilder;
+    private String mDelayParameterName;
+    private MethodSpec.Builder mEventToMethodBuilder;
+    private MethodSpec.Builder mEventToTaggedMethodBuilder;
+    private String mFeatureNameParameterName;
+    private String mTagsParameterName;
+    private CodeBlock.Builder mCoalesceKeysBuilder;
+
+    // switch mode
+    private String mEventIdName;
+    private String mEventVariableName;
+    private CodeBlock.Builder mDispatchCasesBuilder;
+    private CodeBlock.Builder mRecordInitBuilder;
+    private List<CodeBlock> mRecordArguments;
+    private int mLongCount;
+    private int mObjectCount;
+    private int mKeyLongCount;
+    private int mKeyObjectCount;
+    private int mNextLongSlot;
+    private int mNextObjectSlot;
+    private int mNextKeyLongSlot;
+    private int mNextKeyObjectSlot;
+    private boolean mHasUncheckedCasts;
 
     // common
     private StringBuilder mListedFields;
     private StringBuilder mListedParams;
 
-    FeatureCodeBrewer(Names names) {
+    FeatureCodeBrewer(Names names, boolean switchMode, boolean aggregating) {
         mNames = names;
+        mSwitchMode = switchMode;
+        mAggregating = aggregating;
     }
 
     @Override
@@ -67,94 +118,823 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
 
         mFeatureClassName = mNames.getFeatureClassName(featureNode);
         mFeatureHostClassName = mNames.getFeatureHostClassName(featureNode);
+        mFeatureHostSuperClassName = mNames.getFeatureHostSuperClassName(featureNode);
+        mDispatchMethods = new ArrayList<>();
+        mOriginatingElements = new LinkedHashSet<>();
+        mSubscriptionsBuilder = CodeBlock.builder();
+        mLazySubscriptionsBuilder = CodeBlock.builder();
+        mEventNameCasesBuilder = null;
+        mHasNonSubscribers = false;
+        mEventIndex = 0;
+        mDispatchCasesBuilder = null;
+        mHasUncheckedCasts = false;
+
+        // isolating processors must name the feature as the only originating element,
+        // super features are reachable from it
+        mOriginatingElements.add(featureNode.getElement());
+        if (mAggregating) {
+            FeatureNode superFeatureNode = featureNode.getSuperFeatureNode();
+            while (superFeatureNode != null) {
+                mOriginatingElements.add(superFeatureNode.getElement());
+                superFeatureNode = superFeatureNode.getSuperFeatureNode();
+            }
+        }
 
         brewClassFeatureHost(featureNode);
         brewMethodWithFeature(featureNode);
         brewMethodWithFeatureName(featureNode);
+        brewMethodWithFeaturePriority(featureNode);
+
+        // with(FeatureProvider) of inheriting hosts would clash after erasure
+        if (!featureNode.hasInheritingFeatureNodes()) {
+            brewMethodWithFeatureProvider();
+            brewMethodWithFeatureClassProvider();
+        }
+        brewMethodWithoutFeature(featureNode);
 
         return true;
     }
 
     @Override
     public void onMethodEnter(MethodNode methodElement) {
+        if (mSwitchMode) {
+            onRecordMethodEnter(methodElement);
+            return;
+        }
+
         mEventClassName = mNames.getEventClassName(methodElement);
 
         mEventTypeBuilder = TypeSpec.classBuilder(mEventClassName)
                 .addModifiers(Modifier.STATIC, Modifier.FINAL)
-                .superclass(mNames.getEventSuperClassName());
+                .superclass(mNames.getEventSuperClassName())
+                .addField(FieldSpec
+                        .builder(TypeName.INT, mNames.getEventIdFieldName(),
+                                Modifier.STATIC, Modifier.FINAL)
+                        .initializer(brewEventCount(mEventIndex++))
+                        .build());
+
+        mEventTypeBuilder.addMethod(MethodSpec.constructorBuilder()
+                .addStatement("super($L)", mNames.getEventIdFieldName())
+                .build());
 
         if (methodElement.hasParameters()) {
-            mEventConstructorBuilder = MethodSpec.constructorBuilder();
+            // events with parameters are pooled and get reinitialized on each dispatch
             mListedFields = prepareStringBuilder(mListedFields);
             mListedParams = prepareStringBuilder(mListedParams);
+            mEventInitMethodBuilder = MethodSpec.methodBuilder("init")
+                    .returns(mEventClassName);
+            mEventRecycleMethodBuilder = MethodSpec.methodBuilder("recycle")
+                    .addModifiers(Modifier.PROTECTED)
+                    .addAnnotation(mNames.getOverrideClassName())
+                    .returns(TypeName.BOOLEAN);
+
+        } else {
+            // parameterless events are stateless and can be shared
+            mEventTypeBuilder.addField(FieldSpec
+                    .builder(mEventClassName, mNames.getEventInstanceFieldName(),
+                            Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T()", mEventClassName)
+                    .build());
         }
 
         mEventDispatchMethodBuilder = MethodSpec
                 .methodBuilder(mNames.getDispatchMethodName(methodElement))
                 .addModifiers(Modifier.PUBLIC);
+
+        mCoalesceKeysBuilder = null;
+        mEventPostMethodBuilder = null;
+        if (methodElement.isPostable()) {
+            mEventPostMethodBuilder = MethodSpec
+                    .methodBuilder(mNames.getPostMethodName(methodElement))
+                    .addModifiers(Modifier.PUBLIC);
+        }
+        mEventIdleMethodBuilder = brewIdleMethodBuilder(methodElement);
+        mEventDelayedMethodBuilder = brewDelayedMethodBuilder(methodElement);
+        brewTargetedMethodBuilders(methodElement);
     }
 
     @Override
     public void onParameter(ParameterNode param) {
+        if (mSwitchMode) {
+            onRecordParameter(param);
+            return;
+        }
 
         String fieldName = "m" + Names.capitalize(param.getName());
+        TypeName fieldType = param.getType().withoutAnnotations();
         if (!param.isDispatchCompleted()) {
-            mEventTypeBuilder.addField(
-                    param.getType(), fieldName, Modifier.PRIVATE, Modifier.FINAL);
+            mEventTypeBuilder.addField(fieldType, fieldName, Modifier.PRIVATE);
             mListedFields.append(fieldName).append(", ");
         }
         mListedParams.append(param.getName()).append(", ");
 
-        mEventConstructorBuilder
+        mEventInitMethodBuilder
                 .addParameter(param.getType(), param.getName())
                 .addStatement("$L = $L", fieldName, param.getName());
 
+        if (param.isCoalesceKey()) {
+            brewCoalesceKey(fieldName, fieldType);
+        }
+
+        if (!fieldType.isPrimitive()) {
+            // pooled events must not keep parameters reachable
+            mEventRecycleMethodBuilder
+                    .addStatement("$L = null", fieldName);
+        }
+
         mEventDispatchMethodBuilder
                 .addParameter(param.getType(), param.getName());
+
+        if (mEventPostMethodBuilder != null) {
+            mEventPostMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventIdleMethodBuilder != null) {
+            mEventIdleMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventDelayedMethodBuilder != null) {
+            mEventDelayedMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventToMethodBuilder != null) {
+            mEventToMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+            mEventToTaggedMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
     }
 
     @Override
     public void onMethodExit(MethodNode methodElement) {
+        if (mSwitchMode) {
+            onRecordMethodExit(methodElement);
+            return;
+        }
 
         String fieldNames = "";
         String paramNames = "";
         if (methodElement.hasParameters()) {
-            mEventTypeBuilder.addMethod(mEventConstructorBuilder.build());
             fieldNames = removeLastComma(mListedFields).toString();
             paramNames = removeLastComma(mListedParams).toString();
         }
 
-        mFeatureHostTypeBuilder
+        if (methodElement.hasParameters()) {
+            mEventTypeBuilder.addMethod(mEventInitMethodBuilder
+                    .addStatement("return this")
+                    .build());
+        }
 
-                // event class
-                .addType(mEventTypeBuilder
-                        .addMethod(MethodSpec.methodBuilder("dispatch")
+        // event class, subscribers are instances of the feature class by construction
+        mEventTypeBuilder
+                .addMethod(MethodSpec.methodBuilder("dispatch")
                                 .addModifiers(Modifier.PROTECTED)
                                 .addAnnotation(mNames.getOverrideClassName())
                                 .addParameter(ParameterSpec
                                         .builder(mNames.getFeatureClassName(), "feature")
                                         .addAnnotation(mNames.getNonNullClassName())
                                         .build())
-                                .addCode(CodeBlock.builder()
-                                        .beginControlFlow("if (feature instanceof $T)",
-                                                mFeatureClassName)
-                                        .addStatement("(($T) feature).$L($L)", mFeatureClassName,
-                                                mNames.getFeatureMethodName(methodElement),
-                                                fieldNames)
-                                        .endControlFlow()
-                                        .build())
-                                .build())
-                        .build())
-
-                // dispatch method
-                .addMethod(mEventDispatchMethodBuilder
-                        .addStatement("dispatch(new $T($L))", mEventClassName, paramNames)
+                        .addStatement("(($T) feature).$L($L)", mFeatureClassName,
+                                mNames.getFeatureMethodName(methodElement),
+                                fieldNames)
                         .build());
+
+        if (methodElement.isCoalescing()) {
+            brewMethodsCoalescing();
+        }
+
+        if (methodElement.isBackground()) {
+            mEventTypeBuilder.addMethod(MethodSpec.methodBuilder("isBackground")
+                    .addModifiers(Modifier.PROTECTED)
+                    .addAnnotation(mNames.getOverrideClassName())
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return true")
+                    .build());
+        }
+
+        if (methodElement.isUrgent()) {
+            mEventTypeBuilder.addMethod(MethodSpec.methodBuilder("isUrgent")
+                    .addModifiers(Modifier.PROTECTED)
+                    .addAnnotation(mNames.getOverrideClassName())
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return true")
+                    .build());
+        }
+
+        if (methodElement.isSticky()) {
+            mEventTypeBuilder.addMethod(MethodSpec.methodBuilder("isSticky")
+                    .addModifiers(Modifier.PROTECTED)
+                    .addAnnotation(mNames.getOverrideClassName())
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return true")
+                    .build());
+        }
+
+        // dispatch method
+        CodeBlock.Builder obtainEvent = CodeBlock.builder();
+        CodeBlock event;
+        if (methodElement.hasParameters() && methodElement.isBackground()) {
+            // background events leave the host thread and thus are not pooled
+            event = CodeBlock.of("new $T().init($L)", mEventClassName, paramNames);
+
+        } else if (methodElement.hasParameters()) {
+            mEventTypeBuilder.addMethod(mEventRecycleMethodBuilder
+                    .addStatement("return true")
+                    .build());
+
+            String eventName = brewEventVariableName(methodElement);
+            obtainEvent
+                    .addStatement("$T $L = obtainEvent($T.$L)", mEventClassName, eventName,
+                            mEventClassName, mNames.getEventIdFieldName())
+                    .beginControlFlow("if ($L == null)", eventName)
+                    .addStatement("$L = new $T()", eventName, mEventClassName)
+                    .endControlFlow();
+            event = CodeBlock.of("$L.init($L)", eventName, paramNames);
+
+        } else {
+            event = CodeBlock.of("$T.$L", mEventClassName, mNames.getEventInstanceFieldName());
+        }
+
+        mFeatureHostTypeBuilder.addType(mEventTypeBuilder.build());
+        mDispatchMethods.add(mEventDispatchMethodBuilder
+                .addCode(obtainEvent.build())
+                .addStatement("dispatch($L)", event)
+                .build());
+
+        // idle method, idle events are obtained right away and wait in the idle lane
+        if (mEventIdleMethodBuilder != null) {
+            mDispatchMethods.add(mEventIdleMethodBuilder
+                    .addCode(obtainEvent.build())
+                    .addStatement("dispatchWhenIdle($L, $L)",
+                            event, methodElement.getIdleTimeout())
+                    .build());
+        }
+
+        // delayed method, delayed events are obtained right away and wait in the timer
+        if (mEventDelayedMethodBuilder != null) {
+            mDispatchMethods.add(mEventDelayedMethodBuilder
+                    .addCode(obtainEvent.build())
+                    .addStatement("return dispatchDelayed($L, $L)", event, mDelayParameterName)
+                    .build());
+        }
+
+        // targeted methods, targets are stored in the event and thus it is never shared
+        if (mEventToMethodBuilder != null) {
+            CodeBlock targetedEvent = methodElement.hasParameters()
+                    ? event : CodeBlock.of("new $T()", mEventClassName);
+            mDispatchMethods.add(mEventToMethodBuilder
+                    .addCode(obtainEvent.build())
+                    .addStatement("dispatchTo($L, $L)", mFeatureNameParameterName, targetedEvent)
+                    .build());
+            mDispatchMethods.add(mEventToTaggedMethodBuilder
+                    .addCode(obtainEvent.build())
+                    .addStatement("dispatchToTagged($L, $L)", mTagsParameterName, targetedEvent)
+                    .build());
+        }
+
+        // post method, posted events cross threads and thus are never shared
+        if (mEventPostMethodBuilder != null) {
+            if (methodElement.hasParameters()) {
+                mEventPostMethodBuilder
+                        .addStatement("post(new $T().init($L))", mEventClassName, paramNames);
+            } else {
+                mEventPostMethodBuilder
+                        .addStatement("post(new $T())", mEventClassName);
+            }
+            mDispatchMethods.add(mEventPostMethodBuilder.build());
+        }
+
+        CodeBlock eventId = CodeBlock.of("$T.$L",
+                mEventClassName, mNames.getEventIdFieldName());
+        brewClearStickyMethod(methodElement, eventId);
+        brewSubscription(methodElement, eventId);
+        brewEventName(methodElement, eventId);
     }
 
     @Override
     public void onFeatureExit(FeatureNode featureNode) {
-        // nop
+        mFeatureHostTypeBuilder
+                .addField(FieldSpec
+                        .builder(TypeName.INT, mNames.getEventCountFieldName(),
+                                Modifier.PROTECTED, Modifier.STATIC, Modifier.FINAL)
+                        .initializer(brewEventCount(mEventIndex))
+                        .build())
+                .addMethod(brewMethodAddSubscriptions())
+                .addMethod(brewMethodAddLazySubscriptions())
+                .addMethods(mDispatchMethods);
+
+        if (mDispatchCasesBuilder != null) {
+            mFeatureHostTypeBuilder.addMethod(brewMethodDispatchRecord());
+        }
+        if (mEventNameCasesBuilder != null) {
+            mFeatureHostTypeBuilder.addMethod(brewMethodGetEventName());
+        }
+
+        for (Element element : mOriginatingElements) {
+            mFeatureHostTypeBuilder.addOriginatingElement(element);
+        }
+    }
+
+    // switch mode: events are records dispatched by a single switch in the feature host
+
+    private void onRecordMethodEnter(MethodNode methodElement) {
+        mEventIdName = mNames.getEventIdConstantName(methodElement);
+        mEventVariableName = brewEventVariableName(methodElement);
+        mFeatureHostTypeBuilder.addField(FieldSpec
+                .builder(TypeName.INT, mEventIdName, Modifier.STATIC, Modifier.FINAL)
+                .initializer(brewEventCount(mEventIndex++))
+                .build());
+
+        // coalesce keys occupy the first slots of the record
+        mLongCount = 0;
+        mObjectCount = 0;
+        mKeyLongCount = 0;
+        mKeyObjectCount = 0;
+        if (methodElement.hasParameters()) {
+            for (ParameterNode param : methodElement.getParameters()) {
+                if (param.isDispatchCompleted()) {
+                    continue;
+                }
+                boolean isPrimitive = param.getType().isPrimitive();
+                if (isPrimitive) {
+                    mLongCount++;
+                } else {
+                    mObjectCount++;
+                }
+                if (param.isCoalesceKey()) {
+                    if (isPrimitive) {
+                        mKeyLongCount++;
+                    } else {
+                        mKeyObjectCount++;
+                    }
+                }
+            }
+        }
+        mNextKeyLongSlot = 0;
+        mNextKeyObjectSlot = 0;
+        mNextLongSlot = mKeyLongCount;
+        mNextObjectSlot = mKeyObjectCount;
+
+        mRecordInitBuilder = CodeBlock.builder();
+        mRecordArguments = new ArrayList<>();
+
+        mEventDispatchMethodBuilder = MethodSpec
+                .methodBuilder(mNames.getDispatchMethodName(methodElement))
+                .addModifiers(Modifier.PUBLIC);
+
+        mEventPostMethodBuilder = null;
+        if (methodElement.isPostable()) {
+            mEventPostMethodBuilder = MethodSpec
+                    .methodBuilder(mNames.getPostMethodName(methodElement))
+                    .addModifiers(Modifier.PUBLIC);
+        }
+        mEventIdleMethodBuilder = brewIdleMethodBuilder(methodElement);
+        mEventDelayedMethodBuilder = brewDelayedMethodBuilder(methodElement);
+        brewTargetedMethodBuilders(methodElement);
+    }
+
+    private void onRecordParameter(ParameterNode param) {
+        mEventDispatchMethodBuilder
+                .addParameter(param.getType(), param.getName());
+        if (mEventPostMethodBuilder != null) {
+            mEventPostMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventIdleMethodBuilder != null) {
+            mEventIdleMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventDelayedMethodBuilder != null) {
+            mEventDelayedMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+        if (mEventToMethodBuilder != null) {
+            mEventToMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+            mEventToTaggedMethodBuilder
+                    .addParameter(param.getType(), param.getName());
+        }
+
+        if (param.isDispatchCompleted()) {
+            mRecordInitBuilder.addStatement("$L.setOnDispatchCompleted($L)",
+                    mEventVariableName, param.getName());
+            return;
+        }
+
+        TypeName type = param.getType().withoutAnnotations();
+        if (type.isPrimitive()) {
+            int slot = param.isCoalesceKey() ? mNextKeyLongSlot++ : mNextLongSlot++;
+            mRecordInitBuilder.addStatement("$L.mLongs[$L] = $L",
+                    mEventVariableName, slot, brewLongEncoding(type, param.getName()));
+            mRecordArguments.add(brewLongDecoding(type, slot));
+
+        } else {
+            int slot = param.isCoalesceKey() ? mNextKeyObjectSlot++ : mNextObjectSlot++;
+            mRecordInitBuilder.addStatement("$L.mObjects[$L] = $L",
+                    mEventVariableName, slot, param.getName());
+            if (TypeName.OBJECT.equals(type)) {
+                mRecordArguments.add(CodeBlock.of("event.mObjects[$L]", slot));
+            } else {
+                mRecordArguments.add(CodeBlock.of("($T) event.mObjects[$L]", type, slot));
+                if (type instanceof ParameterizedTypeName || type instanceof TypeVariableName) {
+                    mHasUncheckedCasts = true;
+                }
+            }
+        }
+    }
+
+    private void onRecordMethodExit(MethodNode methodElement) {
+        ClassName recordClassName = mNames.getEventRecordClassName();
+        CodeBlock newRecord = CodeBlock.of("new $T(this, $L, $L, $L, $L, $L, $L)",
+                recordClassName, mEventIdName, brewRecordFlags(methodElement),
+                mLongCount, mObjectCount, mKeyLongCount, mKeyObjectCount);
+        CodeBlock recordInit = mRecordInitBuilder.build();
+
+        // dispatch method
+        CodeBlock.Builder obtainRecord = CodeBlock.builder();
+        if (methodElement.isBackground()) {
+            // background events leave the host thread and thus are not pooled
+            obtainRecord
+                    .addStatement("$T $L = $L", recordClassName, mEventVariableName, newRecord);
+        } else {
+            obtainRecord
+                    .addStatement("$T $L = obtainEvent($L)",
+                            recordClassName, mEventVariableName, mEventIdName)
+                    .beginControlFlow("if ($L == null)", mEventVariableName)
+                    .addStatement("$L = $L", mEventVariableName, newRecord)
+                    .endControlFlow();
+        }
+        mDispatchMethods.add(mEventDispatchMethodBuilder
+                .addCode(obtainRecord.build())
+                .addCode(recordInit)
+                .addStatement("dispatch($L)", mEventVariableName)
+                .build());
+
+        // idle method, idle records are obtained right away and wait in the idle lane
+        if (mEventIdleMethodBuilder != null) {
+            mDispatchMethods.add(mEventIdleMethodBuilder
+                    .addCode(obtainRecord.build())
+                    .addCode(recordInit)
+                    .addStatement("dispatchWhenIdle($L, $L)",
+                            mEventVariableName, methodElement.getIdleTimeout())
+                    .build());
+        }
+
+        // delayed method, delayed records are obtained right away and wait in the timer
+        if (mEventDelayedMethodBuilder != null) {
+            mDispatchMethods.add(mEventDelayedMethodBuilder
+                    .addCode(obtainRecord.build())
+                    .addCode(recordInit)
+                    .addStatement("return dispatchDelayed($L, $L)",
+                            mEventVariableName, mDelayParameterName)
+                    .build());
+        }
+
+        // targeted methods, targets are stored in the record until it is recycled
+        if (mEventToMethodBuilder != null) {
+            mDispatchMethods.add(mEventToMethodBuilder
+                    .addCode(obtainRecord.build())
+                    .addCode(recordInit)
+                    .addStatement("dispatchTo($L, $L)",
+                            mFeatureNameParameterName, mEventVariableName)
+                    .build());
+            mDispatchMethods.add(mEventToTaggedMethodBuilder
+                    .addCode(obtainRecord.build())
+                    .addCode(recordInit)
+                    .addStatement("dispatchToTagged($L, $L)",
+                            mTagsParameterName, mEventVariableName)
+                    .build());
+        }
+
+        // post method, posted events cross threads and thus are never shared
+        if (mEventPostMethodBuilder != null) {
+            mDispatchMethods.add(mEventPostMethodBuilder
+                    .addStatement("$T $L = $L", recordClassName, mEventVariableName, newRecord)
+                    .addCode(recordInit)
+                    .addStatement("post($L)", mEventVariableName)
+                    .build());
+        }
+
+        // case of the dispatch switch, subscribers are instances of the feature class
+        if (mDispatchCasesBuilder == null) {
+            mDispatchCasesBuilder = CodeBlock.builder();
+        }
+        mDispatchCasesBuilder
+                .add("case $L:\n", mEventIdName)
+                .indent()
+                .addStatement("(($T) feature).$L($L)", mFeatureClassName,
+                        mNames.getFeatureMethodName(methodElement),
+                        brewArguments(mRecordArguments))
+                .addStatement("break")
+                .unindent();
+
+        CodeBlock eventId = CodeBlock.of("$L", mEventIdName);
+        brewClearStickyMethod(methodElement, eventId);
+        brewSubscription(methodElement, eventId);
+        brewEventName(methodElement, eventId);
+    }
+
+    private CodeBlock brewRecordFlags(MethodNode methodElement) {
+        ClassName recordClassName = mNames.getEventRecordClassName();
+        List<CodeBlock> flags = new ArrayList<>();
+        if (methodElement.isBackground()) {
+            flags.add(CodeBlock.of("$T.BACKGROUND", recordClassName));
+        }
+        if (methodElement.isCoalescing()) {
+            flags.add(CodeBlock.of("$T.COALESCING", recordClassName));
+        }
+        if (methodElement.isUrgent()) {
+            flags.add(CodeBlock.of("$T.URGENT", recordClassName));
+        }
+        if (methodElement.isSticky()) {
+            flags.add(CodeBlock.of("$T.STICKY", recordClassName));
+        }
+        if (flags.isEmpty()) {
+            return CodeBlock.of("0");
+        }
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (int i = 0, size = flags.size(); i < size; i++) {
+            if (i > 0) {
+                code.add(" | ");
+            }
+            code.add(flags.get(i));
+        }
+        return code.build();
+    }
+
+    private static CodeBlock brewLongEncoding(TypeName type, String name) {
+        if (TypeName.BOOLEAN.equals(type)) {
+            return CodeBlock.of("$L ? 1 : 0", name);
+        } else if (TypeName.FLOAT.equals(type)) {
+            return CodeBlock.of("$T.floatToRawIntBits($L)", Float.class, name);
+        } else if (TypeName.DOUBLE.equals(type)) {
+            return CodeBlock.of("$T.doubleToRawLongBits($L)", Double.class, name);
+        }
+        return CodeBlock.of("$L", name);
+    }
+
+    private static CodeBlock brewLongDecoding(TypeName type, int slot) {
+        if (TypeName.LONG.equals(type)) {
+            return CodeBlock.of("event.mLongs[$L]", slot);
+        } else if (TypeName.BOOLEAN.equals(type)) {
+            return CodeBlock.of("event.mLongs[$L] != 0", slot);
+        } else if (TypeName.FLOAT.equals(type)) {
+            return CodeBlock.of("$T.intBitsToFloat((int) event.mLongs[$L])", Float.class, slot);
+        } else if (TypeName.DOUBLE.equals(type)) {
+            return CodeBlock.of("$T.longBitsToDouble(event.mLongs[$L])", Double.class, slot);
+        }
+        return CodeBlock.of("($T) event.mLongs[$L]", type, slot);
+    }
+
+    private static CodeBlock brewArguments(List<CodeBlock> arguments) {
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (int i = 0, size = arguments.size(); i < size; i++) {
+            if (i > 0) {
+                code.add(", ");
+            }
+            code.add(arguments.get(i));
+        }
+        return code.build();
+    }
+
+    private MethodSpec brewMethodDispatchRecord() {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("dispatchRecord")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getOverrideClassName());
+        if (mHasUncheckedCasts) {
+            method.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
+        }
+        return method
+                .addParameter(ParameterSpec
+                        .builder(mNames.getEventRecordClassName(), "event")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addParameter(ParameterSpec
+                        .builder(mNames.getFeatureClassName(), "feature")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .beginControlFlow("switch (event.getEventId())")
+                .addCode(mDispatchCasesBuilder.build())
+                .addCode("default:\n")
+                .addCode(CodeBlock.builder()
+                        .indent()
+                        .addStatement("super.dispatchRecord(event, feature)")
+                        .unindent()
+                        .build())
+                .endControlFlow()
+                .build();
+    }
+
+    private void brewCoalesceKey(String fieldName, TypeName fieldType) {
+        if (mCoalesceKeysBuilder == null) {
+            mCoalesceKeysBuilder = CodeBlock.builder();
+        } else {
+            mCoalesceKeysBuilder.add("\n&& ");
+        }
+
+        if (fieldType.isPrimitive()) {
+            mCoalesceKeysBuilder.add("$L == pending.$L", fieldName, fieldName);
+        } else if (fieldType instanceof ArrayTypeName) {
+            mCoalesceKeysBuilder.add("$T.equals($L, pending.$L)",
+                    Arrays.class, fieldName, fieldName);
+        } else {
+            mCoalesceKeysBuilder.add("($L == null ? pending.$L == null : $L.equals(pending.$L))",
+                    fieldName, fieldName, fieldName, fieldName);
+        }
+    }
+
+    private void brewMethodsCoalescing() {
+        mEventTypeBuilder.addMethod(MethodSpec.methodBuilder("isCoalescing")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getOverrideClassName())
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return true")
+                .build());
+
+        if (mCoalesceKeysBuilder == null) {
+            // events without keys replace any pending event of the same type
+            return;
+        }
+
+        mEventTypeBuilder.addMethod(MethodSpec.methodBuilder("coalescesWith")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getOverrideClassName())
+                .returns(TypeName.BOOLEAN)
+                .addParameter(ParameterSpec
+                        .builder(mNames.getEventSuperClassName(), "pendingEvent")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addStatement("$T pending = ($T) pendingEvent", mEventClassName, mEventClassName)
+                .addStatement("return $L", mCoalesceKeysBuilder.build())
+                .build());
+    }
+
+    private CodeBlock brewEventCount(int offset) {
+        if (offset == 0) {
+            return CodeBlock.of("$T.$L",
+                    mFeatureHostSuperClassName, mNames.getEventCountFieldName());
+        }
+        return CodeBlock.of("$T.$L + $L",
+                mFeatureHostSuperClassName, mNames.getEventCountFieldName(), offset);
+    }
+
+    private MethodSpec.Builder brewIdleMethodBuilder(MethodNode methodElement) {
+        if (!methodElement.isIdle()) {
+            return null;
+        }
+        return MethodSpec
+                .methodBuilder(mNames.getDispatchWhenIdleMethodName(methodElement))
+                .addModifiers(Modifier.PUBLIC);
+    }
+
+    private MethodSpec.Builder brewDelayedMethodBuilder(MethodNode methodElement) {
+        if (!methodElement.isDelayable()) {
+            return null;
+        }
+        mDelayParameterName = brewParameterName(methodElement, "delayMillis");
+        return MethodSpec
+                .methodBuilder(mNames.getDispatchDelayedMethodName(methodElement))
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(mNames.getNonNullClassName())
+                .returns(mNames.getScheduledEventClassName())
+                .addParameter(TypeName.LONG, mDelayParameterName);
+    }
+
+    private void brewClearStickyMethod(MethodNode methodElement, CodeBlock eventId) {
+        if (methodElement.isSticky()) {
+            mDispatchMethods.add(MethodSpec
+                    .methodBuilder(mNames.getClearStickyMethodName(methodElement))
+                    .addModifiers(Modifier.PUBLIC)
+                    .addStatement("clearStickyEvent($L)", eventId)
+                    .build());
+        }
+    }
+
+    private void brewTargetedMethodBuilders(MethodNode methodElement) {
+        mEventToMethodBuilder = null;
+        mEventToTaggedMethodBuilder = null;
+        if (!methodElement.isTargetable()) {
+            return;
+        }
+        mFeatureNameParameterName = brewParameterName(methodElement, "featureName");
+        mTagsParameterName = brewParameterName(methodElement, "tags");
+        mEventToMethodBuilder = MethodSpec
+                .methodBuilder(mNames.getDispatchToMethodName(methodElement))
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec
+                        .builder(ClassName.get(String.class), mFeatureNameParameterName)
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build());
+        mEventToTaggedMethodBuilder = MethodSpec
+                .methodBuilder(mNames.getDispatchToTaggedMethodName(methodElement))
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(TypeName.INT, mTagsParameterName);
+    }
+
+    private static String brewEventVariableName(MethodNode methodElement) {
+        return brewParameterName(methodElement, "event");
+    }
+
+    private static String brewParameterName(MethodNode methodElement, String name) {
+        String uniqueName = name;
+        for (int i = 1; methodElement.hasParameter(uniqueName); i++) {
+            uniqueName = name + i;
+        }
+        return uniqueName;
+    }
+
+    private void brewEventName(MethodNode methodElement, CodeBlock eventId) {
+        // trace section names are constants, tracing builds no strings at runtime
+        if (mEventNameCasesBuilder == null) {
+            mEventNameCasesBuilder = CodeBlock.builder();
+        }
+        mEventNameCasesBuilder
+                .add("case $L:\n", eventId)
+                .indent()
+                .addStatement("return $S", mNames.getTraceSectionName(methodElement))
+                .unindent();
+    }
+
+    private MethodSpec brewMethodGetEventName() {
+        return MethodSpec.methodBuilder("getEventName")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getNullableClassName())
+                .addAnnotation(mNames.getOverrideClassName())
+                .returns(mNames.getStringClassName())
+                .addParameter(TypeName.INT, "eventId")
+                .beginControlFlow("switch (eventId)")
+                .addCode(mEventNameCasesBuilder.build())
+                .addCode("default:\n")
+                .addCode(CodeBlock.builder()
+                        .indent()
+                        .addStatement("return super.getEventName(eventId)")
+                        .unindent()
+                        .build())
+                .endControlFlow()
+                .build();
+    }
+
+    private void brewSubscription(MethodNode methodElement, CodeBlock eventId) {
+
+        // lazy features are filtered by the class they were registered with
+        if (methodElement.hasLazyNonSubscribers()) {
+            mLazySubscriptionsBuilder.add(brewSubscriptionCondition(
+                    methodElement.getLazyNonSubscribers(), eventId));
+        } else {
+            mLazySubscriptionsBuilder.addStatement("addSubscriber($L, feature)", eventId);
+        }
+
+        if (!methodElement.hasNonSubscribers()) {
+            mSubscriptionsBuilder.addStatement("addSubscriber($L, feature)", eventId);
+            return;
+        }
+
+        List<TypeElement> nonSubscribers = methodElement.getNonSubscribers();
+        mSubscriptionsBuilder.add(brewSubscriptionCondition(nonSubscribers, eventId));
+        mOriginatingElements.addAll(nonSubscribers);
+        mHasNonSubscribers = true;
+    }
+
+    private CodeBlock brewSubscriptionCondition(List<TypeElement> nonSubscribers,
+                                                CodeBlock eventId) {
+        // if (featureClass != FeatureA.class && featureClass != FeatureB.class)
+        CodeBlock.Builder condition = CodeBlock.builder();
+        for (int i = 0, size = nonSubscribers.size(); i < size; i++) {
+            if (i > 0) {
+                condition.add(" && ");
+            }
+            condition.add("featureClass != $T.class", ClassName.get(nonSubscribers.get(i)));
+        }
+
+        return CodeBlock.builder()
+                .beginControlFlow("if ($L)", condition.build())
+                .addStatement("addSubscriber($L, feature)", eventId)
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec brewMethodAddSubscriptions() {
+        CodeBlock.Builder code = CodeBlock.builder()
+                .addStatement("super.addSubscriptions(feature)")
+                .beginControlFlow("if (feature instanceof $T)", mFeatureClassName);
+        if (mHasNonSubscribers) {
+            code.addStatement("$T featureClass = feature.getClass()",
+                    mNames.getFeatureClassTypeName());
+        }
+        code.add(mSubscriptionsBuilder.build())
+                .endControlFlow();
+
+        return MethodSpec.methodBuilder("addSubscriptions")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getOverrideClassName())
+                .addParameter(ParameterSpec
+                        .builder(mNames.getFeatureClassName(), "feature")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addCode(code.build())
+                .build();
     }
 
     private void brewClassFeatureHost(FeatureNode featureNode) {
@@ -176,14 +956,8 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
                     .addTypeVariable(assertNotNull(contextTypeVariable, featureNode))
                     .superclass(superFeatureHostType)
                     .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                    .addMethod(MethodSpec.constructorBuilder()
-                            .addModifiers(Modifier.PUBLIC)
-                            .addParameter(ParameterSpec
-                                    .builder(contextTypeVariable, "context")
-                                    .addAnnotation(mNames.getNonNullClassName())
-                                    .build())
-                            .addStatement("super(context)")
-                            .build());
+                    .addMethod(brewConstructor(contextTypeVariable, false))
+                    .addMethod(brewConstructor(contextTypeVariable, true));
 
         } else {
             // public class FeatureBHost extends FeatureAHost<FeatureBHost, Context> {
@@ -192,15 +966,31 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
                     .classBuilder(mFeatureHostClassName.simpleName())
                     .superclass(superFeatureHostType)
                     .addModifiers(Modifier.PUBLIC)
-                    .addMethod(MethodSpec.constructorBuilder()
-                            .addModifiers(Modifier.PUBLIC)
-                            .addParameter(ParameterSpec
-                                    .builder(featureContextSuperClassName, "context")
-                                    .addAnnotation(mNames.getNonNullClassName())
-                                    .build())
-                            .addStatement("super(context)")
-                            .build());
+                    .addMethod(brewConstructor(featureContextSuperClassName, false))
+                    .addMethod(brewConstructor(featureContextSuperClassName, true));
+        }
+    }
+
+    private MethodSpec brewConstructor(TypeName contextType, boolean withDispatcher) {
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec
+                        .builder(contextType, "context")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build());
+
+        if (withDispatcher) {
+            // public FeatureBHost(@NotNull Context context, @NotNull Dispatcher dispatcher)
+            constructor
+                    .addParameter(ParameterSpec
+                            .builder(mNames.getDispatcherClassName(), "dispatcher")
+                            .addAnnotation(mNames.getNonNullClassName())
+                            .build())
+                    .addStatement("super(context, dispatcher)");
+        } else {
+            constructor.addStatement("super(context)");
         }
+        return constructor.build();
     }
 
     private void brewMethodWithFeature(FeatureNode featureNode) {
@@ -215,14 +1005,14 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
 
         if (featureHostType == null) {
             withMethod.addCode(CodeBlock.builder()
-                    .addStatement("addFeature(feature, feature.getClass().toString())")
+                    .addStatement("addFeature(feature, null)")
                     .addStatement("return this")
                     .build())
                     .returns(mFeatureHostClassName);
 
         } else {
             withMethod.addCode(CodeBlock.builder()
-                    .addStatement("addFeature(feature, feature.getClass().toString())")
+                    .addStatement("addFeature(feature, null)")
                     .addStatement("return ($T) this", featureHostType)
                     .build())
                     .returns(featureHostType);
@@ -232,6 +1022,30 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
                 .addMethod(withMethod.build());
     }
 
+    private MethodSpec brewMethodAddLazySubscriptions() {
+        CodeBlock code = CodeBlock.builder()
+                .addStatement("super.addLazySubscriptions(feature, featureClass)")
+                .beginControlFlow("if ($T.class.isAssignableFrom(featureClass))",
+                        mFeatureClassName)
+                .add(mLazySubscriptionsBuilder.build())
+                .endControlFlow()
+                .build();
+
+        return MethodSpec.methodBuilder("addLazySubscriptions")
+                .addModifiers(Modifier.PROTECTED)
+                .addAnnotation(mNames.getOverrideClassName())
+                .addParameter(ParameterSpec
+                        .builder(mNames.getFeatureClassName(), "feature")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addParameter(ParameterSpec
+                        .builder(mNames.getFeatureClassTypeName(), "featureClass")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addCode(code)
+                .build();
+    }
+
     private void brewMethodWithFeatureName(FeatureNode featureNode) {
         MethodSpec.Builder withMethod = MethodSpec.methodBuilder("with")
                 .addModifiers(Modifier.PUBLIC)
@@ -264,6 +1078,96 @@ class FeatureCodeBrewer implements ModelNodeVisitor {
                 .addMethod(withMethod.build());
     }
 
+    private void brewMethodWithFeaturePriority(FeatureNode featureNode) {
+        MethodSpec.Builder withMethod = MethodSpec.methodBuilder("with")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(mNames.getNonNullClassName())
+                .addParameter(ParameterSpec.builder(mFeatureClassName, "feature")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addParameter(TypeName.INT, "priority");
+
+        TypeName featureHostType = mNames.getFeatureHostParameterTypeName(featureNode);
+
+        if (featureHostType == null) {
+            withMethod.addCode(CodeBlock.builder()
+                    .addStatement("addFeature(feature, null, priority)")
+                    .addStatement("return this")
+                    .build())
+                    .returns(mFeatureHostClassName);
+
+        } else {
+            withMethod.addCode(CodeBlock.builder()
+                    .addStatement("addFeature(feature, null, priority)")
+                    .addStatement("return ($T) this", featureHostType)
+                    .build())
+                    .returns(featureHostType);
+        }
+
+        mFeatureHostTypeBuilder
+                .addMethod(withMethod.build());
+    }
+
+    private void brewMethodWithFeatureProvider() {
+        mFeatureHostTypeBuilder.addMethod(MethodSpec.methodBuilder("with")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(mNames.getNonNullClassName())
+                .addParameter(ParameterSpec.builder(
+                        mNames.getFeatureProviderTypeName(mFeatureClassName), "provider")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addStatement("addLazyFeature(provider, $T.class)", mFeatureClassName)
+                .addStatement("return this")
+                .returns(mFeatureHostClassName)
+                .build());
+    }
+
+    private void brewMethodWithFeatureClassProvider() {
+        // only events overridden by the given class are subscribed to
+        TypeVariableName featureType = mNames.getProvidedFeatureTypeVariableName(
+                mFeatureClassName);
+        mFeatureHostTypeBuilder.addMethod(MethodSpec.methodBuilder("with")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(mNames.getNonNullClassName())
+                .addTypeVariable(featureType)
+                .addParameter(ParameterSpec.builder(
+                        mNames.getProvidedFeatureClassTypeName(featureType), "featureClass")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addParameter(ParameterSpec.builder(
+                        mNames.getProvidedFeatureProviderTypeName(featureType), "provider")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addStatement("addLazyFeature(provider, featureClass)")
+                .addStatement("return this")
+                .returns(mFeatureHostClassName)
+                .build());
+    }
+
+    private void brewMethodWithoutFeature(FeatureNode featureNode) {
+        MethodSpec.Builder withoutMethod = MethodSpec.methodBuilder("without")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(mNames.getNonNullClassName())
+                .addParameter(ParameterSpec.builder(mFeatureClassName, "feature")
+                        .addAnnotation(mNames.getNonNullClassName())
+                        .build())
+                .addStatement("removeFeature(feature)");
+
+        TypeName featureHostType = mNames.getFeatureHostParameterTypeName(featureNode);
+        if (featureHostType == null) {
+            withoutMethod
+                    .addStatement("return this")
+                    .returns(mFeatureHostClassName);
+        } else {
+            withoutMethod
+                    .addStatement("return ($T) this", featureHostType)
+                    .returns(featureHostType);
+        }
+
+        mFeatureHostTypeBuilder
+                .addMethod(withoutMethod.build());
+    }
+
     private static StringBuilder prepareStringBuilder(StringBuilder builder) {
         if (builder == null) {
             return new StringBuilder(40);
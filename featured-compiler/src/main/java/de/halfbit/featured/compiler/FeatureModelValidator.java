@@ -85,10 +85,44 @@ public class FeatureModelValidator implements ModelNodeVisitor {
                     "@%s void %s() must not be static.",
                     mNames.getFeatureEventClassName(), element.getSimpleName());
         }
+
+        // verify replaced events do not lose their completion callbacks
+        if (methodElement.isCoalescing() && methodElement.hasDispatchCompletedParameter()) {
+            error(methodElement.getParent(), element,
+                    "@%s void %s() must not combine coalesce and dispatchCompleted.",
+                    mNames.getFeatureEventClassName(), element.getSimpleName());
+        }
+
+        // verify sticky events can be replayed in the host thread
+        if (methodElement.isSticky() && methodElement.isBackground()) {
+            error(methodElement.getParent(), element,
+                    "@%s void %s() must not combine sticky and background thread.",
+                    mNames.getFeatureEventClassName(), element.getSimpleName());
+        }
+
+        // verify idle timeout belongs to idle event
+        if (methodElement.getIdleTimeout() < 0) {
+            error(methodElement.getParent(), element,
+                    "@%s void %s() must not have negative idleTimeout.",
+                    mNames.getFeatureEventClassName(), element.getSimpleName());
+        } else if (methodElement.getIdleTimeout() > 0 && !methodElement.isIdle()) {
+            error(methodElement.getParent(), element,
+                    "@%s void %s() requires idle = true for idleTimeout.",
+                    mNames.getFeatureEventClassName(), element.getSimpleName());
+        }
     }
 
     @Override public void onParameter(ParameterNode parameter) {
-        // nop
+
+        // verify coalesce key belongs to coalescing event
+        MethodNode methodElement = parameter.getParent();
+        if (parameter.isCoalesceKey() && !methodElement.isCoalescing()) {
+            ExecutableElement element = methodElement.getElement();
+            error(methodElement.getParent(), element,
+                    "@%s parameter %s requires @%s(coalesce = true) in %s().",
+                    mNames.getCoalesceKeyClassName(), parameter.getName(),
+                    mNames.getFeatureEventClassName(), element.getSimpleName());
+        }
     }
 
     @Override public void onMethodExit(MethodNode methodElement) {
@@ -35,7 +35,9 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Name;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
 
+import de.halfbit.featured.CoalesceKey;
 import de.halfbit.featured.FeatureEvent;
 import de.halfbit.featured.compiler.model.FeatureNode;
 import de.halfbit.featured.compiler.model.MethodNode;
@@ -45,16 +47,70 @@ import de.halfbit.featured.compiler.model.ParameterNode;
 @AutoService(Processor.class)
 public final class FeatureProcessor extends AbstractProcessor {
 
+    /**
+     * Processor option defining how events are generated. Default value {@code classes}
+     * generates an event class for each event. Value {@code switch} generates a single
+     * switch dispatching event records in each feature host.
+     */
+    static final String OPTION_DISPATCH_MODE = "featured.dispatchMode";
+    static final String DISPATCH_MODE_CLASSES = "classes";
+    static final String DISPATCH_MODE_SWITCH = "switch";
+
+    /**
+     * Processor option enabling detection of features, which do not need to receive an
+     * event. Detection scans all compiled classes, which makes the processor aggregating
+     * for Gradle's incremental compilation. Value {@code false} disables detection and
+     * makes the processor isolating.
+     */
+    static final String OPTION_SUBSCRIBER_INDEX = "featured.subscriberIndex";
+
+    private static final String GRADLE_AGGREGATING =
+            "org.gradle.annotation.processing.aggregating";
+    private static final String GRADLE_ISOLATING =
+            "org.gradle.annotation.processing.isolating";
+
     private Filer mFiler;
+    private boolean mSwitchMode;
+    private boolean mSubscriberIndex = true;
 
     private FeatureModelValidator mFeatureValidator;
     private Names mNames;
+    private final ProcessorStats mStats;
+
+    public FeatureProcessor() {
+        this(new ProcessorStats());
+    }
+
+    FeatureProcessor(ProcessorStats stats) {
+        mStats = stats;
+    }
 
     @Override public synchronized void init(ProcessingEnvironment env) {
         super.init(env);
         mFiler = processingEnv.getFiler();
         mNames = new Names(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
         mFeatureValidator = new FeatureModelValidator(processingEnv.getMessager(), mNames);
+
+        String dispatchMode = processingEnv.getOptions().get(OPTION_DISPATCH_MODE);
+        mSwitchMode = DISPATCH_MODE_SWITCH.equals(dispatchMode);
+        if (dispatchMode != null && !mSwitchMode
+                && !DISPATCH_MODE_CLASSES.equals(dispatchMode)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Unknown value of option %s: %s. Use %s or %s.",
+                            OPTION_DISPATCH_MODE, dispatchMode,
+                            DISPATCH_MODE_CLASSES, DISPATCH_MODE_SWITCH));
+        }
+        mSubscriberIndex = !"false".equals(processingEnv.getOptions().get(OPTION_SUBSCRIBER_INDEX));
+    }
+
+    @Override public Set<String> getSupportedOptions() {
+        Set<String> options = new LinkedHashSet<>();
+        options.add(OPTION_DISPATCH_MODE);
+        options.add(OPTION_SUBSCRIBER_INDEX);
+
+        // Gradle asks dynamic processors for their type of incremental processing here
+        options.add(mSubscriberIndex ? GRADLE_AGGREGATING : GRADLE_ISOLATING);
+        return options;
     }
 
     @Override public Set<String> getSupportedAnnotationTypes() {
@@ -69,7 +125,9 @@ public final class FeatureProcessor extends AbstractProcessor {
 
     @Override public boolean process(Set<? extends TypeElement> anns, RoundEnvironment env) {
 
+        mStats.start();
         ModelNode model = new ModelNode();
+        mNames.clearCache();
 
         // process each @FeatureEvent element
         for (Element element : env.getElementsAnnotatedWith(FeatureEvent.class)) {
@@ -100,7 +158,9 @@ public final class FeatureProcessor extends AbstractProcessor {
                                 new ParameterNode(methodNode)
                                         .setName(param.getSimpleName().toString())
                                         .setType(mNames.getTypeNameByKind(param))
-                                        .setDispatchCompleted(false));
+                                        .setDispatchCompleted(false)
+                                        .setCoalesceKey(
+                                                param.getAnnotation(CoalesceKey.class) != null));
                     }
 
                     if (methodNode.hasDispatchCompletedParameter()) {
@@ -117,22 +177,33 @@ public final class FeatureProcessor extends AbstractProcessor {
             }
         }
 
+        mStats.lap(ProcessorStats.PHASE_MODEL);
+
         // Add feature nodes coming from library. They are not annotated but must be
         // present in the model for proper generation of feature hosts.
         model.detectLibraryFeatures(processingEnv, mNames);
+        mStats.lap(ProcessorStats.PHASE_LIBRARY_FEATURES);
 
         // enhance model
         model.detectInheritance(processingEnv);
+        mStats.lap(ProcessorStats.PHASE_INHERITANCE);
+        if (mSubscriberIndex) {
+            model.detectSubscribers(env.getRootElements(), processingEnv);
+        }
+        mStats.lap(ProcessorStats.PHASE_SUBSCRIBERS);
 
         // validate model nodes
         model.accept(mFeatureValidator);
+        mStats.lap(ProcessorStats.PHASE_VALIDATION);
 
         // generate source code
-        FeatureCodeBrewer featureBrewer = new FeatureCodeBrewer(mNames);
+        FeatureCodeBrewer featureBrewer =
+                new FeatureCodeBrewer(mNames, mSwitchMode, mSubscriberIndex);
         Collection<FeatureNode> featureNodes = model.getFeatureNodes();
         for (FeatureNode featureNode : featureNodes) {
             if (featureNode.isValid() && !featureNode.isLibraryNode()) {
                 featureNode.accept(featureBrewer);
+                mStats.lap(ProcessorStats.PHASE_BREWING);
                 try {
                     featureBrewer.brewTo(mFiler);
                 } catch (IOException e) {
@@ -140,6 +211,7 @@ public final class FeatureProcessor extends AbstractProcessor {
                     mFeatureValidator.error(element,
                             "Unable to generate code for type %s: %s", element, e.getMessage());
                 }
+                mStats.lap(ProcessorStats.PHASE_WRITING);
             }
         }
 
@@ -21,9 +21,12 @@ import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -50,20 +53,41 @@ public class Names {
             ClassName.get(PACKAGE_NAME, "Feature");
     private static final ClassName FEATURE_EVENT =
             ClassName.get(PACKAGE_NAME, "FeatureEvent");
+    private static final ClassName COALESCE_KEY =
+            ClassName.get(PACKAGE_NAME, "CoalesceKey");
     private static final ClassName FEATURE_HOST =
             ClassName.get(PACKAGE_NAME, "FeatureHost");
     private static final ClassName FEATURE_HOST_EVENT =
             ClassName.get(PACKAGE_NAME, "FeatureHost", "Event");
+    private static final ClassName FEATURE_HOST_EVENT_RECORD =
+            ClassName.get(PACKAGE_NAME, "FeatureHost", "EventRecord");
     private static final ClassName FEATURE_HOST_DISPATCH_COMPLETED =
             ClassName.get(PACKAGE_NAME, "FeatureHost", "OnDispatchCompleted");
+    private static final ClassName FEATURE_HOST_SCHEDULED_EVENT =
+            ClassName.get(PACKAGE_NAME, "FeatureHost", "ScheduledEvent");
+    private static final ClassName FEATURE_PROVIDER =
+            ClassName.get(PACKAGE_NAME, "FeatureProvider");
+    private static final ClassName DISPATCHER =
+            ClassName.get(PACKAGE_NAME, "Dispatcher");
     private static final ClassName CONTEXT =
             ClassName.get("android.content", "Context");
     private static final ClassName STRING =
             ClassName.get("java.lang", "String");
     private static final ClassName NOT_NULL =
             ClassName.get("org.jetbrains.annotations", "NotNull");
+    private static final ClassName NULLABLE =
+            ClassName.get("org.jetbrains.annotations", "Nullable");
     private static final ClassName OVERRIDE =
             ClassName.get("java.lang", "Override");
+    private static final ClassName CLASS =
+            ClassName.get("java.lang", "Class");
+
+    private static final String EVENT_ID = "ID";
+    private static final String EVENT_INSTANCE = "INSTANCE";
+    private static final String EVENT_COUNT = "EVENT_COUNT";
+
+    // android.os.Trace rejects longer section names
+    private static final int MAX_TRACE_SECTION_LENGTH = 127;
 
     private static final int HOST_PARAMETER_INDEX = 0;
     private static final int CONTEXT_PARAMETER_INDEX = 1;
@@ -71,11 +95,21 @@ public class Names {
     private final Elements mElementUtils;
     private final Types mTypeUtils;
 
+    // feature host names resolved in current round, keyed by feature node
+    private final Map<FeatureNode, ClassName> mFeatureHostClassNames = new HashMap<>();
+    private final Map<FeatureNode, TypeName> mFeatureHostSuperTypeNames = new HashMap<>();
+
     public Names(Elements elementUtils, Types typeUtils) {
         mElementUtils = elementUtils;
         mTypeUtils = typeUtils;
     }
 
+    /** Forgets names resolved for feature nodes of previous processing round. */
+    public void clearCache() {
+        mFeatureHostClassNames.clear();
+        mFeatureHostSuperTypeNames.clear();
+    }
+
     private String getPackageName(TypeElement type) {
         return mElementUtils.getPackageOf(type).getQualifiedName().toString();
     }
@@ -86,6 +120,15 @@ public class Names {
     }
 
     public ClassName getFeatureHostClassName(FeatureNode featureNode) {
+        ClassName featureHostClassName = mFeatureHostClassNames.get(featureNode);
+        if (featureHostClassName == null) {
+            featureHostClassName = resolveFeatureHostClassName(featureNode);
+            mFeatureHostClassNames.put(featureNode, featureHostClassName);
+        }
+        return featureHostClassName;
+    }
+
+    private ClassName resolveFeatureHostClassName(FeatureNode featureNode) {
 
         // we read host name from the feature class parameters
 
@@ -178,6 +221,10 @@ public class Names {
         return NOT_NULL;
     }
 
+    public ClassName getNullableClassName() {
+        return NULLABLE;
+    }
+
     public ClassName getStringClassName() {
         return STRING;
     }
@@ -190,15 +237,49 @@ public class Names {
         return FEATURE;
     }
 
+    public ClassName getDispatcherClassName() {
+        return DISPATCHER;
+    }
+
     public ClassName getFeatureEventClassName() {
         return FEATURE_EVENT;
     }
 
+    public ClassName getCoalesceKeyClassName() {
+        return COALESCE_KEY;
+    }
+
     public String getDispatchMethodName(MethodNode methodElement) {
         String methodName = methodElement.getElement().getSimpleName().toString();
         return "dispatch" + capitalize(methodName);
     }
 
+    public String getPostMethodName(MethodNode methodElement) {
+        String methodName = methodElement.getElement().getSimpleName().toString();
+        return "post" + capitalize(methodName);
+    }
+
+    public String getDispatchWhenIdleMethodName(MethodNode methodElement) {
+        return getDispatchMethodName(methodElement) + "WhenIdle";
+    }
+
+    public String getDispatchDelayedMethodName(MethodNode methodElement) {
+        return getDispatchMethodName(methodElement) + "Delayed";
+    }
+
+    public String getClearStickyMethodName(MethodNode methodElement) {
+        String methodName = methodElement.getElement().getSimpleName().toString();
+        return "clearSticky" + capitalize(methodName);
+    }
+
+    public String getDispatchToMethodName(MethodNode methodElement) {
+        return getDispatchMethodName(methodElement) + "To";
+    }
+
+    public String getDispatchToTaggedMethodName(MethodNode methodElement) {
+        return getDispatchMethodName(methodElement) + "ToTagged";
+    }
+
     public static String capitalize(String text) {
         return text.substring(0, 1).toUpperCase() + text.substring(1, text.length());
     }
@@ -217,6 +298,37 @@ public class Names {
         return FEATURE_HOST_EVENT;
     }
 
+    public ClassName getScheduledEventClassName() {
+        return FEATURE_HOST_SCHEDULED_EVENT;
+    }
+
+    public ClassName getEventRecordClassName() {
+        return FEATURE_HOST_EVENT_RECORD;
+    }
+
+    public String getEventIdConstantName(MethodNode methodElement) {
+        // onDataLoaded -> EVENT_ON_DATA_LOADED
+        String methodName = getFeatureMethodName(methodElement);
+        StringBuilder name = new StringBuilder("EVENT_");
+        for (int i = 0, length = methodName.length(); i < length; i++) {
+            char c = methodName.charAt(i);
+            if (i > 0 && Character.isUpperCase(c)
+                    && !Character.isUpperCase(methodName.charAt(i - 1))) {
+                name.append('_');
+            }
+            name.append(Character.toUpperCase(c));
+        }
+        return name.toString();
+    }
+
+    public String getTraceSectionName(MethodNode methodElement) {
+        // FeatureA.onStart
+        String name = methodElement.getParent().getElement().getSimpleName() + "."
+                + getFeatureMethodName(methodElement);
+        return name.length() > MAX_TRACE_SECTION_LENGTH
+                ? name.substring(0, MAX_TRACE_SECTION_LENGTH) : name;
+    }
+
     public String getFeatureMethodName(MethodNode methodElement) {
         return methodElement.getElement().getSimpleName().toString();
     }
@@ -230,6 +342,15 @@ public class Names {
     }
 
     public TypeName getFeatureHostSuperTypeName(FeatureNode featureNode) {
+        TypeName featureHostSuperTypeName = mFeatureHostSuperTypeNames.get(featureNode);
+        if (featureHostSuperTypeName == null) {
+            featureHostSuperTypeName = resolveFeatureHostSuperTypeName(featureNode);
+            mFeatureHostSuperTypeNames.put(featureNode, featureHostSuperTypeName);
+        }
+        return featureHostSuperTypeName;
+    }
+
+    private TypeName resolveFeatureHostSuperTypeName(FeatureNode featureNode) {
 
         // public class FeatureA extends Feature<FeatureAHost, Context> {
         // public class FeatureA<FH extends FeatureAHost, C extends App> extends Feature<FH, C> {
@@ -264,6 +385,52 @@ public class Names {
         return ParameterizedTypeName.get(featureHostClass, hostTypeName, contextTypeName);
     }
 
+    public ClassName getFeatureHostSuperClassName(FeatureNode featureNode) {
+        TypeName superTypeName = getFeatureHostSuperTypeName(featureNode);
+        if (superTypeName instanceof ParameterizedTypeName) {
+            return ((ParameterizedTypeName) superTypeName).rawType;
+        }
+        return (ClassName) superTypeName;
+    }
+
+    public TypeName getFeatureClassTypeName() {
+        // Class<? extends Feature>
+        return ParameterizedTypeName.get(CLASS, WildcardTypeName.subtypeOf(FEATURE));
+    }
+
+    public TypeName getFeatureProviderTypeName(ClassName featureClassName) {
+        // FeatureProvider<? extends FeatureA>
+        return ParameterizedTypeName.get(FEATURE_PROVIDER,
+                WildcardTypeName.subtypeOf(featureClassName));
+    }
+
+    public TypeVariableName getProvidedFeatureTypeVariableName(ClassName featureClassName) {
+        // F extends FeatureA
+        return TypeVariableName.get("F", featureClassName);
+    }
+
+    public TypeName getProvidedFeatureClassTypeName(TypeVariableName featureTypeName) {
+        // Class<F>
+        return ParameterizedTypeName.get(CLASS, featureTypeName);
+    }
+
+    public TypeName getProvidedFeatureProviderTypeName(TypeVariableName featureTypeName) {
+        // FeatureProvider<F>
+        return ParameterizedTypeName.get(FEATURE_PROVIDER, featureTypeName);
+    }
+
+    public String getEventIdFieldName() {
+        return EVENT_ID;
+    }
+
+    public String getEventInstanceFieldName() {
+        return EVENT_INSTANCE;
+    }
+
+    public String getEventCountFieldName() {
+        return EVENT_COUNT;
+    }
+
     public TypeName getFeatureHostParameterTypeName(FeatureNode featureNode) {
         TypeMirror type = featureNode.getElement().asType();
         if (type.getKind() != TypeKind.DECLARED) {
@@ -332,9 +499,15 @@ public class Names {
             List<AnnotationSpec> annotationSpecs =
                     new ArrayList<>(annotationMirrors.size());
             for (AnnotationMirror annotationMirror : annotationMirrors) {
-                annotationSpecs.add(AnnotationSpec.get(annotationMirror));
+                // coalesce key is only meaningful to the processor
+                String annotationType = annotationMirror.getAnnotationType().toString();
+                if (!COALESCE_KEY.toString().equals(annotationType)) {
+                    annotationSpecs.add(AnnotationSpec.get(annotationMirror));
+                }
+            }
+            if (annotationSpecs.size() > 0) {
+                typeName = typeName.annotated(annotationSpecs);
             }
-            typeName = typeName.annotated(annotationSpecs);
         }
         return typeName;
     }
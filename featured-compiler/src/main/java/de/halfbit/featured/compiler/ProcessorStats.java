@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.compiler;
+
+/**
+ * Stopwatch measuring time spent by {@link FeatureProcessor} in each of its phases.
+ * Times are accumulated over all processing rounds.
+ */
+final class ProcessorStats {
+
+    static final int PHASE_MODEL = 0;
+    static final int PHASE_LIBRARY_FEATURES = 1;
+    static final int PHASE_INHERITANCE = 2;
+    static final int PHASE_SUBSCRIBERS = 3;
+    static final int PHASE_VALIDATION = 4;
+    static final int PHASE_BREWING = 5;
+    static final int PHASE_WRITING = 6;
+    static final int PHASE_COUNT = 7;
+
+    private static final String[] PHASE_NAMES = {
+            "model", "detectLibraryFeatures", "detectInheritance", "detectSubscribers",
+            "validation", "brewing", "writing"
+    };
+
+    private final long[] mPhaseNanos = new long[PHASE_COUNT];
+    private long mLapStartNanos;
+
+    /** Starts measuring the first phase of a processing round. */
+    void start() {
+        mLapStartNanos = System.nanoTime();
+    }
+
+    /** Adds time passed since the last call to given phase and starts measuring next one. */
+    void lap(int phase) {
+        long nanos = System.nanoTime();
+        mPhaseNanos[phase] += nanos - mLapStartNanos;
+        mLapStartNanos = nanos;
+    }
+
+    long getPhaseNanos(int phase) {
+        return mPhaseNanos[phase];
+    }
+
+    long getTotalNanos() {
+        long totalNanos = 0;
+        for (long phaseNanos : mPhaseNanos) {
+            totalNanos += phaseNanos;
+        }
+        return totalNanos;
+    }
+
+    static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+}
@@ -46,6 +46,10 @@ public class FeatureNode {
         mIsLibraryNode = isLibraryNode;
     }
 
+    public Collection<MethodNode> getMethods() {
+        return mMethods.values();
+    }
+
     public boolean hasMethod(Name name) {
         return mMethods.containsKey(name);
     }
@@ -19,7 +19,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
 
+import de.halfbit.featured.EventThread;
 import de.halfbit.featured.FeatureEvent;
 
 public class MethodNode {
@@ -27,6 +29,8 @@ public class MethodNode {
     private final ExecutableElement mElement;
     private final FeatureNode mParent;
     private List<ParameterNode> mParameterNodes;
+    private List<TypeElement> mNonSubscribers;
+    private List<TypeElement> mLazyNonSubscribers;
 
     public MethodNode(ExecutableElement element, FeatureNode parent) {
         mElement = element;
@@ -56,6 +60,51 @@ public class MethodNode {
         return ann != null && ann.dispatchCompleted();
     }
 
+    public boolean isPostable() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.postable();
+    }
+
+    public boolean isCoalescing() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.coalesce();
+    }
+
+    public boolean isDelayable() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.delayable();
+    }
+
+    public boolean isTargetable() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.targetable();
+    }
+
+    public boolean isUrgent() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.urgent();
+    }
+
+    public boolean isSticky() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.sticky();
+    }
+
+    public boolean isIdle() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.idle();
+    }
+
+    public long getIdleTimeout() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann == null ? 0 : ann.idleTimeout();
+    }
+
+    public boolean isBackground() {
+        FeatureEvent ann = mElement.getAnnotation(FeatureEvent.class);
+        return ann != null && ann.thread() == EventThread.BACKGROUND;
+    }
+
     public void addParameter(ParameterNode parameter) {
         if (mParameterNodes == null) {
             mParameterNodes = new ArrayList<>(6);
@@ -63,7 +112,61 @@ public class MethodNode {
         mParameterNodes.add(parameter);
     }
 
+    public List<ParameterNode> getParameters() {
+        return mParameterNodes;
+    }
+
     public boolean hasParameters() {
         return mParameterNodes != null;
     }
+
+    public boolean hasParameter(String name) {
+        if (mParameterNodes != null) {
+            for (ParameterNode parameterNode : mParameterNodes) {
+                if (parameterNode.getName().equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void addNonSubscriber(TypeElement featureElement, boolean hasFeatureHost) {
+        if (mNonSubscribers == null) {
+            mNonSubscribers = new ArrayList<>(6);
+        }
+        mNonSubscribers.add(featureElement);
+
+        if (!hasFeatureHost) {
+            if (mLazyNonSubscribers == null) {
+                mLazyNonSubscribers = new ArrayList<>(6);
+            }
+            mLazyNonSubscribers.add(featureElement);
+        }
+    }
+
+    public boolean hasNonSubscribers() {
+        return mNonSubscribers != null;
+    }
+
+    /**
+     * Returns concrete features known to inherit this method without overriding it.
+     * Feature host does not need to dispatch the event to instances of these classes.
+     */
+    public List<TypeElement> getNonSubscribers() {
+        return mNonSubscribers;
+    }
+
+    public boolean hasLazyNonSubscribers() {
+        return mLazyNonSubscribers != null;
+    }
+
+    /**
+     * Returns non-subscribers, which can be excluded when registered lazily with their class.
+     * Features having own feature hosts are not returned, because their hosts register
+     * lazy features of any subclass with the class of the feature.
+     */
+    public List<TypeElement> getLazyNonSubscribers() {
+        return mLazyNonSubscribers;
+    }
 }
@@ -1,17 +1,28 @@
 package de.halfbit.featured.compiler.model;
 
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.Trees;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 import de.halfbit.featured.compiler.Names;
@@ -44,8 +55,8 @@ public class ModelNode {
     }
 
     public void detectInheritance(ProcessingEnvironment env) {
-        Collection<FeatureNode> featureNodes = getFeatureNodes();
-        for (FeatureNode featureNode : featureNodes) {
+        Types types = env.getTypeUtils();
+        for (FeatureNode featureNode : getFeatureNodes()) {
 
             // feature has inheriting features if it is parametrized with generics
             List<? extends TypeParameterElement> typeParams =
@@ -55,27 +66,25 @@ public class ModelNode {
                 continue;
             }
 
-            // look up for super-features within collected nodes
+            // closest super-feature within collected nodes, looked up by name
             TypeMirror superType = featureNode.getElement().getSuperclass();
-            while (superType.getKind() != TypeKind.NONE) {
-                for (FeatureNode otherFeatureNode : featureNodes) {
-                    if (featureNode == otherFeatureNode) {
-                        continue;
-                    }
-                    Name otherName = otherFeatureNode.getElement().getQualifiedName();
-                    Name superName = ((TypeElement) env.getTypeUtils()
-                            .asElement(superType)).getQualifiedName();
-                    if (otherName.equals(superName)) {
-                        featureNode.setSuperFeatureNode(otherFeatureNode);
-                        break;
-                    }
+            while (superType.getKind() == TypeKind.DECLARED) {
+                TypeElement superElement = (TypeElement) types.asElement(superType);
+                FeatureNode superFeatureNode =
+                        mFeatureNodes.get(superElement.getQualifiedName().toString());
+                if (superFeatureNode != null) {
+                    featureNode.setSuperFeatureNode(superFeatureNode);
+                    break;
                 }
-                superType = ((TypeElement) env.getTypeUtils().asElement(superType)).getSuperclass();
+                superType = superElement.getSuperclass();
             }
         }
     }
 
     public void detectLibraryFeatures(ProcessingEnvironment env, Names names) {
+        TypeMirror featureType = env.getElementUtils().getTypeElement(
+                names.getFeatureClassName().toString()).asType();
+
         Collection<FeatureNode> featureNodes = new ArrayList<>(getFeatureNodes());
         for (FeatureNode featureNode : featureNodes) {
             TypeMirror superType = featureNode.getElement().getSuperclass();
@@ -89,9 +98,6 @@ public class ModelNode {
                 continue;
             }
 
-            TypeMirror featureType = env.getElementUtils().getTypeElement(
-                    names.getFeatureClassName().toString()).asType();
-
             if (env.getTypeUtils().isSameType(superType, featureType)) {
                 continue;
             }
@@ -107,6 +113,128 @@ public class ModelNode {
         }
     }
 
+    /**
+     * Scans given root elements for concrete features inheriting feature event methods
+     * without overriding them. Such features are registered as non-subscribers of the
+     * event in corresponding method node. Only methods with an empty body are considered,
+     * because only for them skipping the call does not change the behavior.
+     */
+    public void detectSubscribers(Set<? extends Element> rootElements,
+                                  ProcessingEnvironment env) {
+        Trees trees = getTrees(env);
+        if (trees == null) {
+            // cannot look into method bodies, keep every feature subscribed
+            return;
+        }
+
+        Set<MethodNode> emptyMethods = new HashSet<>();
+        for (FeatureNode featureNode : getFeatureNodes()) {
+            if (featureNode.isLibraryNode()) {
+                continue;
+            }
+            for (MethodNode methodNode : featureNode.getMethods()) {
+                if (hasEmptyBody(methodNode.getElement(), trees)) {
+                    emptyMethods.add(methodNode);
+                }
+            }
+        }
+        if (emptyMethods.isEmpty()) {
+            return;
+        }
+
+        List<TypeElement> classes = new ArrayList<>();
+        collectClasses(rootElements, classes);
+
+        Elements elements = env.getElementUtils();
+        Types types = env.getTypeUtils();
+        List<ExecutableElement> declaredMethods = new ArrayList<>();
+
+        for (TypeElement type : classes) {
+            if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            // walk up the class hierarchy collecting methods declared below each super-feature
+            declaredMethods.clear();
+            TypeElement current = type;
+            while (true) {
+                declaredMethods.addAll(ElementFilter.methodsIn(current.getEnclosedElements()));
+                TypeMirror superType = current.getSuperclass();
+                if (superType.getKind() != TypeKind.DECLARED) {
+                    break;
+                }
+                current = (TypeElement) types.asElement(superType);
+
+                FeatureNode featureNode = mFeatureNodes.get(current.getQualifiedName().toString());
+                if (featureNode == null || featureNode.isLibraryNode()
+                        || !isAccessible(type, elements.getPackageOf(current), elements)) {
+                    continue;
+                }
+
+                for (MethodNode methodNode : featureNode.getMethods()) {
+                    if (emptyMethods.contains(methodNode) && !isOverridden(
+                            methodNode.getElement(), declaredMethods, type, elements)) {
+                        methodNode.addNonSubscriber(type, mFeatureNodes.containsKey(
+                                type.getQualifiedName().toString()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Trees getTrees(ProcessingEnvironment env) {
+        try {
+            return Trees.instance(env);
+        } catch (IllegalArgumentException e) {
+            // not running inside javac
+            return null;
+        }
+    }
+
+    private static boolean hasEmptyBody(ExecutableElement method, Trees trees) {
+        MethodTree tree = trees.getTree(method);
+        return tree != null && tree.getBody() != null
+                && tree.getBody().getStatements().isEmpty();
+    }
+
+    private static boolean isOverridden(ExecutableElement method,
+                                        List<ExecutableElement> declaredMethods,
+                                        TypeElement type, Elements elements) {
+        Name name = method.getSimpleName();
+        for (ExecutableElement declaredMethod : declaredMethods) {
+            if (name.equals(declaredMethod.getSimpleName())
+                    && elements.overrides(declaredMethod, method, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAccessible(TypeElement type, Element fromPackage,
+                                        Elements elements) {
+        boolean samePackage = elements.getPackageOf(type).equals(fromPackage);
+        Element element = type;
+        while (element.getKind() != ElementKind.PACKAGE) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || !(samePackage || modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static void collectClasses(Collection<? extends Element> elements,
+                                       List<TypeElement> classes) {
+        for (TypeElement type : ElementFilter.typesIn(elements)) {
+            if (type.getKind() == ElementKind.CLASS) {
+                classes.add(type);
+            }
+            collectClasses(type.getEnclosedElements(), classes);
+        }
+    }
+
     private FeatureNode findFetureNode(TypeMirror featureType, Types types) {
         String featureName = ((TypeElement) types.asElement(featureType))
                 .getQualifiedName().toString();
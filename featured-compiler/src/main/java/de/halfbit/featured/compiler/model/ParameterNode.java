@@ -23,6 +23,7 @@ public class ParameterNode {
     private String mName;
     private TypeName mType;
     private boolean mIsDispatchCompleted;
+    private boolean mIsCoalesceKey;
 
     public ParameterNode(MethodNode methodNode) {
         mMethodNode = methodNode;
@@ -55,6 +56,15 @@ public class ParameterNode {
         return this;
     }
 
+    public boolean isCoalesceKey() {
+        return mIsCoalesceKey;
+    }
+
+    public ParameterNode setCoalesceKey(boolean coalesceKey) {
+        mIsCoalesceKey = coalesceKey;
+        return this;
+    }
+
     public void accept(ModelNodeVisitor visitor) {
         visitor.onParameter(this);
     }
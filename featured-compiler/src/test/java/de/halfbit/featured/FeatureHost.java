@@ -29,19 +29,152 @@ public abstract class FeatureHost<FH extends FeatureHost, C> {
         @Nullable
         protected OnDispatchCompleted mOnDispatchCompleted;
 
+        protected Event(int eventId) {
+            throw new RuntimeException("Stub!");
+        }
+
         protected abstract void dispatch(@NotNull Feature feature);
+
+        protected boolean recycle() {
+            throw new RuntimeException("Stub!");
+        }
+
+        protected boolean isBackground() {
+            throw new RuntimeException("Stub!");
+        }
+
+        protected boolean isUrgent() {
+            throw new RuntimeException("Stub!");
+        }
+
+        protected boolean isSticky() {
+            throw new RuntimeException("Stub!");
+        }
+
+        protected boolean isCoalescing() {
+            throw new RuntimeException("Stub!");
+        }
+
+        protected boolean coalescesWith(@NotNull Event pendingEvent) {
+            throw new RuntimeException("Stub!");
+        }
     }
 
+    protected static final class EventRecord extends Event {
+        public static final int BACKGROUND = 1;
+        public static final int COALESCING = 1 << 1;
+        public static final int URGENT = 1 << 2;
+        public static final int STICKY = 1 << 3;
+
+        public final long[] mLongs = null;
+        public final Object[] mObjects = null;
+
+        public EventRecord(@NotNull FeatureHost featureHost, int eventId, int flags,
+                           int longs, int objects, int keyLongs, int keyObjects) {
+            super(eventId);
+        }
+
+        public int getEventId() {
+            throw new RuntimeException("Stub!");
+        }
+
+        public void setOnDispatchCompleted(@Nullable OnDispatchCompleted onDispatchCompleted) {
+            throw new RuntimeException("Stub!");
+        }
+
+        @Override
+        protected void dispatch(@NotNull Feature feature) {
+            throw new RuntimeException("Stub!");
+        }
+    }
+
+    public static final class ScheduledEvent {
+        public boolean cancel() {
+            throw new RuntimeException("Stub!");
+        }
+    }
+
+    protected static final int EVENT_COUNT = 0;
+
     public FeatureHost(@NotNull C context) {
         throw new RuntimeException("Stub!");
     }
 
+    public FeatureHost(@NotNull C context, @NotNull Dispatcher dispatcher) {
+        throw new RuntimeException("Stub!");
+    }
+
+    @Nullable
+    protected final <E extends Event> E obtainEvent(int eventId) {
+        throw new RuntimeException("Stub!");
+    }
+
     protected void dispatch(Event event) {
         throw new RuntimeException("Stub!");
     }
 
+    @NotNull
+    protected final ScheduledEvent dispatchDelayed(@NotNull Event event, long delayMillis) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void dispatchWhenIdle(@NotNull Event event, long timeoutMillis) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void clearStickyEvent(int eventId) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void dispatchTo(@NotNull String featureName, @NotNull Event event) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void dispatchToTagged(int tags, @NotNull Event event) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void post(@NotNull Event event) {
+        throw new RuntimeException("Stub!");
+    }
+
     protected void addFeature(Feature feature, @Nullable String featureName) {
         throw new RuntimeException("Stub!");
     }
 
+    protected void addFeature(Feature feature, @Nullable String featureName, int priority) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected void removeFeature(@NotNull Feature feature) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected void addSubscriptions(@NotNull Feature feature) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected void addLazyFeature(@NotNull FeatureProvider<?> provider,
+                                  @NotNull Class<? extends Feature> featureClass) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected void addLazySubscriptions(@NotNull Feature feature,
+                                        @NotNull Class<? extends Feature> featureClass) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected final void addSubscriber(int eventId, @NotNull Feature feature) {
+        throw new RuntimeException("Stub!");
+    }
+
+    protected void dispatchRecord(@NotNull EventRecord event, @NotNull Feature feature) {
+        throw new RuntimeException("Stub!");
+    }
+
+    @Nullable
+    protected String getEventName(int eventId) {
+        throw new RuntimeException("Stub!");
+    }
+
 }
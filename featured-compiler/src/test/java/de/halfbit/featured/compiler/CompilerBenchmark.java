@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Measures {@link FeatureProcessor} on a synthetic module generated by
+ * {@link SyntheticFeatures}. For each iteration it reports the time of the whole
+ * compilation, the time spent in the processor and in each of its phases, and peak
+ * heap usage. Run it with
+ * <pre>
+ * ./gradlew :featured-compiler:benchmark -PbenchmarkArgs="features=5000 depth=4"
+ * </pre>
+ * Supported arguments with their default values are: features=1000, events=5,
+ * parameters=2, depth=3, library=0.2, warmup=2, iterations=5, dispatchMode=classes
+ * and subscriberIndex=true.
+ */
+public final class CompilerBenchmark {
+
+    private static final double NANOS_IN_MILLIS = 1000000d;
+    private static final double BYTES_IN_MB = 1024d * 1024d;
+
+    private final Map<String, String> mArgs;
+    private final SyntheticFeatures mFeatures;
+    private final JavaCompiler mCompiler;
+    private final File mWorkDir;
+
+    private CompilerBenchmark(Map<String, String> args) throws IOException {
+        mArgs = args;
+        mFeatures = new SyntheticFeatures(
+                intArg("features", 1000), intArg("events", 5), intArg("parameters", 2),
+                intArg("depth", 3), Double.parseDouble(arg("library", "0.2")));
+        mCompiler = ToolProvider.getSystemJavaCompiler();
+        mWorkDir = File.createTempFile("featured-benchmark", "");
+        if (!mWorkDir.delete() || !mWorkDir.mkdirs()) {
+            throw new IOException("Cannot create directory " + mWorkDir);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = new LinkedHashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index < 1) {
+                throw new IllegalArgumentException("Expected key=value argument: " + arg);
+            }
+            arguments.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+
+        CompilerBenchmark benchmark = new CompilerBenchmark(arguments);
+        try {
+            benchmark.run();
+        } finally {
+            delete(benchmark.mWorkDir);
+        }
+    }
+
+    private void run() throws IOException {
+        System.out.println("Synthetic module: " + mFeatures);
+
+        File libraryDir = new File(mWorkDir, "library");
+        if (!mFeatures.getLibrarySources().isEmpty()) {
+            compile(mFeatures.getLibrarySources(), libraryDir, null, false);
+        }
+
+        int warmup = intArg("warmup", 2);
+        int iterations = intArg("iterations", 5);
+
+        System.out.println("Times in ms, compilation runs with -proc:only");
+        StringBuilder header = new StringBuilder(
+                String.format("%-10s%10s%10s", "", "compile", "processor"));
+        for (int phase = 0; phase < ProcessorStats.PHASE_COUNT; phase++) {
+            header.append(String.format("%" + columnWidth(phase) + "s",
+                    ProcessorStats.getPhaseName(phase)));
+        }
+        header.append(String.format("%12s", "heap, MB"));
+        System.out.println(header);
+
+        double[] sums = new double[ProcessorStats.PHASE_COUNT + 3];
+        for (int i = 0; i < warmup + iterations; i++) {
+            boolean measured = i >= warmup;
+            double[] values = iterate(libraryDir);
+            if (measured) {
+                for (int j = 0; j < values.length; j++) {
+                    sums[j] += values[j];
+                }
+            }
+            print(measured ? "run " + (i - warmup + 1) : "warmup " + (i + 1), values);
+        }
+        for (int j = 0; j < sums.length; j++) {
+            sums[j] /= iterations;
+        }
+        print("mean", sums);
+    }
+
+    private double[] iterate(File libraryDir) throws IOException {
+        File outputDir = new File(mWorkDir, "app");
+        delete(outputDir);
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        ProcessorStats stats = new ProcessorStats();
+        long startNanos = System.nanoTime();
+        compile(mFeatures.getAppSources(), outputDir, libraryDir, true, stats);
+        long compileNanos = System.nanoTime() - startNanos;
+
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+
+        double[] values = new double[ProcessorStats.PHASE_COUNT + 3];
+        values[0] = compileNanos / NANOS_IN_MILLIS;
+        values[1] = stats.getTotalNanos() / NANOS_IN_MILLIS;
+        for (int phase = 0; phase < ProcessorStats.PHASE_COUNT; phase++) {
+            values[phase + 2] = stats.getPhaseNanos(phase) / NANOS_IN_MILLIS;
+        }
+        values[values.length - 1] = peakHeapBytes / BYTES_IN_MB;
+        return values;
+    }
+
+    private void compile(List<JavaFileObject> sources, File outputDir,
+                         File libraryDir, boolean processOnly) throws IOException {
+        compile(sources, outputDir, libraryDir, processOnly, new ProcessorStats());
+    }
+
+    private void compile(List<JavaFileObject> sources, File outputDir, File libraryDir,
+                         boolean processOnly, ProcessorStats stats) throws IOException {
+        File classesDir = new File(outputDir, "classes");
+        File generatedDir = new File(outputDir, "generated");
+        if (!classesDir.mkdirs() || !generatedDir.mkdirs()) {
+            throw new IOException("Cannot create directories in " + outputDir);
+        }
+
+        List<File> classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(new File(entry));
+        }
+        if (libraryDir != null) {
+            classpath.add(new File(libraryDir, "classes"));
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = mCompiler.getStandardFileManager(
+                diagnostics, null, Charset.forName("UTF-8"));
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT,
+                Collections.singletonList(classesDir));
+        fileManager.setLocation(StandardLocation.SOURCE_OUTPUT,
+                Collections.singletonList(generatedDir));
+
+        List<String> options = new ArrayList<>(Arrays.asList(
+                "-nowarn",
+                "-A" + FeatureProcessor.OPTION_DISPATCH_MODE + "=" + arg("dispatchMode",
+                        FeatureProcessor.DISPATCH_MODE_CLASSES),
+                "-A" + FeatureProcessor.OPTION_SUBSCRIBER_INDEX + "=" + arg("subscriberIndex",
+                        "true")));
+        if (processOnly) {
+            options.add("-proc:only");
+        }
+
+        JavaCompiler.CompilationTask task = mCompiler.getTask(
+                null, fileManager, diagnostics, options, null, sources);
+        task.setProcessors(Collections.singletonList(new FeatureProcessor(stats)));
+        boolean success = task.call();
+        fileManager.close();
+
+        if (!success) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    System.err.println(diagnostic);
+                }
+            }
+            throw new IllegalStateException("Compilation of synthetic module failed.");
+        }
+    }
+
+    private static void print(String label, double[] values) {
+        StringBuilder line = new StringBuilder(String.format("%-10s%10.1f%10.1f",
+                label, values[0], values[1]));
+        for (int phase = 0; phase < ProcessorStats.PHASE_COUNT; phase++) {
+            line.append(String.format("%" + columnWidth(phase) + ".1f", values[phase + 2]));
+        }
+        line.append(String.format("%12.1f", values[values.length - 1]));
+        System.out.println(line);
+    }
+
+    private static int columnWidth(int phase) {
+        return Math.max(10, ProcessorStats.getPhaseName(phase).length() + 2);
+    }
+
+    private String arg(String name, String defaultValue) {
+        String value = mArgs.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private int intArg(String name, int defaultValue) {
+        return Integer.parseInt(arg(name, String.valueOf(defaultValue)));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IllegalStateException("Cannot delete " + file);
+        }
+    }
+
+}
@@ -49,30 +49,76 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Application> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Application context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Application context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart() {",
-                        "        dispatch(new OnStartEvent());",
+                        "        dispatch(OnStartEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnStartEvent INSTANCE = new OnStartEvent();",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "        if (feature instanceof TestFeature) {",
                         "            ((TestFeature) feature).onStart();",
-                        "        }",
                         "    }",
                         "}"
                 );
@@ -104,30 +150,76 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class CustomTestFeatureHost extends FeatureHost<CustomTestFeatureHost, Application> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public CustomTestFeatureHost(@NotNull Application context) {",
                         "        super(context);",
                         "    }",
+                        "    public CustomTestFeatureHost(@NotNull Application context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public CustomTestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public CustomTestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public CustomTestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public CustomTestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> CustomTestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public CustomTestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart() {",
-                        "        dispatch(new OnStartEvent());",
+                        "        dispatch(OnStartEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnStartEvent INSTANCE = new OnStartEvent();",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "        if (feature instanceof TestFeature) {",
                         "            ((TestFeature) feature).onStart();",
-                        "        }",
                         "    }",
                         "}"
                 );
@@ -162,40 +254,94 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart(long time, boolean valid, int count, Object state) {",
-                        "        dispatch(new OnStartEvent(time, valid, count, state));",
+                        "        OnStartEvent event = obtainEvent(OnStartEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnStartEvent();",
+                        "        }",
+                        "        dispatch(event.init(time, valid, count, state));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
-                        "        private final long mTime;",
-                        "        private final boolean mValid;",
-                        "        private final int mCount;",
-                        "        private final Object mState;",
-                        "        OnStartEvent(long time, boolean valid, int count, Object state) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private long mTime;",
+                        "        private boolean mValid;",
+                        "        private int mCount;",
+                        "        private Object mState;",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnStartEvent init(long time, boolean valid, int count, Object state) {",
                         "            mTime = time;",
                         "            mValid = valid;",
                         "            mCount = count;",
                         "            mState = state;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "                ((TestFeature) feature).onStart(mTime, mValid, mCount, mState);",
-                        "            }",
+                        "            ((TestFeature) feature).onStart(mTime, mValid, mCount, mState);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mState = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
@@ -232,35 +378,89 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import java.util.List;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart(List<String> names) {",
-                        "        dispatch(new OnStartEvent(names));",
+                        "        OnStartEvent event = obtainEvent(OnStartEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnStartEvent();",
+                        "        }",
+                        "        dispatch(event.init(names));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
-                        "        private final List<String> mNames;",
-                        "        OnStartEvent(List<String> names) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private List<String> mNames;",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnStartEvent init(List<String> names) {",
                         "            mNames = names;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "                ((TestFeature) feature).onStart(mNames);",
-                        "            }",
+                        "            ((TestFeature) feature).onStart(mNames);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mNames = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
@@ -293,33 +493,87 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart(FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
-                        "        dispatch(new OnStartEvent(onDispatchCompleted));",
+                        "        OnStartEvent event = obtainEvent(OnStartEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnStartEvent();",
+                        "        }",
+                        "        dispatch(event.init(onDispatchCompleted));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
-                        "        OnStartEvent(FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnStartEvent init(FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
                         "            mOnDispatchCompleted = onDispatchCompleted;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "               ((TestFeature) feature).onStart();",
-                        "            }",
+                        "            ((TestFeature) feature).onStart();",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mOnDispatchCompleted = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
@@ -354,35 +608,89 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart(int time, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
-                        "        dispatch(new OnStartEvent(time, onDispatchCompleted));",
+                        "        OnStartEvent event = obtainEvent(OnStartEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnStartEvent();",
+                        "        }",
+                        "        dispatch(event.init(time, onDispatchCompleted));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
-                        "        private final int mTime;",
-                        "        OnStartEvent(int time, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private int mTime;",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnStartEvent init(int time, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
                         "            mTime = time;",
                         "            mOnDispatchCompleted = onDispatchCompleted;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "                ((TestFeature) feature).onStart(mTime);",
-                        "            }",
+                        "            ((TestFeature) feature).onStart(mTime);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mOnDispatchCompleted = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
@@ -419,36 +727,90 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
                         "import org.jetbrains.annotations.Nullable;",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnStart(@NotNull String event, @Nullable Object data) {",
-                        "        dispatch(new OnStartEvent(event, data));",
+                        "        OnStartEvent event1 = obtainEvent(OnStartEvent.ID);",
+                        "        if (event1 == null) {",
+                        "            event1 = new OnStartEvent();",
+                        "        }",
+                        "        dispatch(event1.init(event, data));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnStartEvent extends FeatureHost.Event {",
-                        "        private final @NotNull String mEvent;",
-                        "        private final @Nullable Object mData;",
-                        "        OnStartEvent(@NotNull String event, @Nullable Object data) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private String mEvent;",
+                        "        private Object mData;",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnStartEvent init(@NotNull String event, @Nullable Object data) {",
                         "            mEvent = event;",
                         "            mData = data;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "                ((TestFeature) feature).onStart(mEvent, mData);",
-                        "            }",
+                        "            ((TestFeature) feature).onStart(mEvent, mData);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mEvent = null;",
+                        "            mData = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
@@ -462,109 +824,1656 @@ public class FeatureProcessorTests {
     }
 
     @Test
-    public void checkOnEventErrorInheritFeature() throws Exception {
-
-        JavaFileObject source = JavaFileObjects
-                .forSourceLines("de.halfbit.featured.test.TestFeature",
-                        "",
-                        "package de.halfbit.featured.test;",
-                        "import de.halfbit.featured.FeatureEvent;",
-                        "import de.halfbit.featured.Feature;",
-                        "public class TestFeature {",
-                        "    @FeatureEvent protected void onStart() { }",
-                        "}"
-                );
-
-        assertAbout(javaSource()).that(source)
-                .processedWith(new FeatureProcessor())
-                .failsToCompile()
-                .withErrorContaining("must inherit from");
-    }
-
-    @Test
-    public void checkOnEventErrorExpectReturnVoid() throws Exception {
+    public void checkOnEventInBackground() throws Exception {
 
         JavaFileObject source = JavaFileObjects
                 .forSourceLines("de.halfbit.featured.test.TestFeature",
                         "",
                         "package de.halfbit.featured.test;",
-                        "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.EventThread;",
                         "import de.halfbit.featured.FeatureEvent;",
                         "import de.halfbit.featured.Feature;",
                         "",
                         "public class TestFeature extends Feature<TestFeatureHost, Context> {",
-                        "    @FeatureEvent protected boolean onStart() { return true; }",
+                        "    @FeatureEvent(thread = EventThread.BACKGROUND) protected void onSync() { }",
+                        "    @FeatureEvent(thread = EventThread.BACKGROUND, dispatchCompleted = true)",
+                        "    protected void onLoad(String key) { }",
                         "}"
                 );
 
-        assertAbout(javaSource()).that(source)
-                .processedWith(new FeatureProcessor())
-                .failsToCompile()
-                .withErrorContaining("must return void");
-    }
-
-    @Test
-    public void checkOnEventErrorExpectNotPrivate() throws Exception {
-
-        JavaFileObject source = JavaFileObjects
-                .forSourceLines("de.halfbit.featured.test.TestFeature",
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
                         "",
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
-                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
-                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
-                        "    @FeatureEvent private void onStart() { }",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnSyncEvent.ID, feature);",
+                        "            addSubscriber(OnLoadEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnSyncEvent.ID, feature);",
+                        "            addSubscriber(OnLoadEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnSync() {",
+                        "        dispatch(OnSyncEvent.INSTANCE);",
+                        "    }",
+                        "    public void dispatchOnLoad(String key, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
+                        "        dispatch(new OnLoadEvent().init(key, onDispatchCompleted));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnSyncEvent.ID:",
+                        "                return \"TestFeature.onSync\";",
+                        "            case OnLoadEvent.ID:",
+                        "                return \"TestFeature.onLoad\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnSyncEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnSyncEvent INSTANCE = new OnSyncEvent();",
+                        "        OnSyncEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onSync();",
+                        "        }",
+                        "        @Override protected boolean isBackground() {",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "    static final class OnLoadEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private String mKey;",
+                        "        OnLoadEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnLoadEvent init(String key, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
+                        "            mKey = key;",
+                        "            mOnDispatchCompleted = onDispatchCompleted;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onLoad(mKey);",
+                        "        }",
+                        "        @Override protected boolean isBackground() {",
+                        "            return true;",
+                        "        }",
+                        "    }",
                         "}"
                 );
 
         assertAbout(javaSource()).that(source)
                 .processedWith(new FeatureProcessor())
-                .failsToCompile()
-                .withErrorContaining("must not be private");
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
     }
 
     @Test
-    public void checkOnEventErrorExpectNotStatic() throws Exception {
+    public void checkOnEventPostable() throws Exception {
 
         JavaFileObject source = JavaFileObjects
                 .forSourceLines("de.halfbit.featured.test.TestFeature",
                         "",
                         "package de.halfbit.featured.test;",
-                        "",
                         "import android.content.Context;",
                         "import de.halfbit.featured.FeatureEvent;",
                         "import de.halfbit.featured.Feature;",
                         "",
                         "public class TestFeature extends Feature<TestFeatureHost, Context> {",
-                        "    @FeatureEvent static void onStart() { }",
+                        "    @FeatureEvent(postable = true) protected void onTick() { }",
+                        "    @FeatureEvent(postable = true) protected void onProgress(int value, Object tag) { }",
                         "}"
                 );
 
-        assertAbout(javaSource()).that(source)
-                .processedWith(new FeatureProcessor())
-                .failsToCompile()
-                .withErrorContaining("must not be static");
-    }
-
-    @Test
-    public void checkFeatureInheritance() throws Exception {
-
-        JavaFileObject source = JavaFileObjects
-                .forSourceLines("de.halfbit.featured.test.TestFeatures",
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
                         "",
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
-                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
-                        "class FeatureA<FH extends FeatureAHost, C extends Context> extends Feature<FH, C> {",
-                        "    @FeatureEvent protected void onMessageA() { }",
-                        "}",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnTick() {",
+                        "        dispatch(OnTickEvent.INSTANCE);",
+                        "    }",
+                        "    public void postOnTick() {",
+                        "        post(new OnTickEvent());",
+                        "    }",
+                        "    public void dispatchOnProgress(int value, Object tag) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatch(event.init(value, tag));",
+                        "    }",
+                        "    public void postOnProgress(int value, Object tag) {",
+                        "        post(new OnProgressEvent().init(value, tag));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnTickEvent.ID:",
+                        "                return \"TestFeature.onTick\";",
+                        "            case OnProgressEvent.ID:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnTickEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnTickEvent INSTANCE = new OnTickEvent();",
+                        "        OnTickEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onTick();",
+                        "        }",
+                        "    }",
+                        "    static final class OnProgressEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private int mValue;",
+                        "        private Object mTag;",
+                        "        OnProgressEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnProgressEvent init(int value, Object tag) {",
+                        "            mValue = value;",
+                        "            mTag = tag;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onProgress(mValue, mTag);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mTag = null;",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventWhenIdle() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(idle = true) protected void onTick() { }",
+                        "    @FeatureEvent(idle = true, idleTimeout = 500) protected void onProgress(int value, Object tag) { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnTick() {",
+                        "        dispatch(OnTickEvent.INSTANCE);",
+                        "    }",
+                        "    public void dispatchOnTickWhenIdle() {",
+                        "        dispatchWhenIdle(OnTickEvent.INSTANCE, 0);",
+                        "    }",
+                        "    public void dispatchOnProgress(int value, Object tag) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatch(event.init(value, tag));",
+                        "    }",
+                        "    public void dispatchOnProgressWhenIdle(int value, Object tag) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatchWhenIdle(event.init(value, tag), 500);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnTickEvent.ID:",
+                        "                return \"TestFeature.onTick\";",
+                        "            case OnProgressEvent.ID:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnTickEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnTickEvent INSTANCE = new OnTickEvent();",
+                        "        OnTickEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onTick();",
+                        "        }",
+                        "    }",
+                        "    static final class OnProgressEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private int mValue;",
+                        "        private Object mTag;",
+                        "        OnProgressEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnProgressEvent init(int value, Object tag) {",
+                        "            mValue = value;",
+                        "            mTag = tag;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onProgress(mValue, mTag);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mTag = null;",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventDelayable() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(delayable = true) protected void onTick() { }",
+                        "    @FeatureEvent(delayable = true) protected void onProgress(int value, Object delayMillis) { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnTick() {",
+                        "        dispatch(OnTickEvent.INSTANCE);",
+                        "    }",
+                        "    @NotNull public FeatureHost.ScheduledEvent dispatchOnTickDelayed(long delayMillis) {",
+                        "        return dispatchDelayed(OnTickEvent.INSTANCE, delayMillis);",
+                        "    }",
+                        "    public void dispatchOnProgress(int value, Object delayMillis) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatch(event.init(value, delayMillis));",
+                        "    }",
+                        "    @NotNull public FeatureHost.ScheduledEvent dispatchOnProgressDelayed(long delayMillis1, int value, Object delayMillis) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        return dispatchDelayed(event.init(value, delayMillis), delayMillis1);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnTickEvent.ID:",
+                        "                return \"TestFeature.onTick\";",
+                        "            case OnProgressEvent.ID:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnTickEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnTickEvent INSTANCE = new OnTickEvent();",
+                        "        OnTickEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onTick();",
+                        "        }",
+                        "    }",
+                        "    static final class OnProgressEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private int mValue;",
+                        "        private Object mDelayMillis;",
+                        "        OnProgressEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnProgressEvent init(int value, Object delayMillis) {",
+                        "            mValue = value;",
+                        "            mDelayMillis = delayMillis;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onProgress(mValue, mDelayMillis);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mDelayMillis = null;",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventTargetable() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(targetable = true) protected void onTick() { }",
+                        "    @FeatureEvent(targetable = true) protected void onProgress(int value, Object tags) { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnTickEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnTick() {",
+                        "        dispatch(OnTickEvent.INSTANCE);",
+                        "    }",
+                        "    public void dispatchOnTickTo(@NotNull String featureName) {",
+                        "        dispatchTo(featureName, new OnTickEvent());",
+                        "    }",
+                        "    public void dispatchOnTickToTagged(int tags) {",
+                        "        dispatchToTagged(tags, new OnTickEvent());",
+                        "    }",
+                        "    public void dispatchOnProgress(int value, Object tags) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatch(event.init(value, tags));",
+                        "    }",
+                        "    public void dispatchOnProgressTo(@NotNull String featureName, int value, Object tags) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatchTo(featureName, event.init(value, tags));",
+                        "    }",
+                        "    public void dispatchOnProgressToTagged(int tags1, int value, Object tags) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatchToTagged(tags1, event.init(value, tags));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnTickEvent.ID:",
+                        "                return \"TestFeature.onTick\";",
+                        "            case OnProgressEvent.ID:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnTickEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnTickEvent INSTANCE = new OnTickEvent();",
+                        "        OnTickEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onTick();",
+                        "        }",
+                        "    }",
+                        "    static final class OnProgressEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private int mValue;",
+                        "        private Object mTags;",
+                        "        OnProgressEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnProgressEvent init(int value, Object tags) {",
+                        "            mValue = value;",
+                        "            mTags = tags;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onProgress(mValue, mTags);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mTags = null;",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventUrgent() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "public class TestFeature extends Feature<TestFeatureHost, Application> {",
+                        "    @FeatureEvent(urgent = true) protected void onStart() { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Application> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
+                        "    public TestFeatureHost(@NotNull Application context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Application context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnStart() {",
+                        "        dispatch(OnStartEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnStartEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnStartEvent INSTANCE = new OnStartEvent();",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onStart();",
+                        "        }",
+                        "        @Override protected boolean isUrgent() {",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventSticky() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "public class TestFeature extends Feature<TestFeatureHost, Application> {",
+                        "    @FeatureEvent(sticky = true) protected void onStart() { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Application> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
+                        "    public TestFeatureHost(@NotNull Application context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Application context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnStartEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnStart() {",
+                        "        dispatch(OnStartEvent.INSTANCE);",
+                        "    }",
+                        "    public void clearStickyOnStart() {",
+                        "        clearStickyEvent(OnStartEvent.ID);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnStartEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnStartEvent INSTANCE = new OnStartEvent();",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onStart();",
+                        "        }",
+                        "        @Override protected boolean isSticky() {",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventCoalesce() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.CoalesceKey;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(coalesce = true) protected void onScroll(int offset) { }",
+                        "    @FeatureEvent(coalesce = true)",
+                        "    protected void onProgress(@CoalesceKey String url, @CoalesceKey int part, long bytes) { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 2;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnScrollEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnScrollEvent.ID, feature);",
+                        "            addSubscriber(OnProgressEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnScroll(int offset) {",
+                        "        OnScrollEvent event = obtainEvent(OnScrollEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnScrollEvent();",
+                        "        }",
+                        "        dispatch(event.init(offset));",
+                        "    }",
+                        "    public void dispatchOnProgress(String url, int part, long bytes) {",
+                        "        OnProgressEvent event = obtainEvent(OnProgressEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnProgressEvent();",
+                        "        }",
+                        "        dispatch(event.init(url, part, bytes));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnScrollEvent.ID:",
+                        "                return \"TestFeature.onScroll\";",
+                        "            case OnProgressEvent.ID:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnScrollEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private int mOffset;",
+                        "        OnScrollEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnScrollEvent init(int offset) {",
+                        "            mOffset = offset;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onScroll(mOffset);",
+                        "        }",
+                        "        @Override protected boolean isCoalescing() {",
+                        "            return true;",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "    static final class OnProgressEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        private String mUrl;",
+                        "        private int mPart;",
+                        "        private long mBytes;",
+                        "        OnProgressEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnProgressEvent init(String url, int part, long bytes) {",
+                        "            mUrl = url;",
+                        "            mPart = part;",
+                        "            mBytes = bytes;",
+                        "            return this;",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onProgress(mUrl, mPart, mBytes);",
+                        "        }",
+                        "        @Override protected boolean isCoalescing() {",
+                        "            return true;",
+                        "        }",
+                        "        @Override protected boolean coalescesWith(@NotNull FeatureHost.Event pendingEvent) {",
+                        "            OnProgressEvent pending = (OnProgressEvent) pendingEvent;",
+                        "            return (mUrl == null ? pending.mUrl == null : mUrl.equals(pending.mUrl))",
+                        "                    && mPart == pending.mPart;",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mUrl = null;",
+                        "            return true;",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkSwitchMode() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.CoalesceKey;",
+                        "import de.halfbit.featured.EventThread;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent protected void onStart() { }",
+                        "    @FeatureEvent(dispatchCompleted = true)",
+                        "    protected void onLoad(String url, boolean cached) { }",
+                        "    @FeatureEvent(coalesce = true, postable = true, urgent = true)",
+                        "    protected void onProgress(double value, @CoalesceKey String url) { }",
+                        "    @FeatureEvent(thread = EventThread.BACKGROUND)",
+                        "    protected void onSave(Object data) { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    static final int EVENT_ON_START = FeatureHost.EVENT_COUNT;",
+                        "    static final int EVENT_ON_LOAD = FeatureHost.EVENT_COUNT + 1;",
+                        "    static final int EVENT_ON_PROGRESS = FeatureHost.EVENT_COUNT + 2;",
+                        "    static final int EVENT_ON_SAVE = FeatureHost.EVENT_COUNT + 3;",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 4;",
+                        "    public TestFeatureHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(EVENT_ON_START, feature);",
+                        "            addSubscriber(EVENT_ON_LOAD, feature);",
+                        "            addSubscriber(EVENT_ON_PROGRESS, feature);",
+                        "            addSubscriber(EVENT_ON_SAVE, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(EVENT_ON_START, feature);",
+                        "            addSubscriber(EVENT_ON_LOAD, feature);",
+                        "            addSubscriber(EVENT_ON_PROGRESS, feature);",
+                        "            addSubscriber(EVENT_ON_SAVE, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnStart() {",
+                        "        FeatureHost.EventRecord event = obtainEvent(EVENT_ON_START);",
+                        "        if (event == null) {",
+                        "            event = new FeatureHost.EventRecord(this, EVENT_ON_START, 0, 0, 0, 0, 0);",
+                        "        }",
+                        "        dispatch(event);",
+                        "    }",
+                        "    public void dispatchOnLoad(String url, boolean cached, FeatureHost.OnDispatchCompleted onDispatchCompleted) {",
+                        "        FeatureHost.EventRecord event = obtainEvent(EVENT_ON_LOAD);",
+                        "        if (event == null) {",
+                        "            event = new FeatureHost.EventRecord(this, EVENT_ON_LOAD, 0, 1, 1, 0, 0);",
+                        "        }",
+                        "        event.mObjects[0] = url;",
+                        "        event.mLongs[0] = cached ? 1 : 0;",
+                        "        event.setOnDispatchCompleted(onDispatchCompleted);",
+                        "        dispatch(event);",
+                        "    }",
+                        "    public void dispatchOnProgress(double value, String url) {",
+                        "        FeatureHost.EventRecord event = obtainEvent(EVENT_ON_PROGRESS);",
+                        "        if (event == null) {",
+                        "            event = new FeatureHost.EventRecord(this, EVENT_ON_PROGRESS, FeatureHost.EventRecord.COALESCING | FeatureHost.EventRecord.URGENT, 1, 1, 0, 1);",
+                        "        }",
+                        "        event.mLongs[0] = Double.doubleToRawLongBits(value);",
+                        "        event.mObjects[0] = url;",
+                        "        dispatch(event);",
+                        "    }",
+                        "    public void postOnProgress(double value, String url) {",
+                        "        FeatureHost.EventRecord event = new FeatureHost.EventRecord(this, EVENT_ON_PROGRESS, FeatureHost.EventRecord.COALESCING | FeatureHost.EventRecord.URGENT, 1, 1, 0, 1);",
+                        "        event.mLongs[0] = Double.doubleToRawLongBits(value);",
+                        "        event.mObjects[0] = url;",
+                        "        post(event);",
+                        "    }",
+                        "    public void dispatchOnSave(Object data) {",
+                        "        FeatureHost.EventRecord event = new FeatureHost.EventRecord(this, EVENT_ON_SAVE, FeatureHost.EventRecord.BACKGROUND, 0, 1, 0, 0);",
+                        "        event.mObjects[0] = data;",
+                        "        dispatch(event);",
+                        "    }",
+                        "    @Override protected void dispatchRecord(@NotNull FeatureHost.EventRecord event, @NotNull Feature feature) {",
+                        "        switch (event.getEventId()) {",
+                        "            case EVENT_ON_START:",
+                        "                ((TestFeature) feature).onStart();",
+                        "                break;",
+                        "            case EVENT_ON_LOAD:",
+                        "                ((TestFeature) feature).onLoad((String) event.mObjects[0], event.mLongs[0] != 0);",
+                        "                break;",
+                        "            case EVENT_ON_PROGRESS:",
+                        "                ((TestFeature) feature).onProgress(Double.longBitsToDouble(event.mLongs[0]), (String) event.mObjects[0]);",
+                        "                break;",
+                        "            case EVENT_ON_SAVE:",
+                        "                ((TestFeature) feature).onSave(event.mObjects[0]);",
+                        "                break;",
+                        "            default:",
+                        "                super.dispatchRecord(event, feature);",
+                        "        }",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case EVENT_ON_START:",
+                        "                return \"TestFeature.onStart\";",
+                        "            case EVENT_ON_LOAD:",
+                        "                return \"TestFeature.onLoad\";",
+                        "            case EVENT_ON_PROGRESS:",
+                        "                return \"TestFeature.onProgress\";",
+                        "            case EVENT_ON_SAVE:",
+                        "                return \"TestFeature.onSave\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .withCompilerOptions("-Afeatured.dispatchMode=switch")
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkSwitchModeErrorUnknownMode() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .withCompilerOptions("-Afeatured.dispatchMode=table")
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("Unknown value of option featured.dispatchMode: table");
+    }
+
+    @Test
+    public void checkSubscriberIndex() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "public class TestFeature extends Feature<TestFeatureHost, Application> {",
+                        "    @FeatureEvent protected void onStart() { }",
+                        "    @FeatureEvent protected void onStop() { }",
+                        "    @FeatureEvent protected void onDestroy() { onStop(); }",
+                        "    public static class StartFeature extends TestFeature {",
+                        "        @Override protected void onStart() { }",
+                        "    }",
+                        "    public static class SilentFeature extends TestFeature { }",
+                        "    public static class SilentStartFeature extends StartFeature { }",
+                        "    public static abstract class AbstractFeature extends TestFeature { }",
+                        "    private static class PrivateFeature extends TestFeature { }",
+                        "}"
+                );
+
+        JavaFileObject expectedSource = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatureHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Application> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 3;",
+                        "    public TestFeatureHost(@NotNull Application context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public TestFeatureHost(@NotNull Application context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            Class<? extends Feature> featureClass = feature.getClass();",
+                        "            if (featureClass != TestFeature.SilentFeature.class) {",
+                        "                addSubscriber(OnStartEvent.ID, feature);",
+                        "            }",
+                        "            if (featureClass != TestFeature.StartFeature.class",
+                        "                    && featureClass != TestFeature.SilentFeature.class",
+                        "                    && featureClass != TestFeature.SilentStartFeature.class) {",
+                        "                addSubscriber(OnStopEvent.ID, feature);",
+                        "            }",
+                        "            addSubscriber(OnDestroyEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            if (featureClass != TestFeature.SilentFeature.class) {",
+                        "                addSubscriber(OnStartEvent.ID, feature);",
+                        "            }",
+                        "            if (featureClass != TestFeature.StartFeature.class",
+                        "                    && featureClass != TestFeature.SilentFeature.class",
+                        "                    && featureClass != TestFeature.SilentStartFeature.class) {",
+                        "                addSubscriber(OnStopEvent.ID, feature);",
+                        "            }",
+                        "            addSubscriber(OnDestroyEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnStart() {",
+                        "        dispatch(OnStartEvent.INSTANCE);",
+                        "    }",
+                        "    public void dispatchOnStop() {",
+                        "        dispatch(OnStopEvent.INSTANCE);",
+                        "    }",
+                        "    public void dispatchOnDestroy() {",
+                        "        dispatch(OnDestroyEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnStartEvent.ID:",
+                        "                return \"TestFeature.onStart\";",
+                        "            case OnStopEvent.ID:",
+                        "                return \"TestFeature.onStop\";",
+                        "            case OnDestroyEvent.ID:",
+                        "                return \"TestFeature.onDestroy\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnStartEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnStartEvent INSTANCE = new OnStartEvent();",
+                        "        OnStartEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onStart();",
+                        "        }",
+                        "    }",
+                        "    static final class OnStopEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 1;",
+                        "        static final OnStopEvent INSTANCE = new OnStopEvent();",
+                        "        OnStopEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onStop();",
+                        "        }",
+                        "    }",
+                        "    static final class OnDestroyEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT + 2;",
+                        "        static final OnDestroyEvent INSTANCE = new OnDestroyEvent();",
+                        "        OnDestroyEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override protected void dispatch(@NotNull Feature feature) {",
+                        "            ((TestFeature) feature).onDestroy();",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test
+    public void checkOnEventErrorInheritFeature() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "public class TestFeature {",
+                        "    @FeatureEvent protected void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must inherit from");
+    }
+
+    @Test
+    public void checkOnEventErrorExpectReturnVoid() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent protected boolean onStart() { return true; }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must return void");
+    }
+
+    @Test
+    public void checkOnEventErrorExpectNotPrivate() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent private void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must not be private");
+    }
+
+    @Test
+    public void checkOnEventErrorExpectNotStatic() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent static void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must not be static");
+    }
+
+    @Test
+    public void checkOnEventErrorCoalesceDispatchCompleted() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(coalesce = true, dispatchCompleted = true) void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must not combine coalesce and dispatchCompleted");
+    }
+
+    @Test
+    public void checkOnEventErrorCoalesceKeyWithoutCoalesce() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.CoalesceKey;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent void onStart(@CoalesceKey int key) { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("parameter key requires");
+    }
+
+    @Test
+    public void checkOnEventErrorIdleTimeoutWithoutIdle() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(idleTimeout = 100) void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("requires idle = true for idleTimeout");
+    }
+
+    @Test
+    public void checkOnEventErrorStickyInBackground() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeature",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.EventThread;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "public class TestFeature extends Feature<TestFeatureHost, Context> {",
+                        "    @FeatureEvent(sticky = true, thread = EventThread.BACKGROUND) void onStart() { }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .failsToCompile()
+                .withErrorContaining("must not combine sticky and background thread");
+    }
+
+    @Test
+    public void checkFeatureInheritance() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatures",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "class FeatureA<FH extends FeatureAHost, C extends Context> extends Feature<FH, C> {",
+                        "    @FeatureEvent protected void onMessageA() { }",
+                        "}",
                         "",
                         "class FeatureB extends FeatureA<FeatureBHost, Context> {",
                         "    @FeatureEvent protected void onMessageB() { }",
@@ -577,31 +2486,71 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public abstract class FeatureAHost<FH extends FeatureAHost, C extends Context> extends FeatureHost<FH, C> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public FeatureHostA(@NotNull C context) {",
                         "        super(context);",
                         "    }",
+                        "    public FeatureHostA(@NotNull C context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public FH with(@NotNull FeatureA feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return (FH) this;",
                         "    }",
                         "    @NotNull public FH with(@NotNull FeatureA feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return (FH) this;",
                         "    }",
+                        "    @NotNull public FH with(@NotNull FeatureA feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return (FH) this;",
+                        "    }",
+                        "    @NotNull public FH without(@NotNull FeatureA feature) {",
+                        "        removeFeature(feature);",
+                        "        return (FH) this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof FeatureA) {",
+                        "            Class<? extends Feature> featureClass = feature.getClass();",
+                        "            if (featureClass != FeatureB.class) {",
+                        "                addSubscriber(OnMessageAEvent.ID, feature);",
+                        "            }",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (FeatureA.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnMessageAEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnMessageA() {",
-                        "        dispatch(new OnMessageAEvent());",
+                        "        dispatch(OnMessageAEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnMessageAEvent.ID:",
+                        "                return \"FeatureA.onMessageA\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnMessageAEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnMessageAEvent INSTANCE = new OnMessageAEvent();",
+                        "        OnMessageAEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override",
                         "        protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof FeatureA) {",
-                        "                ((FeatureA) feature).onMessageA();",
-                        "            }",
+                        "            ((FeatureA) feature).onMessageA();",
                         "        }",
                         "    }",
                         "}"
@@ -613,31 +2562,77 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class FeatureBHost extends FeatureAHost<FeatureBHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureAHost.EVENT_COUNT + 1;",
                         "    public FeatureBHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public FeatureBHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public FeatureBHost with(@NotNull FeatureB feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public FeatureBHost with(@NotNull FeatureB feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public FeatureBHost with(@NotNull FeatureB feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureBHost with(@NotNull FeatureProvider<? extends FeatureB> provider) {",
+                        "        addLazyFeature(provider, FeatureB.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends FeatureB> FeatureBHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureBHost without(@NotNull FeatureB feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof FeatureB) {",
+                        "            addSubscriber(OnMessageBEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (FeatureB.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnMessageBEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnMessageB() {",
-                        "        dispatch(new OnMessageBEvent());",
+                        "        dispatch(OnMessageBEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnMessageBEvent.ID:",
+                        "                return \"FeatureB.onMessageB\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnMessageBEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureAHost.EVENT_COUNT;",
+                        "        static final OnMessageBEvent INSTANCE = new OnMessageBEvent();",
+                        "        OnMessageBEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override",
                         "        protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof FeatureB) {",
-                        "                ((FeatureB) feature).onMessageB();",
-                        "            }",
+                        "            ((FeatureB) feature).onMessageB();",
                         "        }",
                         "    }",
                         "}"
@@ -651,6 +2646,121 @@ public class FeatureProcessorTests {
 
     }
 
+    @Test
+    public void checkFeatureInheritanceThreeLevels() throws Exception {
+
+        JavaFileObject source = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.TestFeatures",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.FeatureEvent;",
+                        "import de.halfbit.featured.Feature;",
+                        "",
+                        "class FeatureA<FH extends FeatureAHost, C extends Context> extends Feature<FH, C> {",
+                        "    @FeatureEvent protected void onMessageA() { }",
+                        "}",
+                        "",
+                        "class FeatureB<FH extends FeatureBHost, C extends Context> extends FeatureA<FH, C> {",
+                        "    @FeatureEvent protected void onMessageB() { }",
+                        "}",
+                        "",
+                        "class FeatureC extends FeatureB<FeatureCHost, Context> {",
+                        "    @FeatureEvent protected void onMessageC() { }",
+                        "}"
+                );
+
+        JavaFileObject expectedFeatureHostC = JavaFileObjects
+                .forSourceLines("de.halfbit.featured.test.FeatureCHost",
+                        "",
+                        "package de.halfbit.featured.test;",
+                        "",
+                        "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
+                        "import de.halfbit.featured.Feature;",
+                        "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
+                        "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
+                        "",
+                        "public class FeatureCHost extends FeatureBHost<FeatureCHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureBHost.EVENT_COUNT + 1;",
+                        "    public FeatureCHost(@NotNull Context context) {",
+                        "        super(context);",
+                        "    }",
+                        "    public FeatureCHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
+                        "    @NotNull public FeatureCHost with(@NotNull FeatureC feature) {",
+                        "        addFeature(feature, null);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureCHost with(@NotNull FeatureC feature, @NotNull String featureName) {",
+                        "        addFeature(feature, featureName);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureCHost with(@NotNull FeatureC feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureCHost with(@NotNull FeatureProvider<? extends FeatureC> provider) {",
+                        "        addLazyFeature(provider, FeatureC.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends FeatureC> FeatureCHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureCHost without(@NotNull FeatureC feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof FeatureC) {",
+                        "            addSubscriber(OnMessageCEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (FeatureC.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnMessageCEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    public void dispatchOnMessageC() {",
+                        "        dispatch(OnMessageCEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnMessageCEvent.ID:",
+                        "                return \"FeatureC.onMessageC\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
+                        "    }",
+                        "    static final class OnMessageCEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureBHost.EVENT_COUNT;",
+                        "        static final OnMessageCEvent INSTANCE = new OnMessageCEvent();",
+                        "        OnMessageCEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        @Override",
+                        "        protected void dispatch(@NotNull Feature feature) {",
+                        "            ((FeatureC) feature).onMessageC();",
+                        "        }",
+                        "    }",
+                        "}"
+                );
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedFeatureHostC);
+
+    }
+
     @Test
     public void checkFeatureInheritanceFeatureWithGenerics() throws Exception {
 
@@ -672,30 +2782,67 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.app.Application;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public abstract class FeatureAHost<FH extends FeatureAHost, C extends Application> extends FeatureHost<FH, C> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public FeatureHostA(@NotNull C context) {",
                         "        super(context);",
                         "    }",
+                        "    public FeatureHostA(@NotNull C context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public FH with(@NotNull FeatureA feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return (FH) this;",
                         "    }",
                         "    @NotNull public FH with(@NotNull FeatureA feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return (FH) this;",
                         "    }",
+                        "    @NotNull public FH with(@NotNull FeatureA feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return (FH) this;",
+                        "    }",
+                        "    @NotNull public FH without(@NotNull FeatureA feature) {",
+                        "        removeFeature(feature);",
+                        "        return (FH) this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof FeatureA) {",
+                        "            addSubscriber(OnMessageAEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (FeatureA.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnMessageAEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnMessageA() {",
-                        "        dispatch(new OnMessageAEvent());",
+                        "        dispatch(OnMessageAEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnMessageAEvent.ID:",
+                        "                return \"FeatureA.onMessageA\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnMessageAEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        static final OnMessageAEvent INSTANCE = new OnMessageAEvent();",
+                        "        OnMessageAEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof FeatureA) {",
-                        "                ((FeatureA) feature).onMessageA();",
-                        "            }",
+                        "            ((FeatureA) feature).onMessageA();",
                         "        }",
                         "    }",
                         "}"
@@ -721,6 +2868,7 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.FeatureEvent;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
@@ -736,6 +2884,9 @@ public class FeatureProcessorTests {
                         "    public FeatureAHost(@NotNull C context) {",
                         "        super(context);",
                         "    }",
+                        "    public FeatureAHost(@NotNull C context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "}",
 
                         // this feature needs to be processed and a host needs to be generated
@@ -750,30 +2901,76 @@ public class FeatureProcessorTests {
                         "",
                         "package de.halfbit.featured.test;",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class FeatureBHost extends FeatureAHost<FeatureBHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureAHost.EVENT_COUNT + 1;",
                         "    public FeatureBHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public FeatureBHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public FeatureBHost with(@NotNull FeatureB feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public FeatureBHost with(@NotNull FeatureB feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public FeatureBHost with(@NotNull FeatureB feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureBHost with(@NotNull FeatureProvider<? extends FeatureB> provider) {",
+                        "        addLazyFeature(provider, FeatureB.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends FeatureB> FeatureBHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public FeatureBHost without(@NotNull FeatureB feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof FeatureB) {",
+                        "            addSubscriber(OnMessageBEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (FeatureB.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnMessageBEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnMessageB() {",
-                        "        dispatch(new OnMessageBEvent());",
+                        "        dispatch(OnMessageBEvent.INSTANCE);",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnMessageBEvent.ID:",
+                        "                return \"FeatureB.onMessageB\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnMessageBEvent extends FeatureHost.Event {",
+                        "        static final int ID = FeatureAHost.EVENT_COUNT;",
+                        "        static final OnMessageBEvent INSTANCE = new OnMessageBEvent();",
+                        "        OnMessageBEvent() {",
+                        "            super(ID);",
+                        "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof FeatureB) {",
-                        "                ((FeatureB) feature).onMessageB();",
-                        "            }",
+                        "            ((FeatureB) feature).onMessageB();",
                         "        }",
                         "    }",
                         "}"
@@ -811,36 +3008,91 @@ public class FeatureProcessorTests {
                         "package de.halfbit.featured.test;",
                         "",
                         "import android.content.Context;",
+                        "import de.halfbit.featured.Dispatcher;",
                         "import de.halfbit.featured.Feature;",
                         "import de.halfbit.featured.FeatureHost;",
+                        "import de.halfbit.featured.FeatureProvider;",
                         "import org.jetbrains.annotations.NotNull;",
+                        "import org.jetbrains.annotations.Nullable;",
                         "",
                         "public class TestFeatureHost extends FeatureHost<TestFeatureHost, Context> {",
+                        "    protected static final int EVENT_COUNT = FeatureHost.EVENT_COUNT + 1;",
                         "    public TestFeatureHost(@NotNull Context context) {",
                         "        super(context);",
                         "    }",
+                        "    public TestFeatureHost(@NotNull Context context, @NotNull Dispatcher dispatcher) {",
+                        "        super(context, dispatcher);",
+                        "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature) {",
-                        "        addFeature(feature, feature.getClass().toString());",
+                        "        addFeature(feature, null);",
                         "        return this;",
                         "    }",
                         "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, @NotNull String featureName) {",
                         "        addFeature(feature, featureName);",
                         "        return this;",
                         "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull TestFeature feature, int priority) {",
+                        "        addFeature(feature, null, priority);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost with(@NotNull FeatureProvider<? extends TestFeature> provider) {",
+                        "        addLazyFeature(provider, TestFeature.class);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public <F extends TestFeature> TestFeatureHost with(@NotNull Class<F> featureClass, @NotNull FeatureProvider<F> provider) {",
+                        "        addLazyFeature(provider, featureClass);",
+                        "        return this;",
+                        "    }",
+                        "    @NotNull public TestFeatureHost without(@NotNull TestFeature feature) {",
+                        "        removeFeature(feature);",
+                        "        return this;",
+                        "    }",
+                        "    @Override protected void addSubscriptions(@NotNull Feature feature) {",
+                        "        super.addSubscriptions(feature);",
+                        "        if (feature instanceof TestFeature) {",
+                        "            addSubscriber(OnCreateEvent.ID, feature);",
+                        "        }",
+                        "    }",
+                        "    @Override protected void addLazySubscriptions(@NotNull Feature feature, @NotNull Class<? extends Feature> featureClass) {",
+                        "        super.addLazySubscriptions(feature, featureClass);",
+                        "        if (TestFeature.class.isAssignableFrom(featureClass)) {",
+                        "            addSubscriber(OnCreateEvent.ID, feature);",
+                        "        }",
+                        "    }",
                         "    public void dispatchOnCreate(@NotNull int[] value1, Object[] value2) {",
-                        "        dispatch(new OnCreateEvent(value1, value2));",
+                        "        OnCreateEvent event = obtainEvent(OnCreateEvent.ID);",
+                        "        if (event == null) {",
+                        "            event = new OnCreateEvent();",
+                        "        }",
+                        "        dispatch(event.init(value1, value2));",
+                        "    }",
+                        "    @Nullable @Override protected String getEventName(int eventId) {",
+                        "        switch (eventId) {",
+                        "            case OnCreateEvent.ID:",
+                        "                return \"TestFeature.onCreate\";",
+                        "            default:",
+                        "                return super.getEventName(eventId);",
+                        "        }",
                         "    }",
                         "    static final class OnCreateEvent extends FeatureHost.Event {",
-                        "        private final @NotNull int[] mValue1;",
-                        "        private final Object[] mValue2;",
-                        "        OnCreateEvent(@NotNull int[] value1, Object[] value2) {",
+                        "        static final int ID = FeatureHost.EVENT_COUNT;",
+                        "        private int[] mValue1;",
+                        "        private Object[] mValue2;",
+                        "        OnCreateEvent() {",
+                        "            super(ID);",
+                        "        }",
+                        "        OnCreateEvent init(@NotNull int[] value1, Object[] value2) {",
                         "            mValue1 = value1;",
                         "            mValue2 = value2;",
+                        "            return this;",
                         "        }",
                         "        @Override protected void dispatch(@NotNull Feature feature) {",
-                        "            if (feature instanceof TestFeature) {",
-                        "                ((TestFeature) feature).onCreate(mValue1, mValue2);",
-                        "            }",
+                        "            ((TestFeature) feature).onCreate(mValue1, mValue2);",
+                        "        }",
+                        "        @Override protected boolean recycle() {",
+                        "            mValue1 = null;",
+                        "            mValue2 = null;",
+                        "            return true;",
                         "        }",
                         "    }",
                         "}"
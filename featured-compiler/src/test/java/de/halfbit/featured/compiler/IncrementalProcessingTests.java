@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.compiler;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+@RunWith(JUnit4.class)
+public class IncrementalProcessingTests {
+
+    private static final List<JavaFileObject> SOURCES = Arrays.asList(
+            JavaFileObjects.forSourceLines("de.halfbit.featured.test.BaseFeature",
+                    "package de.halfbit.featured.test;",
+                    "import de.halfbit.featured.FeatureEvent;",
+                    "import de.halfbit.featured.Feature;",
+                    "public class BaseFeature<FH extends BaseFeatureHost, C>",
+                    "        extends Feature<FH, C> {",
+                    "    @FeatureEvent protected void onStart() { }",
+                    "}"),
+            JavaFileObjects.forSourceLines("de.halfbit.featured.test.AppFeature",
+                    "package de.halfbit.featured.test;",
+                    "import android.content.Context;",
+                    "import de.halfbit.featured.FeatureEvent;",
+                    "public class AppFeature extends BaseFeature<AppFeatureHost, Context> {",
+                    "    @FeatureEvent protected void onStop() { }",
+                    "}"),
+            JavaFileObjects.forSourceLines("de.halfbit.featured.test.SilentFeature",
+                    "package de.halfbit.featured.test;",
+                    "public class SilentFeature extends AppFeature {",
+                    "}"),
+            JavaFileObjects.forSourceLines("de.halfbit.featured.test.Unrelated",
+                    "package de.halfbit.featured.test;",
+                    "public class Unrelated {",
+                    "    void onStart() { }",
+                    "}")
+    );
+
+    @Test
+    public void processorIsRegisteredAsDynamic() throws Exception {
+        InputStream stream = getClass().getClassLoader()
+                .getResourceAsStream("META-INF/gradle/incremental.annotation.processors");
+        assertThat(stream).isNotNull();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        try {
+            assertThat(reader.readLine()).isEqualTo(
+                    FeatureProcessor.class.getCanonicalName() + ",dynamic");
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void aggregatingHostsListFeaturesTheyDependOn() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+
+        assertAbout(javaSources()).that(SOURCES)
+                .processedWith(processor)
+                .compilesWithoutError();
+
+        assertThat(processor.getSupportedOptions())
+                .contains("org.gradle.annotation.processing.aggregating");
+        assertThat(processor.mOriginatingElements).containsExactly(
+                "de.halfbit.featured.test.BaseFeatureHost", Arrays.asList(
+                        "de.halfbit.featured.test.BaseFeature",
+                        "de.halfbit.featured.test.AppFeature",
+                        "de.halfbit.featured.test.SilentFeature"),
+                "de.halfbit.featured.test.AppFeatureHost", Arrays.asList(
+                        "de.halfbit.featured.test.AppFeature",
+                        "de.halfbit.featured.test.BaseFeature",
+                        "de.halfbit.featured.test.SilentFeature"));
+    }
+
+    @Test
+    public void isolatingHostsOriginateFromTheirFeatureOnly() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor();
+
+        assertAbout(javaSources()).that(SOURCES)
+                .withCompilerOptions("-Afeatured.subscriberIndex=false")
+                .processedWith(processor)
+                .compilesWithoutError();
+
+        assertThat(processor.getSupportedOptions())
+                .contains("org.gradle.annotation.processing.isolating");
+        assertThat(processor.mOriginatingElements).containsExactly(
+                "de.halfbit.featured.test.BaseFeatureHost", Arrays.asList(
+                        "de.halfbit.featured.test.BaseFeature"),
+                "de.halfbit.featured.test.AppFeatureHost", Arrays.asList(
+                        "de.halfbit.featured.test.AppFeature"));
+    }
+
+    /**
+     * Runs {@link FeatureProcessor} and records originating elements of generated sources.
+     * Only the filer is replaced, because processing environment must remain javac's own
+     * for the processor to look into method bodies.
+     */
+    private static final class RecordingProcessor extends AbstractProcessor {
+
+        final Map<String, List<String>> mOriginatingElements = new LinkedHashMap<>();
+        private final FeatureProcessor mProcessor = new FeatureProcessor();
+
+        @Override public synchronized void init(ProcessingEnvironment env) {
+            super.init(env);
+            mProcessor.init(env);
+            try {
+                Field filerField = FeatureProcessor.class.getDeclaredField("mFiler");
+                filerField.setAccessible(true);
+                filerField.set(mProcessor, newRecordingFiler(env.getFiler()));
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override public Set<String> getSupportedAnnotationTypes() {
+            return mProcessor.getSupportedAnnotationTypes();
+        }
+
+        @Override public Set<String> getSupportedOptions() {
+            return mProcessor.getSupportedOptions();
+        }
+
+        @Override public SourceVersion getSupportedSourceVersion() {
+            return mProcessor.getSupportedSourceVersion();
+        }
+
+        @Override public boolean process(Set<? extends TypeElement> annotations,
+                                         RoundEnvironment env) {
+            return mProcessor.process(annotations, env);
+        }
+
+        private Filer newRecordingFiler(final Filer filer) {
+            return (Filer) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{Filer.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args)
+                                throws Throwable {
+                            if ("createSourceFile".equals(method.getName())) {
+                                List<String> names = new ArrayList<>();
+                                for (Element element : (Element[]) args[1]) {
+                                    names.add(((TypeElement) element)
+                                            .getQualifiedName().toString());
+                                }
+                                mOriginatingElements.put(args[0].toString(), names);
+                            }
+                            try {
+                                return method.invoke(filer, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.compiler;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates sources of a synthetic module for measuring the processor. Features are
+ * organized in chains of {@code depth} features, each extending the previous one. All
+ * but the last feature of a chain are generic. Each concrete feature gets a subclass
+ * overriding one of the inherited events. A share of chains starts with a feature
+ * located in a library, which must be compiled before the module.
+ */
+final class SyntheticFeatures {
+
+    static final String APP_PACKAGE = "synthetic.app";
+    static final String LIBRARY_PACKAGE = "synthetic.library";
+
+    private static final String[] PARAMETER_TYPES = {
+            "int", "String", "long", "java.util.List<String>", "boolean", "double", "Object"
+    };
+
+    private final int mFeatures;
+    private final int mEvents;
+    private final int mParameters;
+    private final int mDepth;
+    private final int mLibraryChains;
+
+    private final List<JavaFileObject> mLibrarySources = new ArrayList<>();
+    private final List<JavaFileObject> mAppSources = new ArrayList<>();
+
+    /**
+     * @param features      number of features declaring events
+     * @param events        number of events declared by each feature
+     * @param parameters    number of parameters of each event
+     * @param depth         number of features in each chain
+     * @param libraryShare  share of chains starting with a library feature, 0..1
+     */
+    SyntheticFeatures(int features, int events, int parameters, int depth,
+                      double libraryShare) {
+        if (features < 1 || events < 1 || parameters < 0 || depth < 1
+                || libraryShare < 0 || libraryShare > 1) {
+            throw new IllegalArgumentException("Unsupported shape of synthetic features.");
+        }
+        mFeatures = features;
+        mEvents = events;
+        mParameters = parameters;
+        mDepth = depth;
+
+        int chains = (features + depth - 1) / depth;
+        mLibraryChains = depth > 1 ? (int) Math.round(chains * libraryShare) : 0;
+
+        int feature = 0;
+        for (int chain = 0; chain < chains; chain++) {
+            int chainDepth = Math.min(depth, features - feature);
+            generateChain(chain, chainDepth, chain < mLibraryChains && chainDepth > 1);
+            feature += chainDepth;
+        }
+    }
+
+    List<JavaFileObject> getLibrarySources() {
+        return mLibrarySources;
+    }
+
+    List<JavaFileObject> getAppSources() {
+        return mAppSources;
+    }
+
+    @Override public String toString() {
+        return String.format("%d features (%d in library), %d events, depth %d, "
+                        + "%d parameters per event", mFeatures, mLibraryChains,
+                mFeatures * mEvents, mDepth, mParameters);
+    }
+
+    private void generateChain(int chain, int chainDepth, boolean libraryBase) {
+        for (int level = 0; level < chainDepth; level++) {
+            boolean inLibrary = libraryBase && level == 0;
+            String packageName = inLibrary ? LIBRARY_PACKAGE : APP_PACKAGE;
+            String name = featureName(chain, level);
+            boolean concrete = level == chainDepth - 1;
+
+            String superClass;
+            if (level == 0) {
+                superClass = "de.halfbit.featured.Feature";
+            } else if (libraryBase && level == 1) {
+                superClass = LIBRARY_PACKAGE + "." + featureName(chain, 0);
+            } else {
+                superClass = featureName(chain, level - 1);
+            }
+
+            StringBuilder source = new StringBuilder()
+                    .append("package ").append(packageName).append(";\n")
+                    .append("import android.content.Context;\n")
+                    .append("import de.halfbit.featured.FeatureEvent;\n");
+            if (concrete) {
+                source.append("public class ").append(name)
+                        .append(" extends ").append(superClass)
+                        .append("<").append(name).append("Host, Context> {\n");
+            } else {
+                source.append("public class ").append(name)
+                        .append("<FH extends ").append(name).append("Host, C extends Context>")
+                        .append(" extends ").append(superClass).append("<FH, C> {\n");
+            }
+            for (int event = 0; event < mEvents; event++) {
+                source.append("    @FeatureEvent protected void ")
+                        .append(eventName(chain, level, event)).append("(")
+                        .append(parameters()).append(") { }\n");
+            }
+            source.append("}\n");
+            addSource(inLibrary, packageName + "." + name, source);
+
+            if (concrete) {
+                // concrete feature not overriding all inherited events
+                String implName = "Feature" + chain + "Impl";
+                StringBuilder impl = new StringBuilder()
+                        .append("package ").append(APP_PACKAGE).append(";\n")
+                        .append("public class ").append(implName)
+                        .append(" extends ").append(name).append(" {\n");
+                if (level > 0) {
+                    impl.append("    @Override protected void ")
+                            .append(eventName(chain, 0, 0)).append("(")
+                            .append(parameters()).append(") { }\n");
+                }
+                impl.append("}\n");
+                addSource(false, APP_PACKAGE + "." + implName, impl);
+            }
+        }
+    }
+
+    private void addSource(boolean inLibrary, String className, StringBuilder source) {
+        JavaFileObject file = JavaFileObjects.forSourceString(className, source.toString());
+        if (inLibrary) {
+            mLibrarySources.add(file);
+        } else {
+            mAppSources.add(file);
+        }
+    }
+
+    private String parameters() {
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < mParameters; i++) {
+            if (i > 0) {
+                parameters.append(", ");
+            }
+            parameters.append(PARAMETER_TYPES[i % PARAMETER_TYPES.length])
+                    .append(" p").append(i);
+        }
+        return parameters.toString();
+    }
+
+    private static String featureName(int chain, int level) {
+        return "Feature" + chain + "L" + level;
+    }
+
+    private static String eventName(int chain, int level, int event) {
+        return "onFeature" + chain + "L" + level + "Event" + event;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured.compiler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+@RunWith(JUnit4.class)
+public class SyntheticFeaturesTests {
+
+    @Test
+    public void checkSyntheticFeaturesCompile() throws Exception {
+        SyntheticFeatures features = new SyntheticFeatures(7, 2, 3, 3, 0);
+        assertThat(features.getLibrarySources()).isEmpty();
+        assertAbout(javaSources()).that(features.getAppSources())
+                .processedWith(new FeatureProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void checkSyntheticFeaturesInLibrary() throws Exception {
+        SyntheticFeatures features = new SyntheticFeatures(6, 1, 0, 3, 0.5);
+        assertThat(features.getLibrarySources()).hasSize(1);
+        assertThat(features.getAppSources()).hasSize(7);
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import android.os.Trace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Trace sink writing sections into the system trace. It is the only class referencing
+ * {@link Trace}, which requires API level 18, and must not be loaded on older devices.
+ *
+ * @author sergej shafarenka
+ */
+final class AndroidTraceSink implements TraceSink {
+
+    @Override
+    public void beginSection(@NotNull String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Dispatcher executing runnables right in the calling thread.
+ *
+ * @author sergej shafarenka
+ */
+final class CallerThreadDispatcher extends Dispatcher {
+
+    static final CallerThreadDispatcher INSTANCE = new CallerThreadDispatcher();
+
+    private CallerThreadDispatcher() {
+    }
+
+    @Override
+    public boolean isDispatchThread() {
+        return true;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable runnable) {
+        runnable.run();
+    }
+
+    @Override
+    public boolean supportsDelayed() {
+        return false;
+    }
+
+    /**
+     * Caller thread dispatcher has no thread of its own, in which it could execute
+     * runnables later.
+     */
+    @Override
+    public void executeDelayed(@NotNull Runnable runnable, long delayMillis) {
+        throw new UnsupportedOperationException(this + " cannot execute delayed runnables");
+    }
+
+    @Override
+    public boolean supportsNextFrame() {
+        return false;
+    }
+
+    /**
+     * Caller thread dispatcher has no frames, thus it cannot defer runnables.
+     */
+    @Override
+    public void executeOnNextFrame(@NotNull Runnable runnable) {
+        throw new UnsupportedOperationException(this + " cannot execute runnables on next frame");
+    }
+
+    @Override
+    public String toString() {
+        return "CallerThread";
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Observer receiving callbacks about events going through a feature host. It can be
+ * used for measuring how long features take to handle an event. Install it with
+ * {@link FeatureHost#setDispatchObserver(DispatchObserver)}.
+ * <p/>
+ * Callbacks are called in the dispatcher thread of the feature host and must return
+ * quickly. Events are passed as generated event instances, whose class identifies
+ * the event type, or as event records for feature hosts generated in switch mode.
+ * Feature hosts reuse event instances after
+ * {@link #onEventCompleted(FeatureHost, Object)}, thus observers must not keep them.
+ * Events delivered in background are only reported as queued.
+ *
+ * @author sergej shafarenka
+ */
+public interface DispatchObserver {
+
+    /**
+     * Called when an event has been put into the queue of the feature host.
+     */
+    void onEventQueued(@NotNull FeatureHost featureHost, @NotNull Object event);
+
+    /**
+     * Called before an event gets dispatched to its first subscribed feature.
+     */
+    void onEventStarted(@NotNull FeatureHost featureHost, @NotNull Object event);
+
+    /**
+     * Called after a feature has handled an event.
+     *
+     * @param featureHost feature host dispatching the event
+     * @param event       dispatched event
+     * @param feature     feature, which has handled the event
+     * @param startNanos  value of {@link System#nanoTime()} before the feature was called
+     * @param endNanos    value of {@link System#nanoTime()} after the feature returned
+     */
+    void onFeatureDispatched(@NotNull FeatureHost featureHost, @NotNull Object event,
+                             @NotNull Feature feature, long startNanos, long endNanos);
+
+    /**
+     * Called after a feature registered with a {@link FeatureProvider} has been
+     * instantiated, right before it receives its first event.
+     *
+     * @param featureHost feature host of the feature
+     * @param feature     instantiated feature
+     * @param startNanos  value of {@link System#nanoTime()} before the provider was called
+     * @param endNanos    value of {@link System#nanoTime()} after the provider returned
+     */
+    void onFeatureInstantiated(@NotNull FeatureHost featureHost, @NotNull Feature feature,
+                               long startNanos, long endNanos);
+
+    /**
+     * Called after an event has been dispatched to all subscribed features and its
+     * {@link FeatureHost.OnDispatchCompleted} callback has been notified.
+     */
+    void onEventCompleted(@NotNull FeatureHost featureHost, @NotNull Object event);
+
+    /**
+     * Called after the queue of a feature host with a frame budget got empty.
+     *
+     * @param featureHost feature host, which has dispatched the burst of events
+     * @param frameCount  number of frames the burst of events was dispatched in
+     * @see FeatureHost#setFrameBudget(long)
+     */
+    void onBurstCompleted(@NotNull FeatureHost featureHost, int frameCount);
+
+}
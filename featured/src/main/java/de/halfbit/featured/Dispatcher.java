@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatcher defines the thread, in which a feature host dispatches its events. Events
+ * are always dispatched serially and in the order of their dispatch calls. Dispatch
+ * methods of a feature host must be called in the thread of its dispatcher. Use
+ * {@link #execute(Runnable)} to dispatch events from other threads.
+ * <p/>
+ * The library provides following dispatchers:
+ * <ul>
+ * <li>{@link #mainThread()} dispatches events in Android's main thread. This is the
+ * default dispatcher of a feature host.</li>
+ * <li>{@link #newSingleThread(String)} dispatches events in its own background thread.</li>
+ * <li>{@link #callerThread()} dispatches events in whichever thread calls dispatch
+ * methods. Use it only if all calls are confined to a single thread.</li>
+ * </ul>
+ *
+ * @author sergej shafarenka
+ */
+public abstract class Dispatcher {
+
+    private final List<DelayedTask> mDelayedTasks = new ArrayList<>(); // guarded by itself
+
+    /**
+     * Returns {@code true} if current thread is the thread, in which this dispatcher
+     * dispatches events.
+     */
+    public abstract boolean isDispatchThread();
+
+    /**
+     * Executes given runnable in the thread of this dispatcher. Runnables are executed
+     * serially in the order they were passed to this method.
+     *
+     * @param runnable runnable to be executed
+     */
+    public abstract void execute(@NotNull Runnable runnable);
+
+    /**
+     * Executes given runnable in the thread of this dispatcher, once the thread has no
+     * other work to do. If the thread stays busy, the runnable is executed after given
+     * timeout anyway. Default implementation executes the runnable right as
+     * {@link #execute(Runnable)} does.
+     *
+     * @param runnable      runnable to be executed
+     * @param timeoutMillis maximum delay in milliseconds or {@code 0} for no limit
+     */
+    public void executeWhenIdle(@NotNull Runnable runnable, long timeoutMillis) {
+        execute(runnable);
+    }
+
+    /**
+     * Removes given runnable, if it still waits for the thread to become idle. Default
+     * implementation does nothing, thus callers must tolerate execution of runnables
+     * they have cancelled.
+     *
+     * @param runnable runnable passed to {@link #executeWhenIdle(Runnable, long)}
+     */
+    public void cancelWhenIdle(@NotNull Runnable runnable) {
+        // nop
+    }
+
+    /**
+     * Returns {@code true} if this dispatcher can execute runnables after a delay.
+     * Default implementation returns {@code true}.
+     */
+    public boolean supportsDelayed() {
+        return true;
+    }
+
+    /**
+     * Executes given runnable in the thread of this dispatcher after given delay. Default
+     * implementation uses a timer thread shared by all dispatchers, which passes the
+     * runnable to {@link #execute(Runnable)} once the delay is over.
+     *
+     * @param runnable    runnable to be executed
+     * @param delayMillis delay in milliseconds
+     */
+    public void executeDelayed(@NotNull Runnable runnable, long delayMillis) {
+        DelayedTask task = new DelayedTask(runnable);
+        synchronized (mDelayedTasks) {
+            mDelayedTasks.add(task);
+        }
+        task.mFuture = TimerExecutor.get().schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns {@code true} if this dispatcher can defer runnables to the next frame.
+     * Default implementation returns {@code true}.
+     */
+    public boolean supportsNextFrame() {
+        return true;
+    }
+
+    /**
+     * Executes given runnable in the thread of this dispatcher, when the next frame
+     * starts. Default implementation executes the runnable right as
+     * {@link #execute(Runnable)} does, which lets runnables queued in between execute
+     * first.
+     *
+     * @param runnable runnable to be executed
+     */
+    public void executeOnNextFrame(@NotNull Runnable runnable) {
+        execute(runnable);
+    }
+
+    /**
+     * Removes given runnable, if it still waits for its delay to be over. Default
+     * implementation removes the runnable from the shared timer thread used by
+     * {@link #executeDelayed(Runnable, long)}. Dispatchers overriding one of both methods
+     * must override the other one too.
+     *
+     * @param runnable runnable passed to {@link #executeDelayed(Runnable, long)}
+     */
+    public void cancelDelayed(@NotNull Runnable runnable) {
+        List<DelayedTask> cancelledTasks = null;
+        synchronized (mDelayedTasks) {
+            for (int i = mDelayedTasks.size() - 1; i >= 0; i--) {
+                DelayedTask task = mDelayedTasks.get(i);
+                if (task.mRunnable == runnable) {
+                    if (cancelledTasks == null) {
+                        cancelledTasks = new ArrayList<>(1);
+                    }
+                    cancelledTasks.add(mDelayedTasks.remove(i));
+                }
+            }
+        }
+        if (cancelledTasks != null) {
+            for (DelayedTask task : cancelledTasks) {
+                task.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns dispatcher dispatching events in Android's main thread.
+     */
+    @NotNull
+    public static Dispatcher mainThread() {
+        return MainThreadDispatcher.INSTANCE;
+    }
+
+    /**
+     * Returns dispatcher dispatching events in the thread calling dispatch methods.
+     */
+    @NotNull
+    public static Dispatcher callerThread() {
+        return CallerThreadDispatcher.INSTANCE;
+    }
+
+    /**
+     * Creates new dispatcher dispatching events in its own background thread. Call
+     * {@link SingleThreadDispatcher#shutdown()} once the dispatcher is not needed anymore.
+     *
+     * @param threadName name of the dispatcher thread
+     */
+    @NotNull
+    public static SingleThreadDispatcher newSingleThread(@NotNull String threadName) {
+        return new SingleThreadDispatcher(threadName);
+    }
+
+    private final class DelayedTask implements Runnable {
+
+        final Runnable mRunnable;
+        volatile Future<?> mFuture;
+        private volatile boolean mCancelled;
+
+        DelayedTask(@NotNull Runnable runnable) {
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            synchronized (mDelayedTasks) {
+                mDelayedTasks.remove(this);
+            }
+            if (!mCancelled) {
+                execute(mRunnable);
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            Future<?> future = mFuture;
+            if (future != null) {
+                TimerExecutor.cancel(future);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue of events posted from any thread and taken by the feature host thread.
+ * Events are linked through their {@code mNextPostedEvent} field, so that adding an event
+ * does not allocate. Events posted by the same thread are taken in the order they were
+ * posted.
+ * <p/>
+ * This is the intrusive multi-producer single-consumer queue of Dmitry Vyukov. Method
+ * {@link #poll()} may return {@code null} while another thread is in the middle of
+ * adding an event. {@link #isEmpty()} returns {@code false} in this case.
+ *
+ * @author sergej shafarenka
+ */
+final class EventInbox {
+
+    private final AtomicReference<FeatureHost.Event> mHead;
+    private final FeatureHost.Event mStub;
+    private FeatureHost.Event mTail;
+
+    EventInbox() {
+        mStub = new StubEvent();
+        mHead = new AtomicReference<>(mStub);
+        mTail = mStub;
+    }
+
+    /** Adds given event to the inbox. Can be called from any thread. */
+    void offer(@NotNull FeatureHost.Event event) {
+        event.mNextPostedEvent = null;
+        FeatureHost.Event previous = mHead.getAndSet(event);
+        previous.mNextPostedEvent = event;
+    }
+
+    /** Takes next event from the inbox. Must be called from the feature host thread. */
+    @Nullable
+    FeatureHost.Event poll() {
+        FeatureHost.Event tail = mTail;
+        FeatureHost.Event next = tail.mNextPostedEvent;
+        if (tail == mStub) {
+            if (next == null) {
+                return null;
+            }
+            mTail = next;
+            tail = next;
+            next = next.mNextPostedEvent;
+        }
+
+        if (next == null) {
+            if (tail != mHead.get()) {
+                // another thread is about to link its event
+                return null;
+            }
+            offer(mStub);
+            next = tail.mNextPostedEvent;
+            if (next == null) {
+                return null;
+            }
+        }
+
+        mTail = next;
+        tail.mNextPostedEvent = null;
+        return tail;
+    }
+
+    /** Must be called from the feature host thread. */
+    boolean isEmpty() {
+        return mTail == mHead.get();
+    }
+
+    private static final class StubEvent extends FeatureHost.Event {
+
+        StubEvent() {
+            super(-1);
+        }
+
+        @Override
+        protected void dispatch(@NotNull Feature feature) {
+            // nop
+        }
+    }
+
+}
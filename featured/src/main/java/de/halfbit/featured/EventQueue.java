@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * FIFO queue of events waiting for dispatching. Events are kept in a circular array
+ * growing on demand, so adding and removing events takes constant time. The same
+ * event instance can be queued several times.
+ *
+ * @author sergej shafarenka
+ */
+final class EventQueue {
+
+    private FeatureHost.Event[] mEvents;
+    private int mHead;
+    private int mTail;
+    private int mSize;
+    private int mPeakSize;
+
+    EventQueue(int capacity) {
+        mEvents = new FeatureHost.Event[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1];
+    }
+
+    void add(@NotNull FeatureHost.Event event) {
+        if (mSize == mEvents.length) {
+            grow();
+        }
+        mEvents[mTail] = event;
+        mTail = (mTail + 1) & (mEvents.length - 1);
+        if (++mSize > mPeakSize) {
+            mPeakSize = mSize;
+        }
+    }
+
+    @Nullable
+    FeatureHost.Event poll() {
+        if (mSize == 0) {
+            return null;
+        }
+        FeatureHost.Event event = mEvents[mHead];
+        mEvents[mHead] = null;
+        mHead = (mHead + 1) & (mEvents.length - 1);
+        mSize--;
+        return event;
+    }
+
+    /**
+     * Replaces the first queued event of the same type, which can be coalesced with
+     * given event. Targeted events are never replaced.
+     *
+     * @return replaced event or {@code null}, if no event was replaced
+     */
+    @Nullable
+    FeatureHost.Event replace(@NotNull FeatureHost.Event event) {
+        int mask = mEvents.length - 1;
+        for (int i = 0, index = mHead; i < mSize; i++, index = (index + 1) & mask) {
+            FeatureHost.Event queued = mEvents[index];
+            if (queued.mEventId == event.mEventId && !queued.isTargeted()
+                    && event.coalescesWith(queued)) {
+                mEvents[index] = event;
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the first urgent event from the queue. Following events move up by one
+     * position and keep their order.
+     *
+     * @return urgent event or {@code null}, if the queue has no urgent events
+     */
+    @Nullable
+    FeatureHost.Event pollUrgent() {
+        int mask = mEvents.length - 1;
+        for (int i = 0, index = mHead; i < mSize; i++, index = (index + 1) & mask) {
+            FeatureHost.Event event = mEvents[index];
+            if (event.isUrgent()) {
+                for (int next = (index + 1) & mask; next != mTail; next = (next + 1) & mask) {
+                    mEvents[index] = mEvents[next];
+                    index = next;
+                }
+                mEvents[index] = null;
+                mTail = index;
+                mSize--;
+                return event;
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        Arrays.fill(mEvents, null);
+        mHead = 0;
+        mTail = 0;
+        mSize = 0;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int getPeakSize() {
+        return mPeakSize;
+    }
+
+    private void grow() {
+        int length = mEvents.length;
+        FeatureHost.Event[] events = Arrays.copyOf(mEvents, length << 1);
+        if (mHead > 0) {
+            // unwrap events stored at the beginning of the array
+            System.arraycopy(mEvents, 0, events, length, mHead);
+            Arrays.fill(events, 0, mHead, null);
+        }
+        mTail = mHead + length;
+        mEvents = events;
+    }
+
+}
@@ -93,7 +93,15 @@ import org.jetbrains.annotations.NotNull;
  */
 public abstract class Feature<FH extends FeatureHost, C> {
 
+    private static final long[] NO_SUBSCRIPTIONS = new long[0];
+
     private FH mFeatureHost;
+    private int mPriority;
+    private int mTags;
+    private String mTraceName;
+
+    // bit set of subscribed event ids, accessed in the dispatcher thread only
+    private long[] mSubscriptions = NO_SUBSCRIPTIONS;
 
     @NotNull protected C getContext() {
         assertFeatureHostAttached();
@@ -105,6 +113,64 @@ public abstract class Feature<FH extends FeatureHost, C> {
         mFeatureHost = featureHost;
     }
 
+    boolean isAttachedTo(@NotNull FeatureHost featureHost) {
+        return mFeatureHost == featureHost;
+    }
+
+    void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    int getPriority() {
+        return mPriority;
+    }
+
+    void setTags(int tags) {
+        mTags = tags;
+    }
+
+    int getTags() {
+        return mTags;
+    }
+
+    void setSubscribed(int eventId) {
+        int index = eventId >>> 6;
+        if (index >= mSubscriptions.length) {
+            long[] subscriptions = new long[index + 1];
+            System.arraycopy(mSubscriptions, 0, subscriptions, 0, mSubscriptions.length);
+            mSubscriptions = subscriptions;
+        }
+        mSubscriptions[index] |= 1L << eventId;
+    }
+
+    boolean isSubscribed(int eventId) {
+        int index = eventId >>> 6;
+        return index < mSubscriptions.length && (mSubscriptions[index] & 1L << eventId) != 0;
+    }
+
+    /** Takes over subscriptions of given feature, whose place this feature takes. */
+    void takeSubscriptions(@NotNull Feature feature) {
+        mSubscriptions = feature.mSubscriptions;
+        feature.mSubscriptions = NO_SUBSCRIPTIONS;
+    }
+
+    void clearSubscriptions() {
+        mSubscriptions = NO_SUBSCRIPTIONS;
+    }
+
+    /** Returns name of trace sections of this feature. Computed once when tracing. */
+    @NotNull String getTraceName() {
+        if (mTraceName == null) {
+            String name = getClass().getSimpleName();
+            if (name.length() == 0) {
+                name = getClass().getName();
+            }
+            mTraceName = name.length() > TraceSink.MAX_SECTION_NAME_LENGTH
+                    ? name.substring(0, TraceSink.MAX_SECTION_NAME_LENGTH) : name;
+        }
+        return mTraceName;
+    }
+
     @NotNull protected FH getFeatureHost() {
         assertFeatureHostAttached();
         return mFeatureHost;
@@ -15,11 +15,14 @@
  */
 package de.halfbit.featured;
 
-import android.os.Looper;
+import android.os.Build;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Base class for generated feature host classes.
@@ -40,26 +43,377 @@ public abstract class FeatureHost<FH extends FeatureHost, C> {
     }
 
     protected static abstract class Event {
-        @Nullable
-        Event mNextEvent;
+        final int mEventId;
+        @Nullable Event mNextPooledEvent;
+        @Nullable volatile Event mNextPostedEvent;
+        @Nullable String mTargetName;
+        int mTargetTags;
 
         @Nullable
         protected OnDispatchCompleted mOnDispatchCompleted;
 
+        /**
+         * Creates new event.
+         *
+         * @param eventId id of the event, unique within the feature host hierarchy
+         */
+        protected Event(int eventId) {
+            mEventId = eventId;
+        }
+
         protected abstract void dispatch(@NotNull Feature feature);
+
+        /**
+         * Called after the event has been dispatched to all subscribers. Pooled events
+         * release references to their parameters and return {@code true} to be reused
+         * by later dispatches. Shared event instances keep the default implementation.
+         *
+         * @return {@code true} if the event can be put back into the pool
+         */
+        protected boolean recycle() {
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the event is to be delivered in a background thread.
+         * Background events are not recycled.
+         */
+        protected boolean isBackground() {
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the event is dispatched even when the frame budget of
+         * the feature host is used up.
+         */
+        protected boolean isUrgent() {
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the feature host keeps the event after dispatching and
+         * delivers it to features added later. Kept events are recycled when they get
+         * replaced or cleared.
+         */
+        protected boolean isSticky() {
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the event replaces a pending event of the same type.
+         */
+        protected boolean isCoalescing() {
+            return false;
+        }
+
+        /**
+         * Called for coalescing events only. Returns {@code true} if this event can
+         * replace given pending event of the same type.
+         *
+         * @param pendingEvent event waiting in the queue
+         */
+        protected boolean coalescesWith(@NotNull Event pendingEvent) {
+            return true;
+        }
+
+        boolean isTargeted() {
+            return mTargetName != null || mTargetTags != 0;
+        }
     }
 
+    /**
+     * Event used by feature hosts generated in switch mode. Instead of declaring a class
+     * for each event type, generated feature hosts store event parameters in the slots
+     * of this record and deliver it to features in
+     * {@link FeatureHost#dispatchRecord(EventRecord, Feature)}. Primitive parameters are
+     * stored in {@link #mLongs}, all other parameters in {@link #mObjects}. Coalesce keys
+     * occupy the first slots of both arrays.
+     */
+    protected static final class EventRecord extends Event {
+
+        /** Flag for events delivered in background. */
+        public static final int BACKGROUND = 1;
+
+        /** Flag for events replacing pending events of the same type. */
+        public static final int COALESCING = 1 << 1;
+
+        /** Flag for events ignoring the frame budget. */
+        public static final int URGENT = 1 << 2;
+
+        /** Flag for events kept for features added later. */
+        public static final int STICKY = 1 << 3;
+
+        private static final long[] NO_LONGS = new long[0];
+        private static final Object[] NO_OBJECTS = new Object[0];
+
+        public final long[] mLongs;
+        public final Object[] mObjects;
+
+        private final FeatureHost mFeatureHost;
+        private final int mFlags;
+        private final int mKeyLongs;
+        private final int mKeyObjects;
+
+        /**
+         * Creates new event record.
+         *
+         * @param featureHost feature host dispatching the record
+         * @param eventId     id of the event, unique within the feature host hierarchy
+         * @param flags       combination of {@link #BACKGROUND}, {@link #COALESCING},
+         *                    {@link #URGENT} and {@link #STICKY}
+         * @param longs       number of primitive parameters
+         * @param objects     number of other parameters
+         * @param keyLongs    number of primitive coalesce keys
+         * @param keyObjects  number of other coalesce keys
+         */
+        public EventRecord(@NotNull FeatureHost featureHost, int eventId, int flags,
+                           int longs, int objects, int keyLongs, int keyObjects) {
+            super(eventId);
+            mFeatureHost = featureHost;
+            mFlags = flags;
+            mLongs = longs == 0 ? NO_LONGS : new long[longs];
+            mObjects = objects == 0 ? NO_OBJECTS : new Object[objects];
+            mKeyLongs = keyLongs;
+            mKeyObjects = keyObjects;
+        }
+
+        public int getEventId() {
+            return mEventId;
+        }
+
+        public void setOnDispatchCompleted(@Nullable OnDispatchCompleted onDispatchCompleted) {
+            mOnDispatchCompleted = onDispatchCompleted;
+        }
+
+        @Override
+        protected void dispatch(@NotNull Feature feature) {
+            mFeatureHost.dispatchRecord(this, feature);
+        }
+
+        @Override
+        protected boolean recycle() {
+            if ((mFlags & BACKGROUND) != 0) {
+                return false;
+            }
+            Arrays.fill(mObjects, null);
+            mOnDispatchCompleted = null;
+            return true;
+        }
+
+        @Override
+        protected boolean isBackground() {
+            return (mFlags & BACKGROUND) != 0;
+        }
+
+        @Override
+        protected boolean isUrgent() {
+            return (mFlags & URGENT) != 0;
+        }
+
+        @Override
+        protected boolean isSticky() {
+            return (mFlags & STICKY) != 0;
+        }
+
+        @Override
+        protected boolean isCoalescing() {
+            return (mFlags & COALESCING) != 0;
+        }
+
+        @Override
+        protected boolean coalescesWith(@NotNull Event pendingEvent) {
+            EventRecord pending = (EventRecord) pendingEvent;
+            for (int i = 0; i < mKeyLongs; i++) {
+                if (mLongs[i] != pending.mLongs[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < mKeyObjects; i++) {
+                if (!keysEqual(mObjects[i], pending.mObjects[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean keysEqual(@Nullable Object key1, @Nullable Object key2) {
+            if (key1 == key2) {
+                return true;
+            }
+            if (key1 == null || key2 == null) {
+                return false;
+            }
+            if (key1 instanceof Object[] && key2 instanceof Object[]) {
+                return Arrays.equals((Object[]) key1, (Object[]) key2);
+            } else if (key1 instanceof int[] && key2 instanceof int[]) {
+                return Arrays.equals((int[]) key1, (int[]) key2);
+            } else if (key1 instanceof long[] && key2 instanceof long[]) {
+                return Arrays.equals((long[]) key1, (long[]) key2);
+            } else if (key1 instanceof byte[] && key2 instanceof byte[]) {
+                return Arrays.equals((byte[]) key1, (byte[]) key2);
+            } else if (key1 instanceof char[] && key2 instanceof char[]) {
+                return Arrays.equals((char[]) key1, (char[]) key2);
+            } else if (key1 instanceof short[] && key2 instanceof short[]) {
+                return Arrays.equals((short[]) key1, (short[]) key2);
+            } else if (key1 instanceof float[] && key2 instanceof float[]) {
+                return Arrays.equals((float[]) key1, (float[]) key2);
+            } else if (key1 instanceof double[] && key2 instanceof double[]) {
+                return Arrays.equals((double[]) key1, (double[]) key2);
+            } else if (key1 instanceof boolean[] && key2 instanceof boolean[]) {
+                return Arrays.equals((boolean[]) key1, (boolean[]) key2);
+            }
+            return key1.equals(key2);
+        }
+    }
+
+    /**
+     * Marker event queued by {@link #commit(OnDispatchCompleted)}. Its id is beyond any
+     * generated event id, thus it has no subscribers and only notifies the completion.
+     * The marker is neither reported to dispatch observers nor traced.
+     */
+    private static final class BatchCompletedEvent extends Event {
+
+        static final int ID = Integer.MAX_VALUE;
+
+        BatchCompletedEvent(@NotNull OnDispatchCompleted onDispatchCompleted) {
+            super(ID);
+            mOnDispatchCompleted = onDispatchCompleted;
+        }
+
+        @Override
+        protected void dispatch(@NotNull Feature feature) {
+            // nop
+        }
+    }
+
+    /**
+     * Handle of an event dispatched with a delay. Use it to cancel the event before it
+     * gets dispatched.
+     */
+    public static final class ScheduledEvent {
+
+        final FeatureHost mFeatureHost;
+        final long mDueNanos;
+        @Nullable Event mEvent;
+        long mSequence;
+        int mIndex = -1;
+
+        ScheduledEvent(@NotNull FeatureHost featureHost, @NotNull Event event, long dueNanos) {
+            mFeatureHost = featureHost;
+            mEvent = event;
+            mDueNanos = dueNanos;
+        }
+
+        /**
+         * Cancels the event, unless it has already been dispatched. Callback passed to
+         * the dispatch method of a cancelled event is not notified. Must be called in
+         * the dispatcher thread.
+         *
+         * @return {@code true} if the event was cancelled, {@code false} if it has
+         * already been dispatched or cancelled
+         */
+        public boolean cancel() {
+            return mFeatureHost.cancelScheduledEvent(this);
+        }
+
+        /**
+         * Returns {@code true} if the event waits for its delay to be over.
+         */
+        public boolean isPending() {
+            return mEvent != null;
+        }
+    }
+
+    /** Priority of features registered without an explicit priority. */
+    public static final int PRIORITY_DEFAULT = 0;
+
+    /**
+     * Number of event ids used by this feature host. Generated feature hosts
+     * start numbering their events from the value declared by their super class.
+     */
+    protected static final int EVENT_COUNT = 0;
+
+    private static final Feature[] NO_SUBSCRIBERS = new Feature[0];
+    private static final int MAX_POOLED_EVENTS = 8;
+
+    private static volatile TraceSink sTraceSink;
+
     private final C mContext;
-    private final HashMap<String, Feature> mFeatures;
-    private Event mDispatchingEvent;
+    private final Dispatcher mDispatcher;
+    private final FeatureRegistry mFeatures;
+    private final EventQueue mEventQueue;
+    private Feature[][] mSubscribers;
+    private boolean[] mLazySubscribers;
+    private Event[] mEventPool;
+    private int[] mEventPoolSizes;
+    private SerialExecutor mBackgroundLane;
+    private boolean mDispatching;
+    private int mBatchDepth;
+    private int mCoalescedEventCount;
+    @Nullable private DispatchObserver mDispatchObserver;
+    @Nullable private FeatureWatchdog mWatchdog;
+
+    private Event[] mStickyEvents;
+    private long[] mStickySequences;
+    private long mStickySequence;
+    private int mStickyEventCount;
+    private int mMaxStickyEvents = Integer.MAX_VALUE;
+
+    private long mFrameBudgetNanos;
+    private Runnable mFrameDrain;
+    private boolean mFrameDrainScheduled;
+    private int mBurstFrameCount;
+    private int mPeakBurstFrameCount;
+
+    private TimerQueue mTimerQueue;
+    private Runnable mTimerDrain;
+    private boolean mTimerDrainScheduled;
+    private long mTimerDrainNanos;
+
+    private EventQueue mIdleQueue;
+    private Runnable mIdleDrain;
+    private boolean mIdleDrainScheduled;
+    private EventQueue mIdleDeadlineQueue;
+    private Runnable mIdleDeadlineDrain;
+    private long mIdleDeadlineNanos;
+    private boolean mIdleDeadlineScheduled;
+
+    private final EventInbox mInbox;
+    private final AtomicBoolean mInboxDrainScheduled;
+    private final Runnable mInboxDrain;
 
     /**
-     * Creates new feature host instance and attaches given context to it.
+     * Creates new feature host instance and attaches given context to it. Feature host
+     * dispatches events in Android's main thread.
      *
      * @param context context to be attached
      */
     public FeatureHost(@NotNull C context) {
-        mFeatures = new HashMap<>(10);
+        this(context, Dispatcher.mainThread());
+    }
+
+    /**
+     * Creates new feature host instance, which dispatches its events in the thread
+     * of given dispatcher.
+     *
+     * @param context    context to be attached
+     * @param dispatcher dispatcher defining the thread for dispatching events
+     */
+    public FeatureHost(@NotNull C context, @NotNull Dispatcher dispatcher) {
+        mDispatcher = dispatcher;
+        mFeatures = new FeatureRegistry(10);
+        mEventQueue = new EventQueue(8);
+        mSubscribers = new Feature[0][];
+        mEventPool = new Event[0];
+        mEventPoolSizes = new int[0];
+        mInbox = new EventInbox();
+        mInboxDrainScheduled = new AtomicBoolean();
+        mInboxDrain = new Runnable() {
+            @Override
+            public void run() {
+                drainInbox();
+            }
+        };
         mContext = context;
     }
 
@@ -74,25 +428,292 @@ public abstract class FeatureHost<FH extends FeatureHost, C> {
     }
 
     /**
-     * Registers a feature at the feature host.
+     * Returns dispatcher of this feature host. Dispatch methods must be called in
+     * the thread of this dispatcher.
      *
-     * @param feature feature instance to be registered
+     * @return dispatcher of this feature host
+     */
+    @NotNull
+    public Dispatcher getDispatcher() {
+        return mDispatcher;
+    }
+
+    /**
+     * Installs an observer receiving callbacks about dispatched events. Must be called
+     * in the dispatcher thread or before the feature host starts dispatching events.
+     *
+     * @param dispatchObserver observer to be installed or {@code null} to remove it
+     */
+    public void setDispatchObserver(@Nullable DispatchObserver dispatchObserver) {
+        mDispatchObserver = dispatchObserver;
+    }
+
+    /**
+     * Installs a watchdog isolating exceptions thrown by features and quarantining
+     * features, which repeatedly exceed the latency budget of the watchdog. Must be called
+     * in the dispatcher thread or before the feature host starts dispatching events.
+     *
+     * @param watchdog watchdog to be installed or {@code null} to remove it
+     */
+    public void setWatchdog(@Nullable FeatureWatchdog watchdog) {
+        mWatchdog = watchdog;
+    }
+
+    /**
+     * Limits the time the feature host spends in dispatching queued events per frame.
+     * Once the budget is used up, remaining events are dispatched in the next frame,
+     * except for urgent events, which are dispatched right away. Events of a burst keep
+     * their order. Main thread dispatcher waits for the next {@code Choreographer} frame,
+     * single thread dispatcher lets other runnables execute in between. Feature hosts
+     * using {@link Dispatcher#callerThread()} cannot defer events. Must be called in the
+     * dispatcher thread or before the feature host starts dispatching events.
+     *
+     * @param budgetMillis time in milliseconds per frame or {@code 0} for no limit
+     * @throws IllegalStateException if the budget is positive and the dispatcher cannot
+     *                               defer events to the next frame
+     */
+    public void setFrameBudget(long budgetMillis) {
+        if (budgetMillis < 0) {
+            throw new IllegalArgumentException("budgetMillis must not be negative");
+        }
+        if (budgetMillis > 0 && !mDispatcher.supportsNextFrame()) {
+            throw new IllegalStateException(
+                    mDispatcher + " cannot defer events to the next frame");
+        }
+        mFrameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        if (mFrameDrain == null && budgetMillis > 0) {
+            mFrameDrain = new Runnable() {
+                @Override
+                public void run() {
+                    drainNextFrame();
+                }
+            };
+        }
+    }
+
+    /**
+     * Enables or disables trace sections around dispatched events and feature callbacks.
+     * Sections appear in systrace and Perfetto traces and are named after the event and
+     * the feature. Tracing requires API level 18 and is ignored on older devices. It
+     * is disabled by default and is meant to be switched once, for instance in
+     * {@code Application.onCreate()} of debug builds.
+     *
+     * @param tracingEnabled {@code true} to enable trace sections
+     */
+    public static void setTracingEnabled(boolean tracingEnabled) {
+        setTraceSink(tracingEnabled
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                ? new AndroidTraceSink() : null);
+    }
+
+    /**
+     * Sets the sink receiving trace sections, {@code null} disables tracing.
+     * Visible for testing.
+     */
+    static void setTraceSink(@Nullable TraceSink traceSink) {
+        sTraceSink = traceSink;
+    }
+
+    /**
+     * Returns {@code true} if dispatched events and feature callbacks are traced.
+     *
+     * @return {@code true} if tracing is enabled
+     */
+    public static boolean isTracingEnabled() {
+        return sTraceSink != null;
+    }
+
+    /**
+     * Registers a feature at the feature host with {@link #PRIORITY_DEFAULT}.
+     *
+     * @param feature     feature instance to be registered
+     * @param featureName name of the feature or {@code null}, if the feature is to be
+     *                    registered by its class
      */
-    @SuppressWarnings("unchecked")
     protected void addFeature(Feature feature, @Nullable String featureName) {
-        if (featureName == null) {
-            featureName = feature.getClass().toString();
+        addFeature(feature, featureName, PRIORITY_DEFAULT);
+    }
+
+    /**
+     * Registers a feature at the feature host. Features with higher priority receive
+     * events before features with lower priority. Features with equal priority receive
+     * events in order of their registration.
+     *
+     * @param feature     feature instance to be registered
+     * @param featureName name of the feature or {@code null}, if the feature is to be
+     *                    registered by its class
+     * @param priority    priority of the feature
+     */
+    @SuppressWarnings("unchecked")
+    protected void addFeature(Feature feature, @Nullable String featureName, int priority) {
+        mFeatures.add(feature, featureName);
+        feature.setPriority(priority);
+        feature.attachFeatureHost(this);
+        addSubscriptions(feature);
+        replayStickyEvents(feature);
+    }
+
+    /**
+     * Unregisters given feature and detaches it from the feature host, so that it can be
+     * garbage collected. Removed feature receives no events anymore, including the rest
+     * of the event being dispatched. Features can be removed from within a feature
+     * callback. Background events already handed over to a worker thread might still be
+     * delivered. Must be called in the dispatcher thread.
+     *
+     * @param feature registered feature to be removed
+     */
+    protected void removeFeature(@NotNull Feature feature) {
+        if (!mFeatures.remove(feature)) {
+            throw new IllegalArgumentException("Feature " + feature + " is not registered");
         }
 
-        Feature registeredFeature = mFeatures.put(featureName, feature);
-        if (registeredFeature != null) {
-            throw new IllegalArgumentException(
-                    String.format("There is already a feature %s registered with name %s. "
-                            + "Use different feature name if you want to register same feature "
-                            + "class multiple times.", registeredFeature, featureName));
+        // dispatch loops iterate over the arrays they started with, thus we copy on write
+        for (int eventId = 0; eventId < mSubscribers.length; eventId++) {
+            mSubscribers[eventId] = removeSubscriber(mSubscribers[eventId], feature);
+        }
+        feature.clearSubscriptions();
+        feature.attachFeatureHost(null);
+        if (mWatchdog != null) {
+            mWatchdog.onFeatureRemoved(feature);
         }
+    }
 
-        feature.attachFeatureHost(this);
+    @NotNull
+    private static Feature[] removeSubscriber(@NotNull Feature[] subscribers,
+                                              @NotNull Feature feature) {
+        for (int i = 0; i < subscribers.length; i++) {
+            if (subscribers[i] == feature) {
+                if (subscribers.length == 1) {
+                    return NO_SUBSCRIBERS;
+                }
+                Feature[] newSubscribers = new Feature[subscribers.length - 1];
+                System.arraycopy(subscribers, 0, newSubscribers, 0, i);
+                System.arraycopy(subscribers, i + 1, newSubscribers, i,
+                        subscribers.length - i - 1);
+                return newSubscribers;
+            }
+        }
+        return subscribers;
+    }
+
+    /**
+     * Assigns tags to a registered feature. Tags are bits of an {@code int} value, which
+     * are freely defined by the application. Events dispatched with
+     * {@code dispatchOn<Event>ToTagged(tags, ...)} are delivered to the features carrying
+     * at least one of the given tags only. Must be called in the dispatcher thread.
+     *
+     * @param feature registered feature
+     * @param tags    bit mask of tags or {@code 0} to remove all tags
+     */
+    public final void setFeatureTags(@NotNull Feature feature, int tags) {
+        if (!feature.isAttachedTo(this)) {
+            throw new IllegalArgumentException("Feature " + feature + " is not registered");
+        }
+        feature.setTags(tags);
+    }
+
+    /**
+     * Subscribes given feature to the events it is interested in. Generated feature
+     * hosts override this method and call {@link #addSubscriber(int, Feature)} for
+     * every event, which given feature overrides or might override.
+     *
+     * @param feature feature to be subscribed
+     */
+    protected void addSubscriptions(@NotNull Feature feature) {
+        // nop
+    }
+
+    /**
+     * Registers a feature, which is instantiated by given provider when the first event
+     * it subscribes to is dispatched. Until then the feature cannot be found using
+     * {@link #getFeature(Class)}. Instantiation time is reported to the
+     * {@link DispatchObserver}.
+     * <p/>
+     * If given class is a concrete feature class, the provider must create instances of
+     * exactly this class, because events the class does not override are not subscribed to.
+     *
+     * @param provider     provider creating the feature
+     * @param featureClass class of features created by the provider
+     */
+    protected void addLazyFeature(@NotNull FeatureProvider<?> provider,
+                                  @NotNull Class<? extends Feature> featureClass) {
+        addLazySubscriptions(new LazyFeature(provider, featureClass), featureClass);
+    }
+
+    /**
+     * Subscribes given placeholder of a lazy feature to the events declared by given
+     * feature class. Generated feature hosts override this method and call
+     * {@link #addSubscriber(int, Feature)} for every event of the feature class.
+     *
+     * @param feature      placeholder of the feature to be subscribed
+     * @param featureClass class of the feature
+     */
+    protected void addLazySubscriptions(@NotNull Feature feature,
+                                        @NotNull Class<? extends Feature> featureClass) {
+        // nop
+    }
+
+    /**
+     * Delivers given event record to given feature. Feature hosts generated in switch
+     * mode override this method and call the feature method matching the event id.
+     * Ids of super feature hosts are passed to the super implementation.
+     *
+     * @param event   event record to be delivered
+     * @param feature subscribed feature
+     */
+    protected void dispatchRecord(@NotNull EventRecord event, @NotNull Feature feature) {
+        throw new IllegalStateException("Unknown event id: " + event.mEventId);
+    }
+
+    /**
+     * Returns name of the trace section of given event. Generated feature hosts override
+     * this method and return a constant name composed of the feature and the method
+     * names. Ids of super feature hosts are passed to the super implementation.
+     *
+     * @param eventId id of the event
+     * @return name of the trace section or {@code null} to use the event class name
+     */
+    @Nullable
+    protected String getEventName(int eventId) {
+        return null;
+    }
+
+    /**
+     * Adds given feature to the list of subscribers of given event.
+     *
+     * @param eventId id of the event
+     * @param feature feature to receive the event
+     */
+    protected final void addSubscriber(int eventId, @NotNull Feature feature) {
+        if (eventId >= mSubscribers.length) {
+            int length = mSubscribers.length;
+            mSubscribers = Arrays.copyOf(mSubscribers, eventId + 1);
+            Arrays.fill(mSubscribers, length, mSubscribers.length, NO_SUBSCRIBERS);
+        }
+
+        // subscribers are kept sorted by priority, so that dispatching just iterates them
+        Feature[] subscribers = mSubscribers[eventId];
+        int index = subscribers.length;
+        int priority = feature.getPriority();
+        while (index > 0 && subscribers[index - 1].getPriority() < priority) {
+            index--;
+        }
+        Feature[] newSubscribers = new Feature[subscribers.length + 1];
+        System.arraycopy(subscribers, 0, newSubscribers, 0, index);
+        newSubscribers[index] = feature;
+        System.arraycopy(subscribers, index, newSubscribers, index + 1,
+                subscribers.length - index);
+        mSubscribers[eventId] = newSubscribers;
+        feature.setSubscribed(eventId);
+
+        if (feature instanceof LazyFeature) {
+            if (mLazySubscribers == null) {
+                mLazySubscribers = new boolean[mSubscribers.length];
+            } else if (eventId >= mLazySubscribers.length) {
+                mLazySubscribers = Arrays.copyOf(mLazySubscribers, mSubscribers.length);
+            }
+            mLazySubscribers[eventId] = true;
+        }
     }
 
     /**
@@ -104,7 +725,7 @@ public abstract class FeatureHost<FH extends FeatureHost, C> {
     @Nullable
     public <F extends Feature> F getFeature(@NotNull Class<F> featureClass) {
         //noinspection unchecked
-        return (F) mFeatures.get(featureClass.toString());
+        return (F) mFeatures.get(featureClass);
     }
 
     @Nullable
@@ -114,47 +735,914 @@ public abstract class FeatureHost<FH extends FeatureHost, C> {
         return (F) mFeatures.get(featureName);
     }
 
+    /**
+     * Limits the number of sticky events kept by the feature host. The feature host keeps
+     * one event per sticky event type. If the limit is exceeded, the oldest kept event is
+     * dropped. Must be called in the dispatcher thread.
+     *
+     * @param maxStickyEvents maximum number of kept events, {@code 0} disables sticky events
+     */
+    public void setMaxStickyEvents(int maxStickyEvents) {
+        if (maxStickyEvents < 0) {
+            throw new IllegalArgumentException("maxStickyEvents must not be negative");
+        }
+        mMaxStickyEvents = maxStickyEvents;
+        trimStickyEvents();
+    }
+
+    /**
+     * Drops all sticky events kept by the feature host. Features added afterwards do not
+     * receive them anymore. Must be called in the dispatcher thread.
+     */
+    public void clearStickyEvents() {
+        if (mStickyEvents != null) {
+            for (int eventId = 0; eventId < mStickyEvents.length; eventId++) {
+                clearStickyEvent(eventId);
+            }
+        }
+    }
+
+    /**
+     * Drops the kept sticky event of given type. Generated feature hosts call this method
+     * from their {@code clearStickyOn<Event>()} methods.
+     *
+     * @param eventId id of the event
+     */
+    protected final void clearStickyEvent(int eventId) {
+        if (mStickyEvents == null || eventId >= mStickyEvents.length) {
+            return;
+        }
+        Event event = mStickyEvents[eventId];
+        if (event != null) {
+            mStickyEvents[eventId] = null;
+            mStickyEventCount--;
+            if (event.recycle()) {
+                releaseEvent(event);
+            }
+        }
+    }
+
+    private void keepStickyEvent(@NotNull Event event) {
+        int eventId = event.mEventId;
+        if (mStickyEvents == null) {
+            mStickyEvents = new Event[eventId + 1];
+            mStickySequences = new long[eventId + 1];
+        } else if (eventId >= mStickyEvents.length) {
+            mStickyEvents = Arrays.copyOf(mStickyEvents, eventId + 1);
+            mStickySequences = Arrays.copyOf(mStickySequences, eventId + 1);
+        }
+
+        // completion has been notified already, replays do not notify it again
+        event.mOnDispatchCompleted = null;
+        Event replacedEvent = mStickyEvents[eventId];
+        mStickyEvents[eventId] = event;
+        mStickySequences[eventId] = ++mStickySequence;
+        if (replacedEvent == null) {
+            mStickyEventCount++;
+            trimStickyEvents();
+        } else if (replacedEvent != event && replacedEvent.recycle()) {
+            releaseEvent(replacedEvent);
+        }
+    }
+
+    private void trimStickyEvents() {
+        while (mStickyEventCount > mMaxStickyEvents) {
+            clearStickyEvent(findStickyEvent(0, Long.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Returns id of the sticky event kept first after given sequence number and not after
+     * given maximum sequence number or {@code -1}, if there is no such event.
+     */
+    private int findStickyEvent(long afterSequence, long maxSequence) {
+        int eventId = -1;
+        for (int i = 0; i < mStickyEvents.length; i++) {
+            if (mStickyEvents[i] != null
+                    && mStickySequences[i] > afterSequence
+                    && mStickySequences[i] <= maxSequence
+                    && (eventId == -1 || mStickySequences[i] < mStickySequences[eventId])) {
+                eventId = i;
+            }
+        }
+        return eventId;
+    }
+
+    private void replayStickyEvents(@NotNull Feature feature) {
+        if (mStickyEventCount == 0) {
+            return;
+        }
+
+        // events dispatched by replayed callbacks are queued until the replay is over
+        boolean dispatching = mDispatching;
+        int batchDepth = mBatchDepth;
+        boolean replayed = false;
+        mDispatching = true;
+        try {
+            // events are replayed in the order they were dispatched, events kept while
+            // replaying have been delivered to the feature already
+            long maxSequence = mStickySequence;
+            long sequence = 0;
+            for (int eventId = findStickyEvent(sequence, maxSequence); eventId != -1;
+                 eventId = findStickyEvent(sequence, maxSequence)) {
+                sequence = mStickySequences[eventId];
+                if (!feature.isAttachedTo(this)) {
+                    break;
+                }
+                if (feature.isSubscribed(eventId)) {
+                    replayStickyEvent(mStickyEvents[eventId], feature);
+                }
+            }
+            replayed = true;
+        } finally {
+            mDispatching = dispatching;
+            if (!replayed) {
+                // a throwing callback cannot commit the batch it has started
+                mBatchDepth = batchDepth;
+            }
+        }
+
+        if (!mDispatching && mBatchDepth == 0 && !mEventQueue.isEmpty()) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    private void replayStickyEvent(@NotNull Event event, @NotNull Feature feature) {
+        DispatchObserver observer = mDispatchObserver;
+        FeatureWatchdog watchdog = mWatchdog;
+        TraceSink traceSink = sTraceSink;
+        if (observer == null && watchdog == null && traceSink == null) {
+            event.dispatch(feature);
+            return;
+        }
+
+        // replay is guarded as a regular dispatch, but it does not start or complete events
+        if (traceSink != null) {
+            beginEventSection(traceSink, event);
+        }
+        try {
+            dispatchGuarded(event, feature, observer, watchdog, traceSink);
+        } finally {
+            if (traceSink != null) {
+                traceSink.endSection();
+            }
+        }
+    }
+
+    /**
+     * Takes a previously dispatched event out of the pool. Generated feature hosts
+     * call this method before creating a new event instance.
+     *
+     * @param eventId id of the event
+     * @return pooled event or {@code null}, if the pool is empty
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    protected final <E extends Event> E obtainEvent(int eventId) {
+        if (eventId >= mEventPool.length) {
+            return null;
+        }
+        Event event = mEventPool[eventId];
+        if (event != null) {
+            mEventPool[eventId] = event.mNextPooledEvent;
+            mEventPoolSizes[eventId]--;
+            event.mNextPooledEvent = null;
+        }
+        return (E) event;
+    }
+
     protected void dispatch(Event event) {
-        assertMainThread();
+        assertDispatchThread();
+
+        // queue event and return, if we are already dispatching or batching
+        queueEvent(event);
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    /**
+     * Dispatches given event to the feature registered under given name only. Other
+     * subscribers do not receive the event. The event is dropped, if the feature does
+     * not exist or does not subscribe to the event. Callback of the event is notified
+     * in any case. Generated feature hosts call this method from their
+     * {@code dispatchOn<Event>To()} methods.
+     *
+     * @param featureName name of the target feature
+     * @param event       event to be dispatched
+     */
+    protected final void dispatchTo(@NotNull String featureName, @NotNull Event event) {
+        event.mTargetName = featureName;
+        dispatch(event);
+    }
+
+    /**
+     * Dispatches given event to the features carrying at least one of given tags only.
+     * Generated feature hosts call this method from their {@code dispatchOn<Event>ToTagged()}
+     * methods.
+     *
+     * @param tags  bit mask of tags, must not be {@code 0}
+     * @param event event to be dispatched
+     * @see #setFeatureTags(Feature, int)
+     */
+    protected final void dispatchToTagged(int tags, @NotNull Event event) {
+        if (tags == 0) {
+            throw new IllegalArgumentException("Tags must not be 0");
+        }
+        event.mTargetTags = tags;
+        dispatch(event);
+    }
+
+    /**
+     * Starts a batch of events. Events dispatched after this call are only queued and
+     * get delivered in a single dispatch loop, when the batch is committed. Batches can
+     * be nested, in which case the outermost {@link #commit(OnDispatchCompleted)} starts
+     * delivery. A batch started in a feature callback holds back all queued events,
+     * including the ones queued before the batch, until it is committed. A batch started
+     * by a callback, which throws before committing it, is closed and its events get
+     * delivered by the next dispatch. Must be called in the dispatcher thread.
+     */
+    public final void beginBatch() {
+        assertDispatchThread();
+        mBatchDepth++;
+    }
+
+    /**
+     * Commits a batch started by {@link #beginBatch()} and delivers its events, unless
+     * this is a nested batch or the feature host is already dispatching. Given callback
+     * is notified once after all events of the batch have been dispatched.
+     *
+     * @param onDispatchCompleted optional callback to be notified after the batch
+     */
+    public final void commit(@Nullable OnDispatchCompleted onDispatchCompleted) {
+        assertDispatchThread();
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("commit() must be preceded by beginBatch()");
+        }
+        if (onDispatchCompleted != null) {
+            queueEvent(new BatchCompletedEvent(onDispatchCompleted));
+        }
+        mBatchDepth--;
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    /**
+     * Adds given event to the inbox of the feature host. This method can be called
+     * from any thread. Feature host takes events out of the inbox in its dispatcher
+     * thread and dispatches them in the order they were posted.
+     *
+     * @param event event to be dispatched
+     */
+    protected final void post(@NotNull Event event) {
+        mInbox.offer(event);
+        if (mInboxDrainScheduled.compareAndSet(false, true)) {
+            mDispatcher.execute(mInboxDrain);
+        }
+    }
+
+    private void drainInbox() {
+        mInboxDrainScheduled.set(false);
+        for (Event event = mInbox.poll(); event != null; event = mInbox.poll()) {
+            queueEvent(event);
+        }
+
+        // a producer might be in the middle of adding an event, we check it later
+        if (!mInbox.isEmpty() && mInboxDrainScheduled.compareAndSet(false, true)) {
+            mDispatcher.execute(mInboxDrain);
+        }
+
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    /**
+     * Puts given event into the idle lane of the feature host. Events of the idle lane
+     * are dispatched in the order they were added, once the dispatcher thread becomes
+     * idle. Events with timeout wait in a lane of their own and are dispatched together,
+     * once the thread becomes idle or the earliest of their timeouts is over, so that
+     * an expired timeout never hurries events without timeout. Generated feature hosts
+     * call this method from their {@code dispatchOn<Event>WhenIdle()} methods.
+     *
+     * @param event         event to be dispatched
+     * @param timeoutMillis maximum delay in milliseconds or {@code 0} for no limit
+     */
+    protected final void dispatchWhenIdle(@NotNull Event event, long timeoutMillis) {
+        assertDispatchThread();
+        if (timeoutMillis > 0) {
+            dispatchWhenIdleOrTimeout(event, timeoutMillis);
+            return;
+        }
+        if (mIdleQueue == null) {
+            mIdleQueue = new EventQueue(4);
+            mIdleDrain = new Runnable() {
+                @Override
+                public void run() {
+                    mIdleDrainScheduled = false;
+                    drainIdleQueue(mIdleQueue);
+                }
+            };
+        }
+        mIdleQueue.add(event);
+        if (!mIdleDrainScheduled) {
+            mIdleDrainScheduled = true;
+            mDispatcher.executeWhenIdle(mIdleDrain, 0);
+        }
+    }
+
+    private void dispatchWhenIdleOrTimeout(@NotNull Event event, long timeoutMillis) {
+        if (mIdleDeadlineQueue == null) {
+            mIdleDeadlineQueue = new EventQueue(4);
+            mIdleDeadlineDrain = new Runnable() {
+                @Override
+                public void run() {
+                    mIdleDeadlineScheduled = false;
+                    drainIdleQueue(mIdleDeadlineQueue);
+                }
+            };
+        }
+        mIdleDeadlineQueue.add(event);
+
+        // pending drain serves this event, unless the event has an earlier deadline
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (mIdleDeadlineScheduled && deadlineNanos - mIdleDeadlineNanos >= 0) {
+            return;
+        }
+        if (mIdleDeadlineScheduled) {
+            mDispatcher.cancelWhenIdle(mIdleDeadlineDrain);
+        }
+        mIdleDeadlineScheduled = true;
+        mIdleDeadlineNanos = deadlineNanos;
+        mDispatcher.executeWhenIdle(mIdleDeadlineDrain, timeoutMillis);
+    }
+
+    private void drainIdleQueue(@NotNull EventQueue idleQueue) {
+        // dispatchers not supporting cancellation might execute a drain of an empty lane
+        if (idleQueue.isEmpty()) {
+            return;
+        }
+        for (Event event = idleQueue.poll(); event != null; event = idleQueue.poll()) {
+            queueEvent(event);
+        }
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    /**
+     * Dispatches given event after given delay. Delayed events of a feature host share a
+     * single timer of the dispatcher. Events due at the same time are dispatched in the
+     * order they were scheduled. Generated feature hosts call this method from their
+     * {@code dispatchOn<Event>Delayed()} methods.
+     *
+     * @param event       event to be dispatched
+     * @param delayMillis delay in milliseconds
+     * @return handle for cancelling the event
+     * @throws UnsupportedOperationException if the dispatcher cannot delay runnables
+     */
+    @NotNull
+    protected final ScheduledEvent dispatchDelayed(@NotNull Event event, long delayMillis) {
+        assertDispatchThread();
+        if (!mDispatcher.supportsDelayed()) {
+            throw new UnsupportedOperationException(
+                    mDispatcher + " cannot dispatch delayed events");
+        }
+        if (mTimerQueue == null) {
+            mTimerQueue = new TimerQueue(4);
+            mTimerDrain = new Runnable() {
+                @Override
+                public void run() {
+                    drainTimerQueue();
+                }
+            };
+        }
+        long dueNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        ScheduledEvent scheduledEvent = new ScheduledEvent(this, event, dueNanos);
+        mTimerQueue.add(scheduledEvent);
+        if (mTimerQueue.peek() == scheduledEvent) {
+            scheduleTimerDrain(dueNanos);
+        }
+        return scheduledEvent;
+    }
+
+    boolean cancelScheduledEvent(@NotNull ScheduledEvent scheduledEvent) {
+        assertDispatchThread();
+        if (mTimerQueue == null || !mTimerQueue.remove(scheduledEvent)) {
+            return false;
+        }
+        Event event = scheduledEvent.mEvent;
+        scheduledEvent.mEvent = null;
+        if (event != null && event.recycle()) {
+            releaseEvent(event);
+        }
+        return true;
+    }
+
+    private void scheduleTimerDrain(long dueNanos) {
+        if (mTimerDrainScheduled) {
+            if (mTimerDrainNanos - dueNanos <= 0) {
+                return;
+            }
+            mDispatcher.cancelDelayed(mTimerDrain);
+            mTimerDrainScheduled = false;
+        }
+
+        // rounding up keeps the timer from firing right before the event is due
+        long delayNanos = Math.max(dueNanos - System.nanoTime(), 0);
+        long delayMillis = (delayNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1)
+                / TimeUnit.MILLISECONDS.toNanos(1);
+        mDispatcher.executeDelayed(mTimerDrain, delayMillis);
+
+        // state changes only once the timer is set, so that a failure can be retried
+        mTimerDrainScheduled = true;
+        mTimerDrainNanos = dueNanos;
+    }
+
+    private void drainTimerQueue() {
+        mTimerDrainScheduled = false;
+        long nowNanos = System.nanoTime();
+        for (ScheduledEvent scheduledEvent = mTimerQueue.peek();
+             scheduledEvent != null && scheduledEvent.mDueNanos - nowNanos <= 0;
+             scheduledEvent = mTimerQueue.peek()) {
+            mTimerQueue.poll();
+            Event event = scheduledEvent.mEvent;
+            scheduledEvent.mEvent = null;
+            queueEvent(event);
+        }
+
+        ScheduledEvent nextEvent = mTimerQueue.peek();
+        if (nextEvent != null) {
+            scheduleTimerDrain(nextEvent.mDueNanos);
+        }
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    /**
+     * Cancels all delayed events, drops events waiting for idle time and sticky events.
+     * Call this method when the context of the feature host gets destroyed, so that
+     * pending timers and idle handlers do not keep the feature host and its features in
+     * memory. Must be called in the dispatcher thread.
+     */
+    public void destroy() {
+        assertDispatchThread();
+        if (mTimerQueue != null) {
+            for (ScheduledEvent scheduledEvent = mTimerQueue.poll(); scheduledEvent != null;
+                 scheduledEvent = mTimerQueue.poll()) {
+                scheduledEvent.mEvent = null;
+            }
+            if (mTimerDrainScheduled) {
+                mDispatcher.cancelDelayed(mTimerDrain);
+                mTimerDrainScheduled = false;
+            }
+        }
+        if (mIdleQueue != null) {
+            mIdleQueue.clear();
+            if (mIdleDrainScheduled) {
+                mDispatcher.cancelWhenIdle(mIdleDrain);
+                mIdleDrainScheduled = false;
+            }
+        }
+        if (mIdleDeadlineQueue != null) {
+            mIdleDeadlineQueue.clear();
+            if (mIdleDeadlineScheduled) {
+                mDispatcher.cancelWhenIdle(mIdleDeadlineDrain);
+                mIdleDeadlineScheduled = false;
+            }
+        }
+        clearStickyEvents();
+    }
+
+    private void queueEvent(@NotNull Event event) {
+        if (mDispatchObserver != null && event.mEventId != BatchCompletedEvent.ID) {
+            mDispatchObserver.onEventQueued(this, event);
+        }
+        if (event.isCoalescing() && !event.isTargeted() && !mEventQueue.isEmpty()) {
+            Event replacedEvent = mEventQueue.replace(event);
+            if (replacedEvent != null) {
+                mCoalescedEventCount++;
+                if (replacedEvent != event && replacedEvent.recycle()) {
+                    releaseEvent(replacedEvent);
+                }
+                return;
+            }
+        }
+        mEventQueue.add(event);
+    }
 
-        if (mDispatchingEvent == null) {
-            mDispatchingEvent = event;
+    private void dispatchQueuedEvents() {
+        long budgetNanos = mFrameBudgetNanos;
+        long frameStartNanos = 0;
+        if (budgetNanos > 0) {
+            frameStartNanos = System.nanoTime();
+            if (mBurstFrameCount == 0 && !mEventQueue.isEmpty()) {
+                mBurstFrameCount = 1;
+            }
+        }
 
-            // dispatch event right away
-            Event e = mDispatchingEvent;
-            while (e != null) {
+        mDispatching = true;
+        boolean completed = false;
+        try {
+            // a batch started in a callback parks queued events until it is committed
+            while (mBatchDepth == 0 && !mEventQueue.isEmpty()) {
+                Event e;
+                if (budgetNanos > 0 && (mFrameDrainScheduled
+                        || System.nanoTime() - frameStartNanos >= budgetNanos)) {
+                    // budget is used up, other events than urgent ones wait for next frame
+                    e = mEventQueue.pollUrgent();
+                    if (e == null) {
+                        break;
+                    }
+                } else {
+                    e = mEventQueue.poll();
+                }
 
-                // dispatch to all features first
-                for (Feature feature : mFeatures.values()) {
-                    //noinspection unchecked
-                    e.dispatch(feature);
+                if (e.mEventId == BatchCompletedEvent.ID) {
+                    notifyDispatchCompleted(e);
+                    continue;
+                }
+                if (e.isBackground()) {
+                    dispatchInBackground(e);
+                    continue;
                 }
 
-                // dispatch event completion now
-                if (e.mOnDispatchCompleted != null) {
-                    e.mOnDispatchCompleted.onDispatchCompleted();
+                // dispatch to subscribed features first, then dispatch event completion
+                Feature[] subscribers = getSubscribers(e.mEventId);
+                DispatchObserver observer = mDispatchObserver;
+                FeatureWatchdog watchdog = mWatchdog;
+                if (observer == null && watchdog == null && sTraceSink == null) {
+                    if (!e.isTargeted()) {
+                        for (int i = 0; i < subscribers.length; i++) {
+                            // features removed during this dispatch are skipped
+                            if (subscribers[i].isAttachedTo(this)) {
+                                e.dispatch(subscribers[i]);
+                            }
+                        }
+                    } else if (e.mTargetName != null) {
+                        Feature namedTarget = getNamedTarget(e);
+                        if (namedTarget != null) {
+                            e.dispatch(namedTarget);
+                        }
+                    } else {
+                        for (int i = 0; i < subscribers.length; i++) {
+                            if (acceptsTagged(subscribers[i], e)) {
+                                e.dispatch(subscribers[i]);
+                            }
+                        }
+                    }
+                    notifyDispatchCompleted(e);
+                } else {
+                    // observed, watched and traced events take the slow path
+                    dispatchObserved(e, subscribers, observer, watchdog);
                 }
 
-                // pick up next event
-                e = e.mNextEvent;
+                // keep sticky events for features added later, put others back into the pool
+                if (e.isSticky() && !e.isTargeted() && mMaxStickyEvents > 0) {
+                    keepStickyEvent(e);
+                } else if (e.recycle()) {
+                    releaseEvent(e);
+                }
             }
+            completed = true;
+        } finally {
+            // a throwing feature must not block later dispatches, queued events stay queued
+            mDispatching = false;
+            if (!completed) {
+                // a throwing callback cannot commit the batch it has started
+                mBatchDepth = 0;
+            }
+        }
 
-            mDispatchingEvent = null;
+        if (budgetNanos > 0 && mBatchDepth == 0) {
+            completeFrame();
+        }
+    }
+
+    private void completeFrame() {
+        if (!mEventQueue.isEmpty()) {
+            if (!mFrameDrainScheduled) {
+                mDispatcher.executeOnNextFrame(mFrameDrain);
+                mFrameDrainScheduled = true;
+            }
             return;
         }
+        if (mFrameDrainScheduled || mBurstFrameCount == 0) {
+            return;
+        }
+
+        // queue is empty, the burst is over
+        int frameCount = mBurstFrameCount;
+        mBurstFrameCount = 0;
+        if (frameCount > mPeakBurstFrameCount) {
+            mPeakBurstFrameCount = frameCount;
+        }
+        if (mDispatchObserver != null) {
+            mDispatchObserver.onBurstCompleted(this, frameCount);
+        }
+    }
+
+    private void drainNextFrame() {
+        mFrameDrainScheduled = false;
+        mBurstFrameCount++;
+        if (!mDispatching && mBatchDepth == 0) {
+            dispatchQueuedEvents();
+        }
+    }
+
+    private void dispatchObserved(@NotNull Event event, @NotNull Feature[] subscribers,
+                                  @Nullable DispatchObserver observer,
+                                  @Nullable FeatureWatchdog watchdog) {
+        // sections are paired by the sink they were opened in
+        TraceSink traceSink = sTraceSink;
+        if (traceSink != null) {
+            beginEventSection(traceSink, event);
+        }
+        try {
+            if (observer != null) {
+                observer.onEventStarted(this, event);
+            }
+            if (event.mTargetName != null) {
+                Feature namedTarget = getNamedTarget(event);
+                if (namedTarget != null) {
+                    dispatchGuarded(event, namedTarget, observer, watchdog, traceSink);
+                }
+            } else {
+                for (int i = 0; i < subscribers.length; i++) {
+                    if (acceptsTagged(subscribers[i], event)) {
+                        dispatchGuarded(event, subscribers[i], observer, watchdog, traceSink);
+                    }
+                }
+            }
+            notifyDispatchCompleted(event);
+            if (observer != null) {
+                observer.onEventCompleted(this, event);
+            }
+        } finally {
+            if (traceSink != null) {
+                traceSink.endSection();
+            }
+        }
+    }
+
+    /**
+     * Delivers given event to a single subscriber. Quarantined subscribers are skipped,
+     * exceptions are passed to the watchdog, if installed, and the callback is traced and
+     * reported to the observer.
+     */
+    private void dispatchGuarded(@NotNull Event event, @NotNull Feature subscriber,
+                                 @Nullable DispatchObserver observer,
+                                 @Nullable FeatureWatchdog watchdog,
+                                 @Nullable TraceSink traceSink) {
+        if (watchdog != null && watchdog.isQuarantined(subscriber)) {
+            return;
+        }
+        if (traceSink != null) {
+            traceSink.beginSection(subscriber.getTraceName());
+        }
+        boolean timed = observer != null || watchdog != null;
+        RuntimeException exception = null;
+        long startNanos = timed ? System.nanoTime() : 0;
+        int batchDepth = mBatchDepth;
+        try {
+            event.dispatch(subscriber);
+        } catch (RuntimeException e) {
+            if (watchdog == null) {
+                throw e;
+            }
+            exception = e;
+            mBatchDepth = batchDepth;
+        } finally {
+            if (traceSink != null) {
+                traceSink.endSection();
+            }
+        }
+        long endNanos = timed ? System.nanoTime() : 0;
+        if (observer != null) {
+            observer.onFeatureDispatched(this, event, subscriber, startNanos, endNanos);
+        }
+        if (watchdog != null) {
+            watchdog.onFeatureDispatched(this, event, subscriber,
+                    startNanos, endNanos, exception);
+        }
+    }
+
+    /**
+     * Returns the feature registered under the target name of given event, if it is
+     * subscribed to the event. Both lookups take constant time, thus events to named
+     * features never scan subscribers.
+     */
+    @Nullable
+    private Feature getNamedTarget(@NotNull Event event) {
+        Feature target = mFeatures.get(event.mTargetName);
+        return target != null && target.isSubscribed(event.mEventId) ? target : null;
+    }
+
+    private boolean acceptsTagged(@NotNull Feature subscriber, @NotNull Event event) {
+        // features removed during this dispatch are skipped
+        if (!subscriber.isAttachedTo(this)) {
+            return false;
+        }
+        return event.mTargetTags == 0 || (subscriber.getTags() & event.mTargetTags) != 0;
+    }
+
+    private void beginEventSection(@NotNull TraceSink traceSink, @NotNull Event event) {
+        String eventName = getEventName(event.mEventId);
+        if (eventName == null) {
+            eventName = event.getClass().getName();
+            if (eventName.length() > TraceSink.MAX_SECTION_NAME_LENGTH) {
+                eventName = eventName.substring(0, TraceSink.MAX_SECTION_NAME_LENGTH);
+            }
+        }
+        traceSink.beginSection(eventName);
+    }
+
+    private static void notifyDispatchCompleted(@NotNull Event event) {
+        if (event.mOnDispatchCompleted != null) {
+            event.mOnDispatchCompleted.onDispatchCompleted();
+        }
+    }
+
+    /**
+     * Returns executor delivering background events. Feature hosts share a common pool
+     * of worker threads by default.
+     *
+     * @return executor for background events
+     */
+    @NotNull
+    protected Executor getBackgroundExecutor() {
+        return BackgroundExecutor.get();
+    }
+
+    private void dispatchInBackground(@NotNull final Event event) {
+        if (mBackgroundLane == null) {
+            mBackgroundLane = new SerialExecutor(getBackgroundExecutor());
+        }
+
+        // registry is accessed in the dispatcher thread only, thus we resolve target here
+        final Feature[] subscribers;
+        if (event.mTargetName == null) {
+            subscribers = getSubscribers(event.mEventId);
+        } else {
+            Feature namedTarget = getNamedTarget(event);
+            subscribers = namedTarget == null ? NO_SUBSCRIBERS : new Feature[]{namedTarget};
+        }
+
+        // event is traced, if tracing was enabled when the event was handed over
+        final TraceSink traceSink = sTraceSink;
+        mBackgroundLane.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (traceSink != null) {
+                        dispatchTraced(traceSink, event, subscribers);
+                    } else {
+                        for (int i = 0; i < subscribers.length; i++) {
+                            if (acceptsTagged(subscribers[i], event)) {
+                                event.dispatch(subscribers[i]);
+                            }
+                        }
+                    }
+                } finally {
+                    final OnDispatchCompleted onDispatchCompleted = event.mOnDispatchCompleted;
+                    if (onDispatchCompleted != null) {
+                        mDispatcher.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                onDispatchCompleted.onDispatchCompleted();
+                            }
+                        });
+                    }
+                }
+            }
+        });
+    }
+
+    private void dispatchTraced(@NotNull TraceSink traceSink, @NotNull Event event,
+                                @NotNull Feature[] subscribers) {
+        beginEventSection(traceSink, event);
+        try {
+            for (int i = 0; i < subscribers.length; i++) {
+                if (!acceptsTagged(subscribers[i], event)) {
+                    continue;
+                }
+                traceSink.beginSection(subscribers[i].getTraceName());
+                try {
+                    event.dispatch(subscribers[i]);
+                } finally {
+                    traceSink.endSection();
+                }
+            }
+        } finally {
+            traceSink.endSection();
+        }
+    }
+
+    /**
+     * Returns the maximum number of events, which were waiting in the queue of this
+     * feature host at the same time. Events get queued when they are dispatched from
+     * within a feature callback.
+     *
+     * @return peak number of queued events
+     */
+    public int getPeakQueueDepth() {
+        return mEventQueue.getPeakSize();
+    }
+
+    /**
+     * Returns the maximum number of frames, a burst of events was dispatched in. A burst
+     * starts with a dispatch call and ends, when the queue gets empty. Bursts are only
+     * counted when a frame budget is set.
+     *
+     * @return peak number of frames per burst
+     * @see #setFrameBudget(long)
+     */
+    public int getPeakBurstFrameCount() {
+        return mPeakBurstFrameCount;
+    }
+
+    /**
+     * Returns the number of coalescing events, which replaced pending events of the same
+     * type instead of being queued.
+     *
+     * @return number of coalesced events
+     */
+    public int getCoalescedEventCount() {
+        return mCoalescedEventCount;
+    }
+
+    private void releaseEvent(@NotNull Event event) {
+        event.mTargetName = null;
+        event.mTargetTags = 0;
+        int eventId = event.mEventId;
+        if (eventId >= mEventPool.length) {
+            mEventPool = Arrays.copyOf(mEventPool, eventId + 1);
+            mEventPoolSizes = Arrays.copyOf(mEventPoolSizes, eventId + 1);
+        }
+        if (mEventPoolSizes[eventId] < MAX_POOLED_EVENTS) {
+            event.mNextPooledEvent = mEventPool[eventId];
+            mEventPool[eventId] = event;
+            mEventPoolSizes[eventId]++;
+        }
+    }
+
+    @NotNull
+    private Feature[] getSubscribers(int eventId) {
+        if (mLazySubscribers != null && eventId < mLazySubscribers.length
+                && mLazySubscribers[eventId]) {
+            instantiateLazyFeatures(eventId);
+        }
+        return eventId < mSubscribers.length ? mSubscribers[eventId] : NO_SUBSCRIBERS;
+    }
+
+    private void instantiateLazyFeatures(int eventId) {
+        Feature[] subscribers = mSubscribers[eventId];
+        for (int i = 0; i < subscribers.length; i++) {
+            if (subscribers[i] instanceof LazyFeature) {
+                instantiateLazyFeature((LazyFeature) subscribers[i]);
+            }
+        }
+        mLazySubscribers[eventId] = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void instantiateLazyFeature(@NotNull LazyFeature lazyFeature) {
+        long startNanos = System.nanoTime();
+        Feature feature = lazyFeature.instantiate();
+        long endNanos = System.nanoTime();
+
+        mFeatures.add(feature, null);
+        feature.setPriority(lazyFeature.getPriority());
+        feature.takeSubscriptions(lazyFeature);
+        feature.attachFeatureHost(this);
+
+        // feature takes the place of its placeholder in all subscriber lists, which are
+        // copied on write, because dispatches in progress iterate them
+        for (int eventId = 0; eventId < mSubscribers.length; eventId++) {
+            Feature[] subscribers = mSubscribers[eventId];
+            for (int i = 0; i < subscribers.length; i++) {
+                if (subscribers[i] == lazyFeature) {
+                    Feature[] newSubscribers = subscribers.clone();
+                    newSubscribers[i] = feature;
+                    mSubscribers[eventId] = newSubscribers;
+                    break;
+                }
+            }
+        }
 
-        // already dispatching, put event to the end of chain
-        Event e = mDispatchingEvent;
-        while (e.mNextEvent != null) {
-            e = e.mNextEvent;
+        if (mDispatchObserver != null) {
+            mDispatchObserver.onFeatureInstantiated(this, feature, startNanos, endNanos);
         }
-        e.mNextEvent = event;
+        replayStickyEvents(feature);
     }
 
-    private void assertMainThread() {
-        if (Thread.currentThread() != Looper.getMainLooper().getThread()) {
+    private void assertDispatchThread() {
+        if (!mDispatcher.isDispatchThread()) {
             throw new IllegalStateException(
-                    "Dispatch must be called in MainThread. Current thread: "
+                    "Dispatch must be called in " + mDispatcher + ". Current thread: "
                             + Thread.currentThread());
         }
     }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Provider creating a feature on demand. Features registered with a provider using
+ * generated {@code with(FeatureProvider)} methods are instantiated when the first event
+ * they subscribe to is dispatched. Features registered with generated
+ * {@code with(Class, FeatureProvider)} methods are only subscribed to the events their
+ * class overrides, so that the provider must create instances of exactly that class.
+ *
+ * @param <F> type of the provided feature
+ * @author sergej shafarenka
+ */
+public interface FeatureProvider<F extends Feature> {
+
+    /**
+     * Creates a new feature instance. Called once in the dispatcher thread.
+     *
+     * @return new feature instance
+     */
+    @NotNull F get();
+
+}
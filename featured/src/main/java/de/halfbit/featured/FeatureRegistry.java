@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Features registered in a feature host. Features registered without a name are looked
+ * up by identity of their class, named features are looked up by their name. Names are
+ * also kept by feature, so that removing a feature takes constant time.
+ *
+ * @author sergej shafarenka
+ */
+final class FeatureRegistry {
+
+    private final IdentityHashMap<Class<?>, Feature> mFeaturesByClass;
+    private HashMap<String, Feature> mFeaturesByName;
+    private IdentityHashMap<Feature, String> mNamesByFeature;
+
+    FeatureRegistry(int capacity) {
+        mFeaturesByClass = new IdentityHashMap<>(capacity);
+    }
+
+    void add(@NotNull Feature feature, @Nullable String featureName) {
+        if (featureName == null) {
+            Class<?> featureClass = feature.getClass();
+            Feature registeredFeature = mFeaturesByClass.get(featureClass);
+            if (registeredFeature != null) {
+                throw new IllegalArgumentException(
+                        String.format("There is already a feature %s registered for class %s. "
+                                + "Use feature name if you want to register same feature "
+                                + "class multiple times.", registeredFeature, featureClass));
+            }
+            mFeaturesByClass.put(featureClass, feature);
+
+        } else {
+            if (mFeaturesByName == null) {
+                mFeaturesByName = new HashMap<>(4);
+                mNamesByFeature = new IdentityHashMap<>(4);
+            }
+            Feature registeredFeature = mFeaturesByName.get(featureName);
+            if (registeredFeature != null) {
+                throw new IllegalArgumentException(
+                        String.format("There is already a feature %s registered with name %s. "
+                                + "Use different feature name if you want to register same "
+                                + "feature class multiple times.", registeredFeature, featureName));
+            }
+            mFeaturesByName.put(featureName, feature);
+            mNamesByFeature.put(feature, featureName);
+        }
+    }
+
+    /** Removes given feature. Returns {@code false} if the feature is not registered. */
+    boolean remove(@NotNull Feature feature) {
+        Class<?> featureClass = feature.getClass();
+        if (mFeaturesByClass.get(featureClass) == feature) {
+            mFeaturesByClass.remove(featureClass);
+            return true;
+        }
+        if (mNamesByFeature != null) {
+            String featureName = mNamesByFeature.remove(feature);
+            if (featureName != null) {
+                mFeaturesByName.remove(featureName);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    Feature get(@NotNull Class<?> featureClass) {
+        return mFeaturesByClass.get(featureClass);
+    }
+
+    @Nullable
+    Feature get(@NotNull String featureName) {
+        return mFeaturesByName == null ? null : mFeaturesByName.get(featureName);
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog protecting a feature host from misbehaving features. Once installed with
+ * {@link FeatureHost#setWatchdog(FeatureWatchdog)}, the feature host catches runtime
+ * exceptions thrown by feature callbacks, reports them to the {@link Listener} and
+ * continues dispatching the event to the next feature. Callbacks taking longer than
+ * the latency budget and throwing callbacks count as violations. A feature causing
+ * the given number of violations in a row is quarantined for the given time. It does
+ * not receive any events while in quarantine.
+ * <p/>
+ * Watchdog checks events dispatched in the dispatcher thread. Background events are
+ * neither measured nor isolated. The watchdog keeps state only for features, which
+ * have violated the budget recently or are in quarantine. It can be shared by feature
+ * hosts of different dispatchers.
+ *
+ * @author sergej shafarenka
+ */
+public final class FeatureWatchdog {
+
+    /**
+     * Listener receiving callbacks about isolated exceptions and quarantined features.
+     * Callbacks are called in the dispatcher thread of the feature host.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a feature has thrown an exception, which was caught by the
+         * feature host.
+         *
+         * @param featureHost feature host dispatching the event
+         * @param feature     feature, which has thrown the exception
+         * @param event       event the feature was handling
+         * @param exception   thrown exception
+         */
+        void onFeatureFailed(@NotNull FeatureHost featureHost, @NotNull Feature feature,
+                             @NotNull Object event, @NotNull RuntimeException exception);
+
+        /**
+         * Called after a feature has been put into quarantine.
+         *
+         * @param featureHost      feature host of the feature
+         * @param feature          quarantined feature
+         * @param quarantineMillis time in milliseconds, the feature receives no events
+         */
+        void onFeatureQuarantined(@NotNull FeatureHost featureHost, @NotNull Feature feature,
+                                  long quarantineMillis);
+    }
+
+    private final long mBudgetNanos;
+    private final int mMaxViolations;
+    private final long mQuarantineMillis;
+    private final Listener mListener;
+    private final Map<Feature, State> mStates; // guarded by itself
+
+    /**
+     * Creates new watchdog.
+     *
+     * @param budgetMillis     time in milliseconds, a feature callback may take
+     * @param maxViolations    number of violations in a row putting a feature into quarantine
+     * @param quarantineMillis time in milliseconds, a quarantined feature receives no events
+     * @param listener         listener to be notified about failures and quarantines
+     */
+    public FeatureWatchdog(long budgetMillis, int maxViolations, long quarantineMillis,
+                           @NotNull Listener listener) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("budgetMillis must be positive");
+        }
+        if (maxViolations <= 0) {
+            throw new IllegalArgumentException("maxViolations must be positive");
+        }
+        if (quarantineMillis <= 0) {
+            throw new IllegalArgumentException("quarantineMillis must be positive");
+        }
+        mBudgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        mMaxViolations = maxViolations;
+        mQuarantineMillis = quarantineMillis;
+        mListener = listener;
+        mStates = new IdentityHashMap<>();
+    }
+
+    /** Returns {@code true} if given feature is in quarantine. Ends expired quarantine. */
+    boolean isQuarantined(@NotNull Feature feature) {
+        synchronized (mStates) {
+            if (mStates.isEmpty()) {
+                return false;
+            }
+            State state = mStates.get(feature);
+            if (state == null || !state.mQuarantined) {
+                return false;
+            }
+            if (System.nanoTime() - state.mQuarantineEndNanos < 0) {
+                return true;
+            }
+
+            // violations are reset on quarantine, thus the state is not needed anymore
+            mStates.remove(feature);
+            return false;
+        }
+    }
+
+    void onFeatureDispatched(@NotNull FeatureHost featureHost, @NotNull Object event,
+                             @NotNull Feature feature, long startNanos, long endNanos,
+                             @Nullable RuntimeException exception) {
+        if (exception != null) {
+            mListener.onFeatureFailed(featureHost, feature, event, exception);
+        } else if (endNanos - startNanos <= mBudgetNanos) {
+            synchronized (mStates) {
+                if (!mStates.isEmpty()) {
+                    mStates.remove(feature);
+                }
+            }
+            return;
+        }
+
+        boolean quarantined;
+        synchronized (mStates) {
+            State state = mStates.get(feature);
+            if (state == null) {
+                state = new State();
+                mStates.put(feature, state);
+            }
+            quarantined = ++state.mViolationCount >= mMaxViolations;
+            if (quarantined) {
+                state.mViolationCount = 0;
+                state.mQuarantined = true;
+                state.mQuarantineEndNanos = endNanos
+                        + TimeUnit.MILLISECONDS.toNanos(mQuarantineMillis);
+            }
+        }
+        if (quarantined) {
+            mListener.onFeatureQuarantined(featureHost, feature, mQuarantineMillis);
+        }
+    }
+
+    void onFeatureRemoved(@NotNull Feature feature) {
+        synchronized (mStates) {
+            mStates.remove(feature);
+        }
+    }
+
+    private static final class State {
+        int mViolationCount;
+        boolean mQuarantined;
+        long mQuarantineEndNanos;
+    }
+
+}
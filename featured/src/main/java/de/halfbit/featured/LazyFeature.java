@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Placeholder of a feature registered with a {@link FeatureProvider}. It takes the
+ * place of the feature in subscriber lists until the feature gets instantiated.
+ *
+ * @author sergej shafarenka
+ */
+final class LazyFeature extends Feature<FeatureHost, Object> {
+
+    private final FeatureProvider<?> mProvider;
+    private final Class<? extends Feature> mFeatureClass;
+
+    LazyFeature(@NotNull FeatureProvider<?> provider,
+                @NotNull Class<? extends Feature> featureClass) {
+        mProvider = provider;
+        mFeatureClass = featureClass;
+    }
+
+    @NotNull
+    Feature instantiate() {
+        Feature feature = mProvider.get();
+        //noinspection ConstantConditions
+        if (feature == null) {
+            throw new IllegalStateException("Feature provider " + mProvider + " returned null");
+        }
+        if (!mFeatureClass.isInstance(feature)) {
+            throw new IllegalStateException("Feature provider " + mProvider + " returned "
+                    + feature + ", which is not an instance of " + mFeatureClass);
+        }
+        return feature;
+    }
+
+}
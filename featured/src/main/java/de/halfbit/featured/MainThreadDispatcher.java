@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.Choreographer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatcher executing runnables in Android's main thread.
+ *
+ * @author sergej shafarenka
+ */
+final class MainThreadDispatcher extends Dispatcher {
+
+    static final MainThreadDispatcher INSTANCE = new MainThreadDispatcher();
+
+    private final List<IdleTask> mIdleTasks = new ArrayList<>(); // main thread only
+    private Handler mHandler;
+
+    private MainThreadDispatcher() {
+    }
+
+    @Override
+    public boolean isDispatchThread() {
+        return Thread.currentThread() == Looper.getMainLooper().getThread();
+    }
+
+    @Override
+    public void execute(@NotNull Runnable runnable) {
+        getHandler().post(runnable);
+    }
+
+    /**
+     * Executes given runnable from an {@link MessageQueue.IdleHandler} of the main thread
+     * or after given timeout, whichever comes first.
+     */
+    @Override
+    public void executeWhenIdle(@NotNull final Runnable runnable, final long timeoutMillis) {
+        if (!isDispatchThread()) {
+            // idle handlers can only be added in the thread of their queue
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    executeWhenIdle(runnable, timeoutMillis);
+                }
+            });
+            return;
+        }
+        IdleTask task = new IdleTask(runnable);
+        mIdleTasks.add(task);
+        Looper.myQueue().addIdleHandler(task);
+        if (timeoutMillis > 0) {
+            getHandler().postDelayed(task, timeoutMillis);
+        }
+    }
+
+    @Override
+    public void cancelWhenIdle(@NotNull final Runnable runnable) {
+        if (!isDispatchThread()) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    cancelWhenIdle(runnable);
+                }
+            });
+            return;
+        }
+        for (int i = mIdleTasks.size() - 1; i >= 0; i--) {
+            IdleTask task = mIdleTasks.get(i);
+            if (task.mRunnable == runnable) {
+                task.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void executeDelayed(@NotNull Runnable runnable, long delayMillis) {
+        getHandler().postDelayed(runnable, delayMillis);
+    }
+
+    /**
+     * Executes given runnable from a {@link Choreographer} frame callback. Devices before
+     * API level 16 have no public frame callbacks and execute the runnable right as
+     * {@link #execute(Runnable)} does.
+     */
+    @Override
+    public void executeOnNextFrame(@NotNull final Runnable runnable) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            execute(runnable);
+            return;
+        }
+        if (!isDispatchThread()) {
+            // choreographer instances belong to the thread of their looper
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    executeOnNextFrame(runnable);
+                }
+            });
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                runnable.run();
+            }
+        });
+    }
+
+    @Override
+    public void cancelDelayed(@NotNull Runnable runnable) {
+        getHandler().removeCallbacks(runnable);
+    }
+
+    private synchronized Handler getHandler() {
+        if (mHandler == null) {
+            mHandler = new Handler(Looper.getMainLooper());
+        }
+        return mHandler;
+    }
+
+    @Override
+    public String toString() {
+        return "MainThread";
+    }
+
+    private final class IdleTask implements MessageQueue.IdleHandler, Runnable {
+
+        private final Runnable mRunnable;
+        private boolean mExecuted;
+
+        IdleTask(@NotNull Runnable runnable) {
+            mRunnable = runnable;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            run();
+            return false;
+        }
+
+        @Override
+        public void run() {
+            if (mExecuted) {
+                return;
+            }
+            cancel();
+            mRunnable.run();
+        }
+
+        void cancel() {
+            mExecuted = true;
+            mIdleTasks.remove(this);
+            Looper.myQueue().removeIdleHandler(this);
+            getHandler().removeCallbacks(this);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor running runnables one after another in the order they were submitted.
+ * Runnables are executed by given executor, but never concurrently.
+ *
+ * @author sergej shafarenka
+ */
+final class SerialExecutor implements Executor {
+
+    private final Executor mExecutor;
+    private final ArrayDeque<Runnable> mRunnables;
+    private Runnable mActive;
+
+    SerialExecutor(@NotNull Executor executor) {
+        mExecutor = executor;
+        mRunnables = new ArrayDeque<>();
+    }
+
+    @Override
+    public synchronized void execute(@NotNull final Runnable runnable) {
+        mRunnables.offer(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    scheduleNext();
+                }
+            }
+        });
+        if (mActive == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        mActive = mRunnables.poll();
+        if (mActive != null) {
+            mExecutor.execute(mActive);
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dispatcher executing runnables in its own background thread. If a runnable throws,
+ * the thread gets replaced by a new one and the dispatcher continues executing
+ * remaining runnables.
+ *
+ * @author sergej shafarenka
+ */
+public final class SingleThreadDispatcher extends Dispatcher {
+
+    private final String mThreadName;
+    private final BlockingQueue<Runnable> mQueue;
+    private final ThreadPoolExecutor mExecutor;
+    private final Queue<IdleTask> mIdleTasks;
+    private final AtomicBoolean mIdleDrainScheduled;
+    private final Runnable mIdleDrain;
+    private volatile Thread mThread;
+
+    SingleThreadDispatcher(@NotNull String threadName) {
+        mThreadName = threadName;
+        mQueue = new LinkedBlockingQueue<>();
+        mExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, mQueue,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NotNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, mThreadName);
+                        mThread = thread;
+                        return thread;
+                    }
+                });
+        mIdleTasks = new ConcurrentLinkedQueue<>();
+        mIdleDrainScheduled = new AtomicBoolean();
+        mIdleDrain = new Runnable() {
+            @Override
+            public void run() {
+                drainIdleTasks();
+            }
+        };
+    }
+
+    @Override
+    public boolean isDispatchThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable runnable) {
+        mExecutor.execute(runnable);
+    }
+
+    /**
+     * Executes given runnable once there are no other runnables waiting for execution.
+     * Idle runnables wait in a queue of their own, which is drained by a single runnable
+     * of the dispatcher. While other runnables are waiting, the drain only executes idle
+     * runnables with expired timeout and moves to the end of the queue.
+     */
+    @Override
+    public void executeWhenIdle(@NotNull Runnable runnable, long timeoutMillis) {
+        long deadlineNanos = timeoutMillis == 0 ? 0
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        mIdleTasks.add(new IdleTask(runnable, timeoutMillis != 0, deadlineNanos));
+        scheduleIdleDrain();
+    }
+
+    @Override
+    public void cancelWhenIdle(@NotNull Runnable runnable) {
+        for (Iterator<IdleTask> iterator = mIdleTasks.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().mRunnable == runnable) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void scheduleIdleDrain() {
+        if (mIdleDrainScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mIdleDrain);
+        }
+    }
+
+    private void drainIdleTasks() {
+        mIdleDrainScheduled.set(false);
+        try {
+            long nowNanos = System.nanoTime();
+            for (Iterator<IdleTask> iterator = mIdleTasks.iterator(); iterator.hasNext(); ) {
+                IdleTask task = iterator.next();
+                boolean idle = mQueue.isEmpty() || mExecutor.isShutdown();
+                if (idle || (task.mHasDeadline && task.mDeadlineNanos - nowNanos <= 0)) {
+                    iterator.remove();
+                    task.mRunnable.run();
+                }
+            }
+        } finally {
+            // idle tasks left behind wait for the runnables queued before the drain
+            if (!mIdleTasks.isEmpty() && !mExecutor.isShutdown()) {
+                scheduleIdleDrain();
+            }
+        }
+    }
+
+    /**
+     * Executes already submitted runnables and stops the dispatcher thread afterwards.
+     * Runnables submitted after this call are rejected.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "Thread[" + mThreadName + "]";
+    }
+
+    private static final class IdleTask {
+
+        final Runnable mRunnable;
+        final boolean mHasDeadline;
+        final long mDeadlineNanos;
+
+        IdleTask(@NotNull Runnable runnable, boolean hasDeadline, long deadlineNanos) {
+            mRunnable = runnable;
+            mHasDeadline = hasDeadline;
+            mDeadlineNanos = deadlineNanos;
+        }
+    }
+
+}
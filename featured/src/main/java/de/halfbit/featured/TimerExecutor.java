@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single timer thread shared by dispatchers, which have no own means of executing
+ * delayed runnables. The timer thread only hands runnables over to their dispatchers.
+ *
+ * @author sergej shafarenka
+ */
+final class TimerExecutor {
+
+    private TimerExecutor() {
+    }
+
+    @NotNull
+    static ScheduledThreadPoolExecutor get() {
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * Cancels given future and removes it from the timer queue right away, so that the
+     * queue does not hold its runnable until the delay is over.
+     */
+    static void cancel(@NotNull Future<?> future) {
+        future.cancel(false);
+        if (future instanceof Runnable) {
+            Holder.EXECUTOR.remove((Runnable) future);
+        }
+    }
+
+    private static final class Holder {
+        static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        return new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NotNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "featured-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
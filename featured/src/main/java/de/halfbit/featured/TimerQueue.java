@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Delayed events of a feature host ordered by their due time. Events are kept in a
+ * binary min-heap, so adding and removing events takes logarithmic time and the next
+ * due event is found in constant time. Events due at the same time are polled in the
+ * order they were added.
+ *
+ * @author sergej shafarenka
+ */
+final class TimerQueue {
+
+    private FeatureHost.ScheduledEvent[] mEvents;
+    private int mSize;
+    private long mNextSequence;
+
+    TimerQueue(int capacity) {
+        mEvents = new FeatureHost.ScheduledEvent[Math.max(capacity, 2)];
+    }
+
+    void add(@NotNull FeatureHost.ScheduledEvent event) {
+        if (mSize == mEvents.length) {
+            mEvents = Arrays.copyOf(mEvents, mSize << 1);
+        }
+        event.mSequence = mNextSequence++;
+        siftUp(mSize++, event);
+    }
+
+    @Nullable
+    FeatureHost.ScheduledEvent peek() {
+        return mSize == 0 ? null : mEvents[0];
+    }
+
+    @Nullable
+    FeatureHost.ScheduledEvent poll() {
+        if (mSize == 0) {
+            return null;
+        }
+        FeatureHost.ScheduledEvent event = mEvents[0];
+        removeAt(0);
+        return event;
+    }
+
+    /** Removes given event. Returns {@code false} if the event is not in the queue. */
+    boolean remove(@NotNull FeatureHost.ScheduledEvent event) {
+        int index = event.mIndex;
+        if (index < 0 || index >= mSize || mEvents[index] != event) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    private void removeAt(int index) {
+        mEvents[index].mIndex = -1;
+        FeatureHost.ScheduledEvent last = mEvents[--mSize];
+        mEvents[mSize] = null;
+        if (index < mSize) {
+            siftDown(index, last);
+            if (mEvents[index] == last) {
+                siftUp(index, last);
+            }
+        }
+    }
+
+    private void siftUp(int index, @NotNull FeatureHost.ScheduledEvent event) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            FeatureHost.ScheduledEvent parentEvent = mEvents[parent];
+            if (!isBefore(event, parentEvent)) {
+                break;
+            }
+            set(index, parentEvent);
+            index = parent;
+        }
+        set(index, event);
+    }
+
+    private void siftDown(int index, @NotNull FeatureHost.ScheduledEvent event) {
+        int half = mSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < mSize && isBefore(mEvents[right], mEvents[child])) {
+                child = right;
+            }
+            if (!isBefore(mEvents[child], event)) {
+                break;
+            }
+            set(index, mEvents[child]);
+            index = child;
+        }
+        set(index, event);
+    }
+
+    private void set(int index, @NotNull FeatureHost.ScheduledEvent event) {
+        mEvents[index] = event;
+        event.mIndex = index;
+    }
+
+    private static boolean isBefore(@NotNull FeatureHost.ScheduledEvent event1,
+                                    @NotNull FeatureHost.ScheduledEvent event2) {
+        long delta = event1.mDueNanos - event2.mDueNanos;
+        return delta < 0 || delta == 0 && event1.mSequence < event2.mSequence;
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receiver of trace sections, which feature hosts open around dispatched events and
+ * feature callbacks. Every {@link #beginSection(String)} call is matched by exactly one
+ * {@link #endSection()} call in the same thread.
+ *
+ * @author sergej shafarenka
+ */
+interface TraceSink {
+
+    /** Maximum length of section names accepted by Android's {@code Trace}. */
+    int MAX_SECTION_NAME_LENGTH = 127;
+
+    void beginSection(@NotNull String sectionName);
+
+    void endSection();
+
+}
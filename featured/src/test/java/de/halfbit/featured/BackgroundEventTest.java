@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BackgroundEventTest {
+
+    private static final String HOST_THREAD = "featured-host";
+    private static final int EVENTS = 50;
+
+    private SingleThreadDispatcher mDispatcher;
+    private TestFeature mFeature;
+    private TestFeatureHost mFeatureHost;
+
+    @Before
+    public void before() {
+        mDispatcher = Dispatcher.newSingleThread(HOST_THREAD);
+        mFeature = new TestFeature();
+        mFeatureHost = new TestFeatureHost(mDispatcher).with(mFeature);
+    }
+
+    @After
+    public void after() {
+        mDispatcher.shutdown();
+    }
+
+    @Test
+    public void backgroundEventsAreDeliveredInBackgroundInOrder() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < EVENTS - 1; i++) {
+                    mFeatureHost.dispatchOnBackgroundValue(i, null);
+                }
+                mFeatureHost.dispatchOnBackgroundValue(EVENTS - 1,
+                        new FeatureHost.OnDispatchCompleted() {
+                            @Override
+                            public void onDispatchCompleted() {
+                                latch.countDown();
+                            }
+                        });
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(mFeature.mValues).hasSize(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            String value = mFeature.mValues.get(i);
+            assertThat(value).startsWith("featured-background-");
+            assertThat(value).endsWith(":" + i);
+        }
+    }
+
+    @Test
+    public void dispatchCompletedIsCalledInHostThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean isHostThread = new AtomicBoolean();
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                mFeatureHost.dispatchOnBackgroundValue(1, new FeatureHost.OnDispatchCompleted() {
+                    @Override
+                    public void onDispatchCompleted() {
+                        isHostThread.set(mDispatcher.isDispatchThread());
+                        latch.countDown();
+                    }
+                });
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(isHostThread.get()).isTrue();
+        assertThat(mFeature.mValues).hasSize(1);
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class BatchDispatchTest {
+
+    private TestFeature mFeature;
+    private TestFeatureHost mFeatureHost;
+    private List<String> mCompletions;
+
+    @Before
+    public void before() {
+        mFeature = new TestFeature();
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread()).with(mFeature);
+        mCompletions = new ArrayList<>();
+    }
+
+    @Test
+    public void batchedEventsAreDeliveredOnCommit() {
+        mFeatureHost.beginBatch();
+        mFeatureHost.dispatchOnProgress(1, 10);
+        mFeatureHost.dispatchOnProgress(2, 20);
+        assertThat(mFeature.mValues).isEmpty();
+
+        mFeatureHost.commit(newCompletion("batch"));
+
+        assertThat(mFeature.mValues).containsExactly("1=10", "2=20").inOrder();
+        assertThat(mCompletions).containsExactly("batch:2");
+    }
+
+    @Test
+    public void nestedBatchIsDeliveredByOutermostCommit() {
+        mFeatureHost.beginBatch();
+        mFeatureHost.dispatchOnProgress(1, 10);
+        mFeatureHost.beginBatch();
+        mFeatureHost.dispatchOnProgress(2, 20);
+        mFeatureHost.commit(newCompletion("inner"));
+        assertThat(mFeature.mValues).isEmpty();
+
+        mFeatureHost.dispatchOnProgress(3, 30);
+        mFeatureHost.commit(newCompletion("outer"));
+
+        assertThat(mFeature.mValues).containsExactly("1=10", "2=20", "3=30").inOrder();
+        assertThat(mCompletions).containsExactly("inner:2", "outer:3").inOrder();
+    }
+
+    @Test
+    public void batchCommittedInCallbackIsDeliveredAfterCurrentEvent() {
+        final TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread());
+        TestFeature feature = new TestFeature() {
+            @Override
+            void onValue(int value) {
+                host.beginBatch();
+                host.dispatchOnProgress(1, 10);
+                host.dispatchOnProgress(2, 20);
+                host.commit(null);
+                super.onValue(value);
+            }
+        };
+        host.with(feature);
+
+        host.dispatchOnValue(0);
+
+        String thread = Thread.currentThread().getName();
+        assertThat(feature.mValues).containsExactly(thread + ":0", "1=10", "2=20").inOrder();
+    }
+
+    @Test
+    public void batchStartedInCallbackIsHeldBackUntilCommit() {
+        final TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread());
+        final TestFeature feature = new TestFeature() {
+            @Override
+            void onValue(int value) {
+                host.beginBatch();
+                host.dispatchOnProgress(1, 10);
+                host.dispatchOnProgress(2, 20);
+                super.onValue(value);
+            }
+        };
+        host.with(feature);
+
+        host.dispatchOnValue(0);
+        String thread = Thread.currentThread().getName();
+        assertThat(feature.mValues).containsExactly(thread + ":0");
+
+        host.commit(new FeatureHost.OnDispatchCompleted() {
+            @Override
+            public void onDispatchCompleted() {
+                mCompletions.add("batch:" + feature.mValues.size());
+            }
+        });
+        assertThat(feature.mValues).containsExactly(thread + ":0", "1=10", "2=20").inOrder();
+        assertThat(mCompletions).containsExactly("batch:3");
+    }
+
+    @Test
+    public void batchOfThrowingCallbackDoesNotHoldBackLaterEvents() {
+        final TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread());
+        final TestFeature feature = new TestFeature() {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                if (value == 0) {
+                    host.beginBatch();
+                    host.dispatchOnProgress(1, 10);
+                    throw new IllegalStateException("expected by test");
+                }
+            }
+        };
+        host.with(feature);
+
+        try {
+            host.dispatchOnValue(0);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        host.dispatchOnValue(2);
+
+        String thread = Thread.currentThread().getName();
+        assertThat(feature.mValues)
+                .containsExactly(thread + ":0", "1=10", thread + ":2").inOrder();
+    }
+
+    @Test
+    public void batchCompletionIsNotTraced() {
+        final List<String> sections = new ArrayList<>();
+        FeatureHost.setTraceSink(new TraceSink() {
+            @Override
+            public void beginSection(@NotNull String sectionName) {
+                sections.add(sectionName);
+            }
+
+            @Override
+            public void endSection() {
+                // nop
+            }
+        });
+        try {
+            mFeatureHost.beginBatch();
+            mFeatureHost.dispatchOnProgress(1, 10);
+            mFeatureHost.commit(newCompletion("batch"));
+        } finally {
+            FeatureHost.setTracingEnabled(false);
+        }
+
+        assertThat(sections).containsExactly("TestFeature.onProgress", "TestFeature").inOrder();
+        assertThat(mCompletions).containsExactly("batch:1");
+    }
+
+    @Test
+    public void commitWithoutBeginBatchFails() {
+        try {
+            mFeatureHost.commit(null);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private FeatureHost.OnDispatchCompleted newCompletion(final String name) {
+        return new FeatureHost.OnDispatchCompleted() {
+            @Override
+            public void onDispatchCompleted() {
+                mCompletions.add(name + ":" + mFeature.mValues.size());
+            }
+        };
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.Test;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CoalescingEventTest {
+
+    @Test
+    public void pendingEventsAreReplacedByLatestEventWithSameKey() {
+        final TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread());
+        TestFeature feature = new TestFeature() {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                host.dispatchOnProgress(1, 10);
+                host.dispatchOnProgress(2, 20);
+                host.dispatchOnProgress(1, 11);
+                host.dispatchOnProgress(1, 12);
+                host.dispatchOnProgress(2, 21);
+            }
+        };
+        host.with(feature);
+
+        host.dispatchOnValue(0);
+
+        String thread = Thread.currentThread().getName();
+        assertThat(feature.mValues).containsExactly(thread + ":0", "1=12", "2=21").inOrder();
+        assertThat(host.getCoalescedEventCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void eventsDispatchedFromIdleHostAreNotCoalesced() {
+        TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread());
+        TestFeature feature = new TestFeature();
+        host.with(feature);
+
+        host.dispatchOnProgress(1, 10);
+        host.dispatchOnProgress(1, 11);
+
+        assertThat(feature.mValues).containsExactly("1=10", "1=11").inOrder();
+        assertThat(host.getCoalescedEventCount()).isEqualTo(0);
+    }
+
+}
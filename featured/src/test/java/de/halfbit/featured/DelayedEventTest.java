@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class DelayedEventTest {
+
+    private static final String THREAD_NAME = "featured-test";
+
+    private SingleThreadDispatcher mDispatcher;
+    private TestFeature mFeature;
+    private TestFeatureHost mFeatureHost;
+
+    @Before
+    public void before() {
+        mDispatcher = Dispatcher.newSingleThread(THREAD_NAME);
+        mFeature = new TestFeature();
+        mFeatureHost = new TestFeatureHost(mDispatcher).with(mFeature);
+    }
+
+    @After
+    public void after() {
+        mDispatcher.shutdown();
+    }
+
+    @Test
+    public void delayedEventsAreDispatchedInOrderOfDueTime() throws Exception {
+        runInDispatcher(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mFeatureHost.dispatchOnValueDelayed(60, 3);
+                mFeatureHost.dispatchOnValueDelayed(20, 1);
+                mFeatureHost.dispatchOnValueDelayed(40, 2);
+                mFeatureHost.dispatchOnValue(0);
+                return null;
+            }
+        });
+
+        awaitValues(4);
+        assertThat(mFeature.mValues).containsExactly(THREAD_NAME + ":0", THREAD_NAME + ":1",
+                THREAD_NAME + ":2", THREAD_NAME + ":3").inOrder();
+    }
+
+    @Test
+    public void cancelledEventIsNotDispatched() throws Exception {
+        final FeatureHost.ScheduledEvent event = runInDispatcher(
+                new Callable<FeatureHost.ScheduledEvent>() {
+                    @Override
+                    public FeatureHost.ScheduledEvent call() {
+                        mFeatureHost.dispatchOnValueDelayed(40, 2);
+                        return mFeatureHost.dispatchOnValueDelayed(20, 1);
+                    }
+                });
+        boolean cancelled = runInDispatcher(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return event.cancel();
+            }
+        });
+
+        awaitValues(1);
+        assertThat(cancelled).isTrue();
+        assertThat(event.isPending()).isFalse();
+        assertThat(mFeature.mValues).containsExactly(THREAD_NAME + ":2");
+    }
+
+    @Test
+    public void destroyCancelsAllDelayedEvents() throws Exception {
+        final FeatureHost.ScheduledEvent event = runInDispatcher(
+                new Callable<FeatureHost.ScheduledEvent>() {
+                    @Override
+                    public FeatureHost.ScheduledEvent call() {
+                        mFeatureHost.dispatchOnValueDelayed(10, 2);
+                        FeatureHost.ScheduledEvent event =
+                                mFeatureHost.dispatchOnValueDelayed(20, 1);
+                        mFeatureHost.destroy();
+                        mFeatureHost.dispatchOnValueDelayed(40, 3);
+                        return event;
+                    }
+                });
+
+        awaitValues(1);
+        assertThat(event.isPending()).isFalse();
+        assertThat(mFeature.mValues).containsExactly(THREAD_NAME + ":3");
+    }
+
+    @Test
+    public void destroyRemovesTimerOfDefaultDispatcher() throws Exception {
+        final Set<Runnable> timerTasks = new HashSet<>(TimerExecutor.get().getQueue());
+        Runnable timerTask = runInDispatcher(new Callable<Runnable>() {
+            @Override
+            public Runnable call() {
+                mFeatureHost.dispatchOnValueDelayed(10000, 1);
+                Set<Runnable> scheduledTasks = new HashSet<>(TimerExecutor.get().getQueue());
+                scheduledTasks.removeAll(timerTasks);
+                assertThat(scheduledTasks).hasSize(1);
+                mFeatureHost.destroy();
+                return scheduledTasks.iterator().next();
+            }
+        });
+
+        assertThat(TimerExecutor.get().getQueue()).doesNotContain(timerTask);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void callerThreadDispatcherCannotDelayEvents() {
+        new TestFeatureHost(Dispatcher.callerThread()).dispatchOnValueDelayed(10, 1);
+    }
+
+    @Test
+    public void callerThreadDispatcherRejectsEveryDelayedEvent() {
+        TestFeatureHost featureHost = new TestFeatureHost(Dispatcher.callerThread());
+        for (int i = 0; i < 2; i++) {
+            try {
+                featureHost.dispatchOnValueDelayed(10 + i, i);
+                fail("delayed event must be rejected");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+
+        TestFeature feature = new TestFeature();
+        featureHost.with(feature);
+        featureHost.dispatchOnValue(3);
+        assertThat(feature.mValues)
+                .containsExactly(Thread.currentThread().getName() + ":3");
+    }
+
+    private <T> T runInDispatcher(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<>(callable);
+        mDispatcher.execute(task);
+        return task.get(5, TimeUnit.SECONDS);
+    }
+
+    private void awaitValues(int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mFeature.mValues.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // let timers fire, which must not deliver anything
+        Thread.sleep(60);
+        runInDispatcher(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost.OnProgressEvent;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DispatchObserverTest {
+
+    private TestFeatureHost mFeatureHost;
+    private TestFeature mFeature1;
+    private TestFeature mFeature2;
+    private RecordingObserver mObserver;
+
+    @Before
+    public void before() {
+        createFeatureHost(Dispatcher.callerThread());
+    }
+
+    private void createFeatureHost(@NotNull Dispatcher dispatcher) {
+        mFeatureHost = new TestFeatureHost(dispatcher);
+        mFeature1 = new TestFeature();
+        mFeature2 = new TestFeature() {
+            @Override
+            void onProgress(int key, int value) {
+                super.onProgress(key, value);
+                if (value == 0) {
+                    mFeatureHost.dispatchOnProgress(key, 1);
+                }
+            }
+        };
+        mFeatureHost.addFeature(mFeature1, "feature1");
+        mFeatureHost.addFeature(mFeature2, "feature2");
+        mObserver = new RecordingObserver();
+        mFeatureHost.setDispatchObserver(mObserver);
+    }
+
+    @Test
+    public void observerReceivesCallbacksInDispatchOrder() {
+        mFeatureHost.dispatchOnProgress(1, 0);
+
+        assertThat(mObserver.mCallbacks).containsExactly(
+                "queued:1=0",
+                "started:1=0",
+                "feature1:1=0",
+                "queued:1=1",
+                "feature2:1=0",
+                "completed:1=0",
+                "started:1=1",
+                "feature1:1=1",
+                "feature2:1=1",
+                "completed:1=1"
+        ).inOrder();
+    }
+
+    @Test
+    public void observerIsNotNotifiedAboutBatchCompletion() {
+        final List<String> completions = new ArrayList<>();
+        mFeatureHost.beginBatch();
+        mFeatureHost.dispatchOnProgress(2, 5);
+        mFeatureHost.commit(new FeatureHost.OnDispatchCompleted() {
+            @Override
+            public void onDispatchCompleted() {
+                completions.add("batch");
+            }
+        });
+
+        assertThat(completions).containsExactly("batch");
+        assertThat(mObserver.mCallbacks).containsExactly(
+                "queued:2=5",
+                "started:2=5",
+                "feature1:2=5",
+                "feature2:2=5",
+                "completed:2=5"
+        ).inOrder();
+    }
+
+    @Test
+    public void observerIsNotCalledAfterRemoval() {
+        mFeatureHost.setDispatchObserver(null);
+        mFeatureHost.dispatchOnProgress(1, 1);
+
+        assertThat(mObserver.mCallbacks).isEmpty();
+        assertThat(mFeature1.mValues).containsExactly("1=1");
+    }
+
+    @Test
+    public void observerIsNotifiedAboutCompletedBurst() {
+        // caller thread dispatcher cannot defer events to the next frame
+        createFeatureHost(new Dispatcher() {
+            @Override
+            public boolean isDispatchThread() {
+                return true;
+            }
+
+            @Override
+            public void execute(@NotNull Runnable runnable) {
+                runnable.run();
+            }
+        });
+        mFeatureHost.setFrameBudget(10000);
+        mFeatureHost.dispatchOnProgress(1, 0);
+
+        assertThat(mObserver.mCallbacks).hasSize(11);
+        assertThat(mObserver.mCallbacks.get(10)).isEqualTo("burst:1");
+    }
+
+    @Test
+    public void observerIsNotifiedAboutInstantiatedFeature() {
+        final TestFeature feature3 = new TestFeature();
+        mFeatureHost.addLazyFeature(new FeatureProvider<TestFeature>() {
+            @NotNull
+            @Override
+            public TestFeature get() {
+                return feature3;
+            }
+        }, TestFeature.class);
+
+        mFeatureHost.dispatchOnProgress(1, 1);
+
+        assertThat(mObserver.mCallbacks).containsExactly(
+                "queued:1=1",
+                "instantiated:feature3",
+                "started:1=1",
+                "feature1:1=1",
+                "feature2:1=1",
+                "feature3:1=1",
+                "completed:1=1"
+        ).inOrder();
+        assertThat(mFeatureHost.getFeature(TestFeature.class)).isSameAs(feature3);
+    }
+
+    private final class RecordingObserver implements DispatchObserver {
+
+        final List<String> mCallbacks = new ArrayList<>();
+
+        @Override
+        public void onEventQueued(@NotNull FeatureHost featureHost, @NotNull Object event) {
+            mCallbacks.add("queued:" + describe(event));
+        }
+
+        @Override
+        public void onEventStarted(@NotNull FeatureHost featureHost, @NotNull Object event) {
+            mCallbacks.add("started:" + describe(event));
+        }
+
+        @Override
+        public void onFeatureDispatched(@NotNull FeatureHost featureHost, @NotNull Object event,
+                                        @NotNull Feature feature, long startNanos,
+                                        long endNanos) {
+            assertThat(endNanos).isAtLeast(startNanos);
+            mCallbacks.add(name(feature) + ":" + describe(event));
+        }
+
+        @Override
+        public void onFeatureInstantiated(@NotNull FeatureHost featureHost,
+                                          @NotNull Feature feature, long startNanos,
+                                          long endNanos) {
+            assertThat(endNanos).isAtLeast(startNanos);
+            mCallbacks.add("instantiated:" + name(feature));
+        }
+
+        @Override
+        public void onEventCompleted(@NotNull FeatureHost featureHost, @NotNull Object event) {
+            assertThat(featureHost).isSameAs(mFeatureHost);
+            mCallbacks.add("completed:" + describe(event));
+        }
+
+        @Override
+        public void onBurstCompleted(@NotNull FeatureHost featureHost, int frameCount) {
+            mCallbacks.add("burst:" + frameCount);
+        }
+
+        private String name(Feature feature) {
+            return feature == mFeature1 ? "feature1"
+                    : feature == mFeature2 ? "feature2" : "feature3";
+        }
+
+        private String describe(Object event) {
+            OnProgressEvent progressEvent = (OnProgressEvent) event;
+            return progressEvent.mKey + "=" + progressEvent.mValue;
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class DispatcherTest {
+
+    private static final String THREAD_NAME = "featured-test";
+
+    private SingleThreadDispatcher mDispatcher;
+
+    @After
+    public void after() {
+        if (mDispatcher != null) {
+            mDispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void callerThreadDispatcherDispatchesInAnyThread() throws Exception {
+        final TestFeature feature = new TestFeature();
+        final TestFeatureHost host = new TestFeatureHost(Dispatcher.callerThread())
+                .with(feature);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                host.dispatchOnValue(1);
+            }
+        }, THREAD_NAME);
+        thread.start();
+        thread.join();
+        host.dispatchOnValue(2);
+
+        assertThat(feature.mValues).containsExactly(
+                THREAD_NAME + ":1", Thread.currentThread().getName() + ":2").inOrder();
+    }
+
+    @Test
+    public void singleThreadDispatcherDispatchesInOrder() throws Exception {
+        mDispatcher = Dispatcher.newSingleThread(THREAD_NAME);
+        final TestFeature feature = new TestFeature();
+        final TestFeatureHost host = new TestFeatureHost(mDispatcher).with(feature);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            mDispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    host.dispatchOnValue(value);
+                }
+            });
+        }
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(feature.mValues).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(feature.mValues.get(i)).isEqualTo(THREAD_NAME + ":" + i);
+        }
+    }
+
+    @Test
+    public void postedEventsAreDispatchedInOrderOfEachProducer() throws Exception {
+        mDispatcher = Dispatcher.newSingleThread(THREAD_NAME);
+        final TestFeature feature = new TestFeature();
+        final TestFeatureHost host = new TestFeatureHost(mDispatcher).with(feature);
+
+        final int producers = 4;
+        final int events = 1000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < events; i++) {
+                        host.postOnValue(producer * events + i);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        host.postOnValue(-1);
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(feature.mValues).hasSize(producers * events + 1);
+        int[] expected = new int[producers];
+        for (int i = 0; i < producers * events; i++) {
+            String[] value = feature.mValues.get(i).split(":");
+            assertThat(value[0]).isEqualTo(THREAD_NAME);
+            int number = Integer.parseInt(value[1]);
+            int producer = number / events;
+            assertThat(number % events).isEqualTo(expected[producer]);
+            expected[producer]++;
+        }
+        assertThat(feature.mValues.get(producers * events)).isEqualTo(THREAD_NAME + ":-1");
+    }
+
+    @Test
+    public void singleThreadDispatcherRejectsDispatchInOtherThread() throws Exception {
+        mDispatcher = Dispatcher.newSingleThread(THREAD_NAME);
+        TestFeatureHost host = new TestFeatureHost(mDispatcher).with(new TestFeature());
+
+        assertThat(mDispatcher.isDispatchThread()).isFalse();
+        try {
+            host.dispatchOnValue(1);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains(THREAD_NAME);
+        }
+    }
+
+    @Test
+    public void singleThreadDispatcherSurvivesFailingRunnable() throws Exception {
+        mDispatcher = Dispatcher.newSingleThread(THREAD_NAME);
+        final AtomicReference<Boolean> isDispatchThread = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by test");
+            }
+        });
+        mDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                isDispatchThread.set(mDispatcher.isDispatchThread());
+                latch.countDown();
+            }
+        });
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(isDispatchThread.get()).isTrue();
+    }
+
+    static class TestFeature extends Feature<TestFeatureHost, Object> {
+
+        final List<String> mValues = Collections.synchronizedList(new ArrayList<String>());
+
+        void onValue(int value) {
+            mValues.add(Thread.currentThread().getName() + ":" + value);
+        }
+
+        void onBackgroundValue(int value) {
+            onValue(value);
+        }
+
+        void onProgress(int key, int value) {
+            mValues.add(key + "=" + value);
+        }
+    }
+
+    /**
+     * Feature recording its name and the values it receives into a list shared by
+     * all features of a test.
+     */
+    static class NamedFeature extends TestFeature {
+
+        final String mName;
+        private final List<String> mDeliveries;
+
+        NamedFeature(String name, List<String> deliveries) {
+            mName = name;
+            mDeliveries = deliveries;
+        }
+
+        @Override
+        void onValue(int value) {
+            mDeliveries.add(mName + value);
+        }
+
+        @Override
+        void onProgress(int key, int value) {
+            mDeliveries.add(mName + ":progress" + value);
+        }
+    }
+
+    static class TestFeatureHost extends FeatureHost<TestFeatureHost, Object> {
+
+        TestFeatureHost(@NotNull Dispatcher dispatcher) {
+            super(new Object(), dispatcher);
+        }
+
+        TestFeatureHost with(@NotNull TestFeature feature) {
+            addFeature(feature, null);
+            return this;
+        }
+
+        void dispatchOnValue(int value) {
+            dispatch(new OnValueEvent(value));
+        }
+
+        void postOnValue(int value) {
+            post(new OnValueEvent(value));
+        }
+
+        void dispatchOnValueWhenIdle(int value, long timeoutMillis) {
+            dispatchWhenIdle(new OnValueEvent(value), timeoutMillis);
+        }
+
+        ScheduledEvent dispatchOnValueDelayed(long delayMillis, int value) {
+            return dispatchDelayed(new OnValueEvent(value), delayMillis);
+        }
+
+        void dispatchOnValueTo(@NotNull String featureName, int value) {
+            dispatchTo(featureName, new OnValueEvent(value));
+        }
+
+        void dispatchOnValueToTagged(int tags, int value) {
+            dispatchToTagged(tags, new OnValueEvent(value));
+        }
+
+        void dispatchOnProgressTo(@NotNull String featureName, int key, int value) {
+            dispatchTo(featureName, new OnProgressEvent(key, value));
+        }
+
+        void dispatchOnBackgroundValue(int value, @Nullable OnDispatchCompleted completed) {
+            dispatch(new OnBackgroundValueEvent(value, completed));
+        }
+
+        void dispatchOnProgress(int key, int value) {
+            dispatch(new OnProgressEvent(key, value));
+        }
+
+        @Override
+        protected void addSubscriptions(@NotNull Feature feature) {
+            addSubscriber(OnValueEvent.ID, feature);
+            addSubscriber(OnBackgroundValueEvent.ID, feature);
+            addSubscriber(OnProgressEvent.ID, feature);
+        }
+
+        @Override
+        protected void addLazySubscriptions(@NotNull Feature feature,
+                                            @NotNull Class<? extends Feature> featureClass) {
+            if (TestFeature.class.isAssignableFrom(featureClass)) {
+                addSubscriber(OnValueEvent.ID, feature);
+                addSubscriber(OnBackgroundValueEvent.ID, feature);
+                addSubscriber(OnProgressEvent.ID, feature);
+            }
+        }
+
+        @Nullable
+        @Override
+        protected String getEventName(int eventId) {
+            switch (eventId) {
+                case OnValueEvent.ID:
+                    return "TestFeature.onValue";
+                case OnBackgroundValueEvent.ID:
+                    return "TestFeature.onBackgroundValue";
+                case OnProgressEvent.ID:
+                    return "TestFeature.onProgress";
+                default:
+                    return super.getEventName(eventId);
+            }
+        }
+
+        static final class OnValueEvent extends FeatureHost.Event {
+            static final int ID = FeatureHost.EVENT_COUNT;
+
+            private final int mValue;
+
+            OnValueEvent(int value) {
+                super(ID);
+                mValue = value;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onValue(mValue);
+            }
+        }
+
+        static final class OnBackgroundValueEvent extends FeatureHost.Event {
+            static final int ID = FeatureHost.EVENT_COUNT + 1;
+
+            private final int mValue;
+
+            OnBackgroundValueEvent(int value, @Nullable OnDispatchCompleted completed) {
+                super(ID);
+                mValue = value;
+                mOnDispatchCompleted = completed;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onBackgroundValue(mValue);
+            }
+
+            @Override
+            protected boolean isBackground() {
+                return true;
+            }
+        }
+
+        static final class OnProgressEvent extends FeatureHost.Event {
+            static final int ID = FeatureHost.EVENT_COUNT + 2;
+
+            final int mKey;
+            final int mValue;
+
+            OnProgressEvent(int key, int value) {
+                super(ID);
+                mKey = key;
+                mValue = value;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onProgress(mKey, mValue);
+            }
+
+            @Override
+            protected boolean isCoalescing() {
+                return true;
+            }
+
+            @Override
+            protected boolean coalescesWith(@NotNull Event pendingEvent) {
+                return mKey == ((OnProgressEvent) pendingEvent).mKey;
+            }
+        }
+    }
+
+}
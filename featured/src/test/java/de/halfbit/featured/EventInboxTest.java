@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class EventInboxTest {
+
+    @Test
+    public void eventsArePolledInFifoOrder() {
+        EventInbox inbox = new EventInbox();
+        assertThat(inbox.isEmpty()).isTrue();
+        assertThat(inbox.poll()).isNull();
+
+        TestEvent event1 = new TestEvent(0, 1);
+        TestEvent event2 = new TestEvent(0, 2);
+        TestEvent event3 = new TestEvent(0, 3);
+        inbox.offer(event1);
+        inbox.offer(event2);
+        assertThat(inbox.isEmpty()).isFalse();
+        assertThat(inbox.poll()).isSameAs(event1);
+
+        inbox.offer(event3);
+        assertThat(inbox.poll()).isSameAs(event2);
+        assertThat(inbox.poll()).isSameAs(event3);
+        assertThat(inbox.poll()).isNull();
+        assertThat(inbox.isEmpty()).isTrue();
+
+        // polled event can be offered again
+        inbox.offer(event1);
+        assertThat(inbox.poll()).isSameAs(event1);
+        assertThat(inbox.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void eventsKeepOrderOfEachProducer() throws Exception {
+        final int producers = 4;
+        final int events = 100000;
+        final EventInbox inbox = new EventInbox();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < events; i++) {
+                        inbox.offer(new TestEvent(producer, i));
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        int[] expected = new int[producers];
+        int polled = 0;
+        long deadline = System.currentTimeMillis() + 10000;
+        while (polled < producers * events && System.currentTimeMillis() < deadline) {
+            TestEvent event = (TestEvent) inbox.poll();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(event.mSequence).isEqualTo(expected[event.mProducer]);
+            expected[event.mProducer]++;
+            polled++;
+        }
+
+        assertThat(polled).isEqualTo(producers * events);
+        assertThat(inbox.poll()).isNull();
+        assertThat(inbox.isEmpty()).isTrue();
+    }
+
+    private static class TestEvent extends FeatureHost.Event {
+
+        final int mProducer;
+        final int mSequence;
+
+        TestEvent(int producer, int sequence) {
+            super(0);
+            mProducer = producer;
+            mSequence = sequence;
+        }
+
+        @Override
+        protected void dispatch(@NotNull Feature feature) {
+            // nop
+        }
+    }
+
+}
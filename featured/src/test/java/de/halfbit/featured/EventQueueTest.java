@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class EventQueueTest {
+
+    @Test
+    public void eventsArePolledInFifoOrder() {
+        EventQueue queue = new EventQueue(2);
+        TestEvent event1 = new TestEvent();
+        TestEvent event2 = new TestEvent();
+        TestEvent event3 = new TestEvent();
+
+        queue.add(event1);
+        queue.add(event2);
+        queue.add(event3);
+
+        assertThat(queue.size()).isEqualTo(3);
+        assertThat(queue.poll()).isSameAs(event1);
+        assertThat(queue.poll()).isSameAs(event2);
+        assertThat(queue.poll()).isSameAs(event3);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void queueKeepsOrderWhenGrowingWrappedAround() {
+        EventQueue queue = new EventQueue(4);
+        TestEvent[] events = new TestEvent[10];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new TestEvent();
+        }
+
+        // move head to the middle of the array, so that next events wrap around
+        queue.add(events[0]);
+        queue.add(events[1]);
+        queue.add(events[2]);
+        queue.poll();
+        queue.poll();
+        for (int i = 3; i < events.length; i++) {
+            queue.add(events[i]);
+        }
+
+        for (int i = 2; i < events.length; i++) {
+            assertThat(queue.poll()).isSameAs(events[i]);
+        }
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void sameEventCanBeQueuedMultipleTimes() {
+        EventQueue queue = new EventQueue(4);
+        TestEvent event = new TestEvent();
+
+        queue.add(event);
+        queue.add(event);
+
+        assertThat(queue.poll()).isSameAs(event);
+        assertThat(queue.poll()).isSameAs(event);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void peakSizeIsTracked() {
+        EventQueue queue = new EventQueue(4);
+        queue.add(new TestEvent());
+        queue.add(new TestEvent());
+        queue.add(new TestEvent());
+        queue.poll();
+        queue.poll();
+        queue.add(new TestEvent());
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getPeakSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void replaceSwapsFirstMatchingEventInPlace() {
+        EventQueue queue = new EventQueue(4);
+        TestEvent event1 = new TestEvent(1);
+        TestEvent event2 = new TestEvent(2);
+        TestEvent event3 = new TestEvent(1);
+        TestEvent replacement = new TestEvent(1);
+
+        queue.add(event1);
+        queue.add(event2);
+        queue.add(event3);
+
+        assertThat(queue.replace(replacement)).isSameAs(event1);
+        assertThat(queue.size()).isEqualTo(3);
+        assertThat(queue.poll()).isSameAs(replacement);
+        assertThat(queue.poll()).isSameAs(event2);
+        assertThat(queue.poll()).isSameAs(event3);
+    }
+
+    @Test
+    public void replaceReturnsNullIfNoEventMatches() {
+        EventQueue queue = new EventQueue(4);
+        TestEvent event = new TestEvent(1);
+        queue.add(event);
+
+        assertThat(queue.replace(new TestEvent(2))).isNull();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.poll()).isSameAs(event);
+    }
+
+    @Test
+    public void replaceFindsEventsWrappedAround() {
+        EventQueue queue = new EventQueue(4);
+        queue.add(new TestEvent(1));
+        queue.add(new TestEvent(1));
+        queue.add(new TestEvent(1));
+        queue.poll();
+        queue.poll();
+        TestEvent event = new TestEvent(2);
+        queue.add(new TestEvent(1));
+        queue.add(event);
+
+        TestEvent replacement = new TestEvent(2);
+        assertThat(queue.replace(replacement)).isSameAs(event);
+        queue.poll();
+        queue.poll();
+        assertThat(queue.poll()).isSameAs(replacement);
+    }
+
+    private static class TestEvent extends FeatureHost.Event {
+
+        TestEvent() {
+            super(0);
+        }
+
+        TestEvent(int eventId) {
+            super(eventId);
+        }
+
+        @Override protected void dispatch(@NotNull Feature feature) {
+            // nop
+        }
+    }
+
+}
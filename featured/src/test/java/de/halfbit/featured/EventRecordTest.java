@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class EventRecordTest {
+
+    private RecordFeatureHost mFeatureHost;
+    private TestFeature mFeature;
+
+    @Before
+    public void before() {
+        mFeatureHost = new RecordFeatureHost();
+        mFeature = new TestFeature();
+        mFeatureHost.addFeature(mFeature, null);
+    }
+
+    @Test
+    public void recordIsDispatchedThroughFeatureHost() {
+        mFeatureHost.dispatchOnProgress(1, 10);
+        mFeatureHost.dispatchOnProgress(2, 20);
+
+        assertThat(mFeature.mValues).containsExactly("1=10", "2=20").inOrder();
+    }
+
+    @Test
+    public void recordIsPooledAndReleasesObjects() {
+        FeatureHost.EventRecord record = newRecord(0, new Object());
+
+        assertThat(record.recycle()).isTrue();
+        assertThat(record.mObjects[0]).isNull();
+    }
+
+    @Test
+    public void backgroundRecordIsNotPooled() {
+        FeatureHost.EventRecord record = new FeatureHost.EventRecord(mFeatureHost,
+                RecordFeatureHost.EVENT_ON_PROGRESS, FeatureHost.EventRecord.BACKGROUND,
+                0, 0, 0, 0);
+
+        assertThat(record.isBackground()).isTrue();
+        assertThat(record.recycle()).isFalse();
+    }
+
+    @Test
+    public void recordCoalescesWithEqualKeysOnly() {
+        assertThat(newRecord(1, "a").coalescesWith(newRecord(1, "a"))).isTrue();
+        assertThat(newRecord(1, "a").coalescesWith(newRecord(2, "a"))).isFalse();
+        assertThat(newRecord(1, "a").coalescesWith(newRecord(1, "b"))).isFalse();
+        assertThat(newRecord(1, null).coalescesWith(newRecord(1, null))).isTrue();
+        assertThat(newRecord(1, null).coalescesWith(newRecord(1, "a"))).isFalse();
+        assertThat(newRecord(1, new int[]{1, 2}).coalescesWith(newRecord(1, new int[]{1, 2})))
+                .isTrue();
+        assertThat(newRecord(1, new int[]{1, 2}).coalescesWith(newRecord(1, new int[]{2, 1})))
+                .isFalse();
+    }
+
+    private FeatureHost.EventRecord newRecord(long key, Object objectKey) {
+        FeatureHost.EventRecord record = new FeatureHost.EventRecord(mFeatureHost,
+                RecordFeatureHost.EVENT_ON_PROGRESS, FeatureHost.EventRecord.COALESCING,
+                2, 1, 1, 1);
+        record.mLongs[0] = key;
+        record.mLongs[1] = 100;
+        record.mObjects[0] = objectKey;
+        return record;
+    }
+
+    static class RecordFeatureHost extends FeatureHost<RecordFeatureHost, Object> {
+
+        static final int EVENT_ON_PROGRESS = FeatureHost.EVENT_COUNT;
+
+        RecordFeatureHost() {
+            super(new Object(), Dispatcher.callerThread());
+        }
+
+        void dispatchOnProgress(int key, int value) {
+            EventRecord event = obtainEvent(EVENT_ON_PROGRESS);
+            if (event == null) {
+                event = new EventRecord(this, EVENT_ON_PROGRESS, 0, 2, 0, 0, 0);
+            }
+            event.mLongs[0] = key;
+            event.mLongs[1] = value;
+            dispatch(event);
+        }
+
+        @Override
+        protected void addSubscriptions(@NotNull Feature feature) {
+            addSubscriber(EVENT_ON_PROGRESS, feature);
+        }
+
+        @Override
+        protected void dispatchRecord(@NotNull EventRecord event, @NotNull Feature feature) {
+            switch (event.getEventId()) {
+                case EVENT_ON_PROGRESS:
+                    ((TestFeature) feature).onProgress(
+                            (int) event.mLongs[0], (int) event.mLongs[1]);
+                    break;
+                default:
+                    super.dispatchRecord(event, feature);
+            }
+        }
+    }
+
+}
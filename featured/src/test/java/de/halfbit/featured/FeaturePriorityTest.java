@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.NamedFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FeaturePriorityTest {
+
+    private TestFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+
+    @Before
+    public void before() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread());
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void featuresWithDefaultPriorityReceiveEventsInRegistrationOrder() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+        mFeatureHost.addFeature(new NamedFeature("c", mDeliveries), "c");
+
+        mFeatureHost.dispatchOnValue(1);
+
+        assertThat(mDeliveries).containsExactly("a1", "b1", "c1").inOrder();
+    }
+
+    @Test
+    public void featuresWithHigherPriorityReceiveEventsFirst() {
+        mFeatureHost.addFeature(new NamedFeature("analytics", mDeliveries), "analytics", -10);
+        mFeatureHost.addFeature(new NamedFeature("content", mDeliveries), "content");
+        mFeatureHost.addFeature(new NamedFeature("frame", mDeliveries), "frame", 100);
+        mFeatureHost.addFeature(new NamedFeature("toolbar", mDeliveries), "toolbar", 100);
+        mFeatureHost.addFeature(new NamedFeature("prefetch", mDeliveries), "prefetch", -10);
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.dispatchOnProgress(1, 2);
+
+        assertThat(mDeliveries).containsExactly(
+                "frame1", "toolbar1", "content1", "analytics1", "prefetch1",
+                "frame:progress2", "toolbar:progress2", "content:progress2",
+                "analytics:progress2", "prefetch:progress2").inOrder();
+    }
+
+}
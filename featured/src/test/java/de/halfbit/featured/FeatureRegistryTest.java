@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FeatureRegistryTest {
+
+    @Test
+    public void featuresAreFoundByClassAndName() {
+        FeatureRegistry registry = new FeatureRegistry(4);
+        FeatureA featureA = new FeatureA();
+        FeatureA namedFeatureA = new FeatureA();
+
+        assertThat(registry.get(FeatureA.class)).isNull();
+        assertThat(registry.get("named")).isNull();
+
+        registry.add(featureA, null);
+        registry.add(namedFeatureA, "named");
+
+        assertThat(registry.get(FeatureA.class)).isSameAs(featureA);
+        assertThat(registry.get(FeatureB.class)).isNull();
+        assertThat(registry.get("named")).isSameAs(namedFeatureA);
+        assertThat(registry.get(FeatureA.class.toString())).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sameClassCannotBeRegisteredTwice() {
+        FeatureRegistry registry = new FeatureRegistry(4);
+        registry.add(new FeatureA(), null);
+        registry.add(new FeatureA(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sameNameCannotBeRegisteredTwice() {
+        FeatureRegistry registry = new FeatureRegistry(4);
+        registry.add(new FeatureA(), "feature");
+        registry.add(new FeatureB(), "feature");
+    }
+
+    @Test
+    public void removedFeaturesAreNotFound() {
+        FeatureRegistry registry = new FeatureRegistry(4);
+        FeatureA featureA = new FeatureA();
+        FeatureB featureB = new FeatureB();
+        FeatureA namedFeatureA = new FeatureA();
+        registry.add(featureA, null);
+        registry.add(namedFeatureA, "named");
+        registry.add(featureB, null);
+
+        assertThat(registry.remove(featureA)).isTrue();
+        assertThat(registry.remove(namedFeatureA)).isTrue();
+        assertThat(registry.remove(featureA)).isFalse();
+        assertThat(registry.remove(new FeatureB())).isFalse();
+
+        assertThat(registry.get(FeatureA.class)).isNull();
+        assertThat(registry.get("named")).isNull();
+        assertThat(registry.get(FeatureB.class)).isSameAs(featureB);
+    }
+
+    static class FeatureA extends Feature<FeatureHost, Object> {
+    }
+
+    static class FeatureB extends Feature<FeatureHost, Object> {
+    }
+
+}
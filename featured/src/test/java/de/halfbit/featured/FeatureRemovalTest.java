@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.NamedFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FeatureRemovalTest {
+
+    private TestFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+
+    @Before
+    public void before() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread());
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void removedFeatureReceivesNoEvents() {
+        NamedFeature featureA = new NamedFeature("a", mDeliveries);
+        mFeatureHost.addFeature(featureA, "a");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.removeFeature(featureA);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.dispatchOnProgress(1, 2);
+
+        assertThat(mDeliveries).containsExactly("a1", "b1", "b2", "b:progress2").inOrder();
+        assertThat(mFeatureHost.getFeature(NamedFeature.class, "a")).isNull();
+    }
+
+    @Test
+    public void featureCanRemoveItselfWhileDispatching() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.addFeature(new RemovingFeature("removing"), "removing");
+        mFeatureHost.addFeature(new NamedFeature("c", mDeliveries), "c");
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.dispatchOnValue(2);
+
+        assertThat(mDeliveries).containsExactly("a1", "removing1", "c1", "a2", "c2").inOrder();
+    }
+
+    @Test
+    public void featureRemovedWhileDispatchingMissesRestOfEvent() {
+        final NamedFeature featureC = new NamedFeature("c", mDeliveries);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries) {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                getFeatureHost().removeFeature(featureC);
+            }
+        }, "a");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+        mFeatureHost.addFeature(featureC, "c");
+
+        mFeatureHost.dispatchOnValue(1);
+
+        assertThat(mDeliveries).containsExactly("a1", "b1").inOrder();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removedFeatureIsDetached() {
+        NamedFeature feature = new NamedFeature("a", mDeliveries);
+        mFeatureHost.addFeature(feature, null);
+        mFeatureHost.removeFeature(feature);
+        feature.getFeatureHost();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unregisteredFeatureCannotBeRemoved() {
+        mFeatureHost.removeFeature(new NamedFeature("a", mDeliveries));
+    }
+
+    private class RemovingFeature extends NamedFeature {
+
+        RemovingFeature(String name) {
+            super(name, mDeliveries);
+        }
+
+        @Override
+        void onValue(int value) {
+            super.onValue(value);
+            getFeatureHost().removeFeature(this);
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.NamedFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FeatureWatchdogTest {
+
+    private static final long QUARANTINE_MILLIS = 50;
+
+    private TestFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+    private List<String> mReports;
+    private FeatureWatchdog mWatchdog;
+
+    @Before
+    public void before() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread());
+        mDeliveries = new ArrayList<>();
+        mReports = new ArrayList<>();
+        mWatchdog = new FeatureWatchdog(2, 2, QUARANTINE_MILLIS, new FeatureWatchdog.Listener() {
+            @Override
+            public void onFeatureFailed(@NotNull FeatureHost featureHost,
+                                        @NotNull Feature feature, @NotNull Object event,
+                                        @NotNull RuntimeException exception) {
+                mReports.add("failed " + exception.getMessage());
+            }
+
+            @Override
+            public void onFeatureQuarantined(@NotNull FeatureHost featureHost,
+                                             @NotNull Feature feature, long quarantineMillis) {
+                mReports.add("quarantined " + ((NamedFeature) feature).mName);
+            }
+        });
+    }
+
+    @Test
+    public void exceptionIsIsolated() {
+        mFeatureHost.setWatchdog(mWatchdog);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.addFeature(new ThrowingFeature("throwing"), "throwing");
+        mFeatureHost.addFeature(new NamedFeature("c", mDeliveries), "c");
+
+        mFeatureHost.dispatchOnValue(1);
+
+        assertThat(mDeliveries).containsExactly("a1", "throwing1", "c1").inOrder();
+        assertThat(mReports).containsExactly("failed throwing");
+    }
+
+    @Test
+    public void throwingFeatureGetsQuarantined() {
+        mFeatureHost.setWatchdog(mWatchdog);
+        mFeatureHost.addFeature(new ThrowingFeature("throwing"), "throwing");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.dispatchOnValue(3);
+
+        assertThat(mDeliveries)
+                .containsExactly("throwing1", "b1", "throwing2", "b2", "b3").inOrder();
+        assertThat(mReports)
+                .containsExactly("failed throwing", "failed throwing", "quarantined throwing")
+                .inOrder();
+    }
+
+    @Test
+    public void slowFeatureGetsQuarantinedTemporarily() throws Exception {
+        mFeatureHost.setWatchdog(mWatchdog);
+        mFeatureHost.addFeature(new SlowFeature("slow"), "slow");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.dispatchOnValue(3);
+        assertThat(mDeliveries).containsExactly("slow1", "b1", "slow2", "b2", "b3").inOrder();
+        assertThat(mReports).containsExactly("quarantined slow");
+
+        Thread.sleep(QUARANTINE_MILLIS + 10);
+        mDeliveries.clear();
+        mFeatureHost.dispatchOnValue(4);
+        assertThat(mDeliveries).containsExactly("slow4", "b4").inOrder();
+    }
+
+    @Test
+    public void fastCallbackResetsViolations() {
+        mFeatureHost.setWatchdog(mWatchdog);
+        SlowFeature feature = new SlowFeature("slow");
+        mFeatureHost.addFeature(feature, "slow");
+
+        mFeatureHost.dispatchOnValue(1);
+        feature.mSlow = false;
+        mFeatureHost.dispatchOnValue(2);
+        feature.mSlow = true;
+        mFeatureHost.dispatchOnValue(3);
+        mFeatureHost.dispatchOnValue(4);
+
+        assertThat(mDeliveries).containsExactly("slow1", "slow2", "slow3", "slow4");
+        assertThat(mReports).containsExactly("quarantined slow");
+    }
+
+    @Test
+    public void removedFeatureLeavesQuarantine() {
+        mFeatureHost.setWatchdog(mWatchdog);
+        SlowFeature feature = new SlowFeature("slow");
+        mFeatureHost.addFeature(feature, "slow");
+
+        mFeatureHost.dispatchOnValue(1);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.removeFeature(feature);
+        feature.mSlow = false;
+        mFeatureHost.addFeature(feature, "slow");
+        mFeatureHost.dispatchOnValue(3);
+
+        assertThat(mDeliveries).containsExactly("slow1", "slow2", "slow3").inOrder();
+        assertThat(mReports).containsExactly("quarantined slow");
+    }
+
+    @Test
+    public void exceptionDoesNotBlockLaterDispatches() {
+        mFeatureHost.addFeature(new ThrowingFeature("throwing"), "throwing");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        try {
+            mFeatureHost.dispatchOnValue(1);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        mFeatureHost.removeFeature(mFeatureHost.getFeature(NamedFeature.class, "throwing"));
+        mFeatureHost.dispatchOnValue(2);
+
+        assertThat(mDeliveries).containsExactly("throwing1", "b2").inOrder();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void budgetMustBePositive() {
+        new FeatureWatchdog(0, 1, 1, new NopListener());
+    }
+
+    private static class NopListener implements FeatureWatchdog.Listener {
+
+        @Override
+        public void onFeatureFailed(@NotNull FeatureHost featureHost, @NotNull Feature feature,
+                                    @NotNull Object event, @NotNull RuntimeException exception) {
+            // nop
+        }
+
+        @Override
+        public void onFeatureQuarantined(@NotNull FeatureHost featureHost,
+                                         @NotNull Feature feature, long quarantineMillis) {
+            // nop
+        }
+    }
+
+    private class ThrowingFeature extends NamedFeature {
+
+        ThrowingFeature(String name) {
+            super(name, mDeliveries);
+        }
+
+        @Override
+        void onValue(int value) {
+            super.onValue(value);
+            throw new IllegalStateException(mName);
+        }
+    }
+
+    private class SlowFeature extends NamedFeature {
+
+        boolean mSlow = true;
+
+        SlowFeature(String name) {
+            super(name, mDeliveries);
+        }
+
+        @Override
+        void onValue(int value) {
+            super.onValue(value);
+            if (mSlow) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class FrameBudgetTest {
+
+    private static final long FRAME_BUDGET_MILLIS = 2;
+    private static final long CALLBACK_MILLIS = 5;
+    private static final int URGENT = 100;
+
+    private FrameDispatcher mDispatcher;
+    private UrgentFeatureHost mFeatureHost;
+    private List<Integer> mDeliveries;
+
+    @Before
+    public void before() {
+        mDispatcher = new FrameDispatcher();
+        mFeatureHost = new UrgentFeatureHost(mDispatcher);
+        mFeatureHost.setFrameBudget(FRAME_BUDGET_MILLIS);
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void burstIsSpreadOverFrames() {
+        mFeatureHost.addFeature(new SlowFeature(1, 2), null);
+
+        mFeatureHost.dispatchOnValue(0);
+        assertThat(mDeliveries).containsExactly(0);
+        assertThat(mDispatcher.mFrames).hasSize(1);
+
+        mDispatcher.runNextFrame();
+        assertThat(mDeliveries).containsExactly(0, 1).inOrder();
+
+        mDispatcher.runNextFrame();
+        assertThat(mDeliveries).containsExactly(0, 1, 2).inOrder();
+        assertThat(mDispatcher.mFrames).isEmpty();
+        assertThat(mFeatureHost.getPeakBurstFrameCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void urgentEventIsDispatchedInCurrentFrame() {
+        mFeatureHost.addFeature(new SlowFeature(1, URGENT, 2), null);
+
+        mFeatureHost.dispatchOnValue(0);
+        assertThat(mDeliveries).containsExactly(0, URGENT).inOrder();
+
+        mDispatcher.runNextFrame();
+        mDispatcher.runNextFrame();
+        assertThat(mDeliveries).containsExactly(0, URGENT, 1, 2).inOrder();
+    }
+
+    @Test
+    public void eventsDispatchedInBetweenWaitForNextFrame() {
+        mFeatureHost.addFeature(new SlowFeature(1), null);
+
+        mFeatureHost.dispatchOnValue(0);
+        mFeatureHost.dispatchOnValue(3);
+        mFeatureHost.dispatchOnUrgentValue(URGENT);
+        assertThat(mDeliveries).containsExactly(0, URGENT).inOrder();
+        assertThat(mDispatcher.mFrames).hasSize(1);
+
+        mDispatcher.runNextFrame();
+        mDispatcher.runNextFrame();
+        assertThat(mDeliveries).containsExactly(0, URGENT, 1, 3).inOrder();
+        assertThat(mDispatcher.mFrames).isEmpty();
+    }
+
+    @Test
+    public void burstIsDispatchedInOneGoWithoutBudget() {
+        mFeatureHost.setFrameBudget(0);
+        mFeatureHost.addFeature(new SlowFeature(1, 2), null);
+
+        mFeatureHost.dispatchOnValue(0);
+
+        assertThat(mDeliveries).containsExactly(0, 1, 2).inOrder();
+        assertThat(mDispatcher.mFrames).isEmpty();
+        assertThat(mFeatureHost.getPeakBurstFrameCount()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudgetIsRejected() {
+        mFeatureHost.setFrameBudget(-1);
+    }
+
+    @Test
+    public void budgetIsRejectedForCallerThreadDispatcher() {
+        TestFeatureHost featureHost = new TestFeatureHost(Dispatcher.callerThread());
+        try {
+            featureHost.setFrameBudget(1);
+            fail("budget must be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // no budget is still accepted and events keep being dispatched
+        featureHost.setFrameBudget(0);
+        TestFeature feature = new TestFeature();
+        featureHost.with(feature);
+        featureHost.dispatchOnValue(1);
+        featureHost.dispatchOnValue(2);
+        assertThat(feature.mValues).hasSize(2);
+    }
+
+    /** Feature taking longer than the frame budget and dispatching given values. */
+    private class SlowFeature extends TestFeature {
+
+        private final int[] mValues;
+
+        SlowFeature(int... values) {
+            mValues = values;
+        }
+
+        @Override
+        void onValue(int value) {
+            mDeliveries.add(value);
+            try {
+                Thread.sleep(CALLBACK_MILLIS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (value == 0) {
+                for (int nextValue : mValues) {
+                    if (nextValue == URGENT) {
+                        ((UrgentFeatureHost) getFeatureHost()).dispatchOnUrgentValue(URGENT);
+                    } else {
+                        getFeatureHost().dispatchOnValue(nextValue);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class FrameDispatcher extends Dispatcher {
+
+        final List<Runnable> mFrames = new ArrayList<>();
+
+        @Override
+        public boolean isDispatchThread() {
+            return true;
+        }
+
+        @Override
+        public void execute(@NotNull Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void executeOnNextFrame(@NotNull Runnable runnable) {
+            mFrames.add(runnable);
+        }
+
+        void runNextFrame() {
+            mFrames.remove(0).run();
+        }
+    }
+
+    private static final class UrgentFeatureHost extends TestFeatureHost {
+
+        UrgentFeatureHost(@NotNull Dispatcher dispatcher) {
+            super(dispatcher);
+        }
+
+        void dispatchOnUrgentValue(int value) {
+            dispatch(new OnUrgentValueEvent(value));
+        }
+
+        @Override
+        protected void addSubscriptions(@NotNull Feature feature) {
+            super.addSubscriptions(feature);
+            addSubscriber(OnUrgentValueEvent.ID, feature);
+        }
+
+        static final class OnUrgentValueEvent extends FeatureHost.Event {
+            static final int ID = TestFeatureHost.EVENT_COUNT + 3;
+
+            private final int mValue;
+
+            OnUrgentValueEvent(int value) {
+                super(ID);
+                mValue = value;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onValue(mValue);
+            }
+
+            @Override
+            protected boolean isUrgent() {
+                return true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IdleDispatchTest {
+
+    private IdleDispatcher mDispatcher;
+    private TestFeature mFeature;
+    private TestFeatureHost mFeatureHost;
+    private SingleThreadDispatcher mSingleThreadDispatcher;
+
+    @Before
+    public void before() {
+        mDispatcher = new IdleDispatcher();
+        mFeature = new TestFeature();
+        mFeatureHost = new TestFeatureHost(mDispatcher).with(mFeature);
+    }
+
+    @After
+    public void after() {
+        if (mSingleThreadDispatcher != null) {
+            mSingleThreadDispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void idleEventsWaitForIdleDispatcher() {
+        mFeatureHost.dispatchOnValueWhenIdle(1, 0);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.dispatchOnValueWhenIdle(3, 0);
+
+        assertThat(mFeature.mValues).hasSize(1);
+        assertThat(mDispatcher.mIdleRunnables).hasSize(1);
+
+        mDispatcher.becomeIdle();
+
+        String thread = Thread.currentThread().getName();
+        assertThat(mFeature.mValues).containsExactly(
+                thread + ":2", thread + ":1", thread + ":3").inOrder();
+    }
+
+    @Test
+    public void earlierDeadlineReplacesPendingDrain() {
+        mFeatureHost.dispatchOnValueWhenIdle(1, 0);
+        mFeatureHost.dispatchOnValueWhenIdle(2, 1000);
+        mFeatureHost.dispatchOnValueWhenIdle(3, 2000);
+        mFeatureHost.dispatchOnValueWhenIdle(4, 100);
+
+        assertThat(mDispatcher.mTimeouts).containsExactly(0L, 100L).inOrder();
+
+        mDispatcher.becomeIdle();
+        assertThat(mFeature.mValues).hasSize(4);
+    }
+
+    @Test
+    public void expiredTimeoutLeavesEventsWithoutTimeoutWaiting() {
+        mFeatureHost.dispatchOnValueWhenIdle(1, 0);
+        mFeatureHost.dispatchOnValueWhenIdle(2, 100);
+        mFeatureHost.dispatchOnValueWhenIdle(3, 0);
+
+        mDispatcher.expireTimeouts();
+
+        String thread = Thread.currentThread().getName();
+        assertThat(mFeature.mValues).containsExactly(thread + ":2");
+        assertThat(mDispatcher.mTimeouts).containsExactly(0L);
+
+        mFeatureHost.dispatchOnValueWhenIdle(4, 100);
+        mDispatcher.becomeIdle();
+
+        assertThat(mFeature.mValues).containsExactly(
+                thread + ":2", thread + ":1", thread + ":3", thread + ":4").inOrder();
+        assertThat(mDispatcher.mIdleRunnables).isEmpty();
+    }
+
+    @Test
+    public void destroyUnregistersIdleDrains() {
+        mFeatureHost.dispatchOnValueWhenIdle(1, 0);
+        mFeatureHost.dispatchOnValueWhenIdle(2, 100);
+        mFeatureHost.destroy();
+
+        assertThat(mDispatcher.mIdleRunnables).isEmpty();
+
+        mFeatureHost.dispatchOnValueWhenIdle(3, 0);
+        mDispatcher.becomeIdle();
+
+        assertThat(mFeature.mValues).containsExactly(Thread.currentThread().getName() + ":3");
+    }
+
+    @Test
+    public void singleThreadDispatcherExecutesIdleRunnableLast() throws Exception {
+        mSingleThreadDispatcher = Dispatcher.newSingleThread("featured-test");
+        final List<Integer> order = new ArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        mSingleThreadDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                await(release);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        mSingleThreadDispatcher.executeWhenIdle(new Runnable() {
+            @Override
+            public void run() {
+                order.add(3);
+                done.countDown();
+            }
+        }, 0);
+        for (int i = 1; i <= 2; i++) {
+            final int value = i;
+            mSingleThreadDispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(value);
+                }
+            });
+        }
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(1, 2, 3).inOrder();
+    }
+
+    @Test
+    public void singleThreadDispatcherExecutesPendingIdleRunnables() throws Exception {
+        mSingleThreadDispatcher = Dispatcher.newSingleThread("featured-test");
+        final CountDownLatch done = new CountDownLatch(2);
+        Runnable idleRunnable = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+
+        mSingleThreadDispatcher.executeWhenIdle(idleRunnable, 0);
+        mSingleThreadDispatcher.executeWhenIdle(idleRunnable, 0);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void featureHostsShareSingleThreadDispatcherForIdleEvents() throws Exception {
+        mSingleThreadDispatcher = Dispatcher.newSingleThread("featured-test");
+        final CountDownLatch done = new CountDownLatch(2);
+        final TestFeatureHost featureHost1 = new TestFeatureHost(mSingleThreadDispatcher)
+                .with(new CountingFeature(done));
+        final TestFeatureHost featureHost2 = new TestFeatureHost(mSingleThreadDispatcher)
+                .with(new CountingFeature(done));
+
+        mSingleThreadDispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                featureHost1.dispatchOnValueWhenIdle(1, 0);
+                featureHost2.dispatchOnValueWhenIdle(2, 0);
+            }
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingFeature extends TestFeature {
+
+        private final CountDownLatch mLatch;
+
+        CountingFeature(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        void onValue(int value) {
+            super.onValue(value);
+            mLatch.countDown();
+        }
+    }
+
+    private static class IdleDispatcher extends Dispatcher {
+
+        final List<Runnable> mIdleRunnables = new ArrayList<>();
+        final List<Long> mTimeouts = new ArrayList<>();
+
+        @Override
+        public boolean isDispatchThread() {
+            return true;
+        }
+
+        @Override
+        public void execute(@NotNull Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void executeWhenIdle(@NotNull Runnable runnable, long timeoutMillis) {
+            mIdleRunnables.add(runnable);
+            mTimeouts.add(timeoutMillis);
+        }
+
+        @Override
+        public void cancelWhenIdle(@NotNull Runnable runnable) {
+            int index = mIdleRunnables.indexOf(runnable);
+            if (index != -1) {
+                mIdleRunnables.remove(index);
+                mTimeouts.remove(index);
+            }
+        }
+
+        void becomeIdle() {
+            List<Runnable> runnables = new ArrayList<>(mIdleRunnables);
+            mIdleRunnables.clear();
+            mTimeouts.clear();
+            for (Runnable runnable : runnables) {
+                runnable.run();
+            }
+        }
+
+        void expireTimeouts() {
+            List<Runnable> runnables = new ArrayList<>();
+            for (int i = mTimeouts.size() - 1; i >= 0; i--) {
+                if (mTimeouts.get(i) > 0) {
+                    runnables.add(0, mIdleRunnables.remove(i));
+                    mTimeouts.remove(i);
+                }
+            }
+            for (Runnable runnable : runnables) {
+                runnable.run();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LazyFeatureTest {
+
+    private LazyFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+    private int mInstantiations;
+
+    @Before
+    public void before() {
+        mFeatureHost = new LazyFeatureHost();
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void featureIsInstantiatedWithFirstSubscribedEvent() {
+        mFeatureHost.addLazyFeature(new FeatureProvider<ProgressFeature>() {
+            @NotNull
+            @Override
+            public ProgressFeature get() {
+                mInstantiations++;
+                return new ProgressFeature();
+            }
+        }, ProgressFeature.class);
+
+        mFeatureHost.dispatchOnValue();
+        assertThat(mInstantiations).isEqualTo(0);
+        assertThat(mFeatureHost.getFeature(ProgressFeature.class)).isNull();
+
+        mFeatureHost.dispatchOnProgress();
+        mFeatureHost.dispatchOnProgress();
+
+        assertThat(mInstantiations).isEqualTo(1);
+        assertThat(mDeliveries).containsExactly("progress", "progress");
+        ProgressFeature feature = mFeatureHost.getFeature(ProgressFeature.class);
+        assertThat(feature).isNotNull();
+        assertThat(feature.getFeatureHost()).isSameAs(mFeatureHost);
+    }
+
+    @Test
+    public void featureReplacesPlaceholderInAllEvents() {
+        mFeatureHost.addFeature(new ValueFeature("eager1"), "eager1");
+        mFeatureHost.addLazyFeature(new FeatureProvider<ValueFeature>() {
+            @NotNull
+            @Override
+            public ValueFeature get() {
+                mInstantiations++;
+                return new ValueFeature("lazy");
+            }
+        }, ValueFeature.class);
+        mFeatureHost.addFeature(new ValueFeature("eager2"), "eager2");
+
+        mFeatureHost.dispatchOnProgress();
+        mFeatureHost.dispatchOnValue();
+
+        assertThat(mInstantiations).isEqualTo(1);
+        assertThat(mDeliveries).containsExactly(
+                "eager1:progress", "lazy:progress", "eager2:progress",
+                "eager1:value", "lazy:value", "eager2:value").inOrder();
+    }
+
+    class ProgressFeature extends Feature<LazyFeatureHost, Object> {
+
+        void onProgress() {
+            mDeliveries.add("progress");
+        }
+    }
+
+    class ValueFeature extends ProgressFeature {
+
+        private final String mName;
+
+        ValueFeature(String name) {
+            mName = name;
+        }
+
+        @Override
+        void onProgress() {
+            mDeliveries.add(mName + ":progress");
+        }
+
+        void onValue() {
+            mDeliveries.add(mName + ":value");
+        }
+    }
+
+    static class LazyFeatureHost extends FeatureHost<LazyFeatureHost, Object> {
+
+        LazyFeatureHost() {
+            super(new Object(), Dispatcher.callerThread());
+        }
+
+        void dispatchOnProgress() {
+            dispatch(OnProgressEvent.INSTANCE);
+        }
+
+        void dispatchOnValue() {
+            dispatch(OnValueEvent.INSTANCE);
+        }
+
+        @Override
+        protected void addSubscriptions(@NotNull Feature feature) {
+            if (feature instanceof ProgressFeature) {
+                addSubscriber(OnProgressEvent.ID, feature);
+            }
+            if (feature instanceof ValueFeature) {
+                addSubscriber(OnValueEvent.ID, feature);
+            }
+        }
+
+        @Override
+        protected void addLazySubscriptions(@NotNull Feature feature,
+                                            @NotNull Class<? extends Feature> featureClass) {
+            if (ProgressFeature.class.isAssignableFrom(featureClass)) {
+                addSubscriber(OnProgressEvent.ID, feature);
+            }
+            if (ValueFeature.class.isAssignableFrom(featureClass)) {
+                addSubscriber(OnValueEvent.ID, feature);
+            }
+        }
+
+        static final class OnProgressEvent extends FeatureHost.Event {
+            static final int ID = FeatureHost.EVENT_COUNT;
+            static final OnProgressEvent INSTANCE = new OnProgressEvent();
+
+            OnProgressEvent() {
+                super(ID);
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((ProgressFeature) feature).onProgress();
+            }
+        }
+
+        static final class OnValueEvent extends FeatureHost.Event {
+            static final int ID = FeatureHost.EVENT_COUNT + 1;
+            static final OnValueEvent INSTANCE = new OnValueEvent();
+
+            OnValueEvent() {
+                super(ID);
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((ValueFeature) feature).onValue();
+            }
+        }
+    }
+
+}
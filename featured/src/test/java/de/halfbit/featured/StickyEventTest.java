@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.NamedFeature;
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StickyEventTest {
+
+    private StickyFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+
+    @Before
+    public void before() {
+        mFeatureHost = new StickyFeatureHost(Dispatcher.callerThread());
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void featureAddedLaterReceivesStickyEvent() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnValue(2);
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        assertThat(mDeliveries).containsExactly("a1", "a2", "b1").inOrder();
+    }
+
+    @Test
+    public void lastStickyEventIsReplayed() {
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnStickyValue(2);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+
+        assertThat(mDeliveries).containsExactly("a2");
+    }
+
+    @Test
+    public void stickyEventsAreReplayedInDispatchOrder() {
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnStickyProgress(2);
+        mFeatureHost.dispatchOnStickyValue(3);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+
+        assertThat(mDeliveries).containsExactly("a:progress2", "a3").inOrder();
+    }
+
+    @Test
+    public void eventsDispatchedDuringReplayFollowReplayedEvents() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnStickyProgress(2);
+
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries) {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                if (value == 1) {
+                    mFeatureHost.dispatchOnValue(10);
+                }
+            }
+        }, "b");
+
+        assertThat(mDeliveries).containsExactly(
+                "a1", "a:progress2", "b1", "b:progress2", "a10", "b10").inOrder();
+    }
+
+    @Test
+    public void lazyFeatureReceivesStickyEvent() {
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.addLazyFeature(new FeatureProvider<TestFeature>() {
+            @NotNull
+            @Override
+            public TestFeature get() {
+                return new NamedFeature("lazy", mDeliveries);
+            }
+        }, TestFeature.class);
+        mFeatureHost.dispatchOnValue(2);
+
+        assertThat(mDeliveries).containsExactly("lazy1", "lazy2").inOrder();
+    }
+
+    @Test
+    public void clearedStickyEventIsNotReplayed() {
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnStickyProgress(2);
+        mFeatureHost.clearStickyEvent(StickyFeatureHost.OnStickyValueEvent.ID);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.clearStickyEvents();
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        assertThat(mDeliveries).containsExactly("a:progress2");
+    }
+
+    @Test
+    public void oldestStickyEventIsDroppedOverLimit() {
+        mFeatureHost.setMaxStickyEvents(1);
+        mFeatureHost.dispatchOnStickyProgress(1);
+        mFeatureHost.dispatchOnStickyValue(2);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+
+        assertThat(mDeliveries).containsExactly("a2");
+    }
+
+    @Test
+    public void stickyEventsAreNotKeptWithZeroLimit() {
+        mFeatureHost.setMaxStickyEvents(0);
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+
+        assertThat(mDeliveries).isEmpty();
+    }
+
+    @Test
+    public void replayToThrowingFeatureIsGuardedByWatchdog() {
+        final List<String> reports = new ArrayList<>();
+        mFeatureHost.setWatchdog(new FeatureWatchdog(1000, 1, 1000,
+                new FeatureWatchdog.Listener() {
+                    @Override
+                    public void onFeatureFailed(@NotNull FeatureHost featureHost,
+                                                @NotNull Feature feature,
+                                                @NotNull Object event,
+                                                @NotNull RuntimeException exception) {
+                        reports.add("failed " + exception.getMessage());
+                    }
+
+                    @Override
+                    public void onFeatureQuarantined(@NotNull FeatureHost featureHost,
+                                                     @NotNull Feature feature,
+                                                     long quarantineMillis) {
+                        reports.add("quarantined");
+                    }
+                }));
+        mFeatureHost.dispatchOnStickyValue(1);
+        mFeatureHost.dispatchOnStickyProgress(2);
+
+        mFeatureHost.addFeature(new NamedFeature("throwing", mDeliveries) {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                throw new IllegalStateException("value" + value);
+            }
+        }, "throwing");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+
+        // quarantined feature does not receive the second replayed event
+        assertThat(mDeliveries).containsExactly(
+                "throwing1", "b1", "b:progress2").inOrder();
+        assertThat(reports).containsExactly("failed value1", "quarantined").inOrder();
+    }
+
+    private static final class StickyFeatureHost extends TestFeatureHost {
+
+        StickyFeatureHost(@NotNull Dispatcher dispatcher) {
+            super(dispatcher);
+        }
+
+        void dispatchOnStickyValue(int value) {
+            dispatch(new OnStickyValueEvent(value));
+        }
+
+        void dispatchOnStickyProgress(int value) {
+            dispatch(new OnStickyProgressEvent(value));
+        }
+
+        @Override
+        protected void addSubscriptions(@NotNull Feature feature) {
+            super.addSubscriptions(feature);
+            addSubscriber(OnStickyValueEvent.ID, feature);
+            addSubscriber(OnStickyProgressEvent.ID, feature);
+        }
+
+        @Override
+        protected void addLazySubscriptions(@NotNull Feature feature,
+                                            @NotNull Class<? extends Feature> featureClass) {
+            super.addLazySubscriptions(feature, featureClass);
+            addSubscriber(OnStickyValueEvent.ID, feature);
+            addSubscriber(OnStickyProgressEvent.ID, feature);
+        }
+
+        static final class OnStickyValueEvent extends FeatureHost.Event {
+            static final int ID = TestFeatureHost.EVENT_COUNT + 3;
+
+            private final int mValue;
+
+            OnStickyValueEvent(int value) {
+                super(ID);
+                mValue = value;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onValue(mValue);
+            }
+
+            @Override
+            protected boolean isSticky() {
+                return true;
+            }
+        }
+
+        static final class OnStickyProgressEvent extends FeatureHost.Event {
+            static final int ID = TestFeatureHost.EVENT_COUNT + 4;
+
+            private final int mValue;
+
+            OnStickyProgressEvent(int value) {
+                super(ID);
+                mValue = value;
+            }
+
+            @Override
+            protected void dispatch(@NotNull Feature feature) {
+                ((TestFeature) feature).onProgress(0, mValue);
+            }
+
+            @Override
+            protected boolean isSticky() {
+                return true;
+            }
+        }
+    }
+
+}
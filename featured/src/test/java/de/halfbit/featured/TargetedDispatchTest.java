@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.NamedFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TargetedDispatchTest {
+
+    private static final int TAG_UI = 1;
+    private static final int TAG_DATA = 1 << 1;
+
+    private TestFeatureHost mFeatureHost;
+    private List<String> mDeliveries;
+
+    @Before
+    public void before() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread());
+        mDeliveries = new ArrayList<>();
+    }
+
+    @Test
+    public void namedFeatureReceivesEventOnly() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries), "b");
+        mFeatureHost.addFeature(new NamedFeature("c", mDeliveries), null);
+
+        mFeatureHost.dispatchOnValueTo("b", 1);
+        mFeatureHost.dispatchOnValue(2);
+
+        assertThat(mDeliveries).containsExactly("b1", "a2", "b2", "c2").inOrder();
+    }
+
+    @Test
+    public void namedFeatureRemovedBeforeDeliveryIsSkipped() {
+        final NamedFeature featureB = new NamedFeature("b", mDeliveries);
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries) {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                mFeatureHost.dispatchOnValueTo("b", value + 1);
+                mFeatureHost.removeFeature(featureB);
+            }
+        }, "a");
+        mFeatureHost.addFeature(featureB, "b");
+
+        mFeatureHost.dispatchOnValueTo("a", 1);
+
+        assertThat(mDeliveries).containsExactly("a1");
+    }
+
+    @Test
+    public void eventToUnsubscribedFeatureIsDropped() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread()) {
+            @Override
+            protected void addSubscriptions(@NotNull Feature feature) {
+                if (!(feature instanceof SilentFeature)) {
+                    super.addSubscriptions(feature);
+                }
+            }
+        };
+        mFeatureHost.addFeature(new SilentFeature("silent"), "silent");
+
+        mFeatureHost.dispatchOnValueTo("silent", 1);
+        FeatureHost.setTraceSink(new TraceSink() {
+            @Override
+            public void beginSection(@NotNull String sectionName) {
+                // nop
+            }
+
+            @Override
+            public void endSection() {
+                // nop
+            }
+        });
+        try {
+            mFeatureHost.dispatchOnValueTo("silent", 2);
+        } finally {
+            FeatureHost.setTraceSink(null);
+        }
+
+        assertThat(mDeliveries).isEmpty();
+    }
+
+    @Test
+    public void eventToUnknownFeatureIsDropped() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+
+        mFeatureHost.dispatchOnValueTo("unknown", 1);
+
+        assertThat(mDeliveries).isEmpty();
+    }
+
+    @Test
+    public void taggedFeaturesReceiveEventOnly() {
+        NamedFeature featureA = new NamedFeature("a", mDeliveries);
+        NamedFeature featureB = new NamedFeature("b", mDeliveries);
+        NamedFeature featureC = new NamedFeature("c", mDeliveries);
+        mFeatureHost.addFeature(featureA, "a");
+        mFeatureHost.addFeature(featureB, "b");
+        mFeatureHost.addFeature(featureC, "c");
+        mFeatureHost.setFeatureTags(featureA, TAG_UI);
+        mFeatureHost.setFeatureTags(featureC, TAG_UI | TAG_DATA);
+
+        mFeatureHost.dispatchOnValueToTagged(TAG_UI, 1);
+        mFeatureHost.dispatchOnValueToTagged(TAG_DATA, 2);
+
+        assertThat(mDeliveries).containsExactly("a1", "c1", "c2").inOrder();
+    }
+
+    @Test
+    public void targetedEventDoesNotCoalesce() {
+        mFeatureHost.addFeature(new NamedFeature("a", mDeliveries), "a");
+        mFeatureHost.addFeature(new NamedFeature("b", mDeliveries) {
+            @Override
+            void onValue(int value) {
+                super.onValue(value);
+                getFeatureHost().dispatchOnProgressTo("a", 1, 1);
+                getFeatureHost().dispatchOnProgress(1, 2);
+                getFeatureHost().dispatchOnProgress(1, 3);
+            }
+        }, "b");
+
+        mFeatureHost.dispatchOnValueTo("b", 0);
+
+        assertThat(mDeliveries)
+                .containsExactly("b0", "a:progress1", "a:progress3", "b:progress3").inOrder();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unregisteredFeatureCannotBeTagged() {
+        mFeatureHost.setFeatureTags(new NamedFeature("a", mDeliveries), TAG_UI);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTagsAreRejected() {
+        mFeatureHost.dispatchOnValueToTagged(0, 1);
+    }
+
+    private class SilentFeature extends NamedFeature {
+
+        SilentFeature(String name) {
+            super(name, mDeliveries);
+        }
+    }
+
+}
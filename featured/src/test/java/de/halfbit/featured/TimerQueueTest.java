@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TimerQueueTest {
+
+    @Test
+    public void eventsArePolledInOrderOfDueTime() {
+        TimerQueue queue = new TimerQueue(2);
+        long[] dueTimes = {50, 10, 40, 20, 30, 0, 60};
+        FeatureHost.ScheduledEvent[] events = new FeatureHost.ScheduledEvent[dueTimes.length];
+        for (int i = 0; i < dueTimes.length; i++) {
+            events[i] = newScheduledEvent(dueTimes[i]);
+            queue.add(events[i]);
+        }
+
+        assertThat(queue.size()).isEqualTo(dueTimes.length);
+        assertThat(queue.peek()).isSameAs(events[5]);
+        long lastDueTime = Long.MIN_VALUE;
+        for (FeatureHost.ScheduledEvent event = queue.poll(); event != null;
+             event = queue.poll()) {
+            assertThat(event.mDueNanos).isAtLeast(lastDueTime);
+            lastDueTime = event.mDueNanos;
+        }
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void eventsDueAtSameTimeArePolledInFifoOrder() {
+        TimerQueue queue = new TimerQueue(4);
+        FeatureHost.ScheduledEvent[] events = new FeatureHost.ScheduledEvent[10];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = newScheduledEvent(100);
+            queue.add(events[i]);
+        }
+
+        for (FeatureHost.ScheduledEvent event : events) {
+            assertThat(queue.poll()).isSameAs(event);
+        }
+    }
+
+    @Test
+    public void removedEventsAreNotPolled() {
+        TimerQueue queue = new TimerQueue(4);
+        FeatureHost.ScheduledEvent event1 = newScheduledEvent(10);
+        FeatureHost.ScheduledEvent event2 = newScheduledEvent(20);
+        FeatureHost.ScheduledEvent event3 = newScheduledEvent(30);
+        FeatureHost.ScheduledEvent event4 = newScheduledEvent(40);
+        queue.add(event3);
+        queue.add(event1);
+        queue.add(event4);
+        queue.add(event2);
+
+        assertThat(queue.remove(event1)).isTrue();
+        assertThat(queue.remove(event3)).isTrue();
+        assertThat(queue.remove(event3)).isFalse();
+
+        assertThat(queue.poll()).isSameAs(event2);
+        assertThat(queue.poll()).isSameAs(event4);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.remove(event4)).isFalse();
+    }
+
+    private static FeatureHost.ScheduledEvent newScheduledEvent(long dueNanos) {
+        DispatcherTest.TestFeatureHost featureHost =
+                new DispatcherTest.TestFeatureHost(Dispatcher.callerThread());
+        return new FeatureHost.ScheduledEvent(featureHost,
+                new DispatcherTest.TestFeatureHost.OnValueEvent(0), dueNanos);
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 Sergej Shafarenka, www.halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.featured;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.halfbit.featured.DispatcherTest.TestFeature;
+import de.halfbit.featured.DispatcherTest.TestFeatureHost;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TracingTest {
+
+    private TestFeatureHost mFeatureHost;
+    private List<Integer> mDeliveredValues;
+    private RecordingTraceSink mTraceSink;
+
+    @Before
+    public void before() {
+        mFeatureHost = new TestFeatureHost(Dispatcher.callerThread());
+        mDeliveredValues = new ArrayList<>();
+        mTraceSink = new RecordingTraceSink();
+    }
+
+    @After
+    public void after() {
+        FeatureHost.setTracingEnabled(false);
+    }
+
+    @Test
+    public void tracingIsDisabledByDefault() {
+        assertThat(FeatureHost.isTracingEnabled()).isFalse();
+    }
+
+    @Test
+    public void tracingIsIgnoredBeforeJellyBeanMr2() {
+        // unit tests run against android.jar stubs reporting api level 0
+        FeatureHost.setTracingEnabled(true);
+        assertThat(FeatureHost.isTracingEnabled()).isFalse();
+    }
+
+    @Test
+    public void eventsAreDeliveredWhenTracingIsSwitched() {
+        mFeatureHost.with(new ValueFeature());
+
+        FeatureHost.setTracingEnabled(true);
+        mFeatureHost.dispatchOnValue(1);
+        FeatureHost.setTracingEnabled(false);
+        mFeatureHost.dispatchOnValue(2);
+
+        assertThat(mDeliveredValues).containsExactly(1, 2).inOrder();
+    }
+
+    @Test
+    public void sectionsArePairedAroundEventsAndFeatures() {
+        mFeatureHost.with(new ValueFeature());
+        mFeatureHost.with(new TestFeature());
+
+        FeatureHost.setTraceSink(mTraceSink);
+        mFeatureHost.dispatchOnValue(1);
+
+        assertThat(mTraceSink.mSections).containsExactly(
+                "begin TestFeature.onValue",
+                "begin ValueFeature", "end",
+                "begin TestFeature", "end",
+                "end").inOrder();
+    }
+
+    @Test
+    public void sectionsAreClosedWhenFeatureThrows() {
+        mFeatureHost.with(new ThrowingFeature());
+        mFeatureHost.with(new ValueFeature());
+
+        FeatureHost.setTraceSink(mTraceSink);
+        try {
+            mFeatureHost.dispatchOnValue(1);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertThat(mTraceSink.mSections).containsExactly(
+                "begin TestFeature.onValue",
+                "begin ThrowingFeature", "end",
+                "end").inOrder();
+        assertThat(mDeliveredValues).isEmpty();
+    }
+
+    @Test
+    public void sectionsAreClosedWhenWatchedFeatureThrows() {
+        mFeatureHost.setWatchdog(new FeatureWatchdog(100, 10, 100,
+                new FeatureWatchdog.Listener() {
+                    @Override
+                    public void onFeatureFailed(@NotNull FeatureHost featureHost,
+                                                @NotNull Feature feature,
+                                                @NotNull Object event,
+                                                @NotNull RuntimeException exception) {
+                        // nop
+                    }
+
+                    @Override
+                    public void onFeatureQuarantined(@NotNull FeatureHost featureHost,
+                                                     @NotNull Feature feature,
+                                                     long quarantineMillis) {
+                        // nop
+                    }
+                }));
+        mFeatureHost.with(new ThrowingFeature());
+        mFeatureHost.with(new ValueFeature());
+
+        FeatureHost.setTraceSink(mTraceSink);
+        mFeatureHost.dispatchOnValue(1);
+
+        assertThat(mTraceSink.mSections).containsExactly(
+                "begin TestFeature.onValue",
+                "begin ThrowingFeature", "end",
+                "begin ValueFeature", "end",
+                "end").inOrder();
+        assertThat(mDeliveredValues).containsExactly(1);
+    }
+
+    @Test
+    public void eventsAreNamedAfterFeatureMethods() {
+        assertThat(mFeatureHost.getEventName(TestFeatureHost.OnValueEvent.ID))
+                .isEqualTo("TestFeature.onValue");
+        assertThat(mFeatureHost.getEventName(FeatureHost.EVENT_COUNT + 100)).isNull();
+    }
+
+    @Test
+    public void featuresAreNamedAfterTheirClasses() {
+        assertThat(new ValueFeature().getTraceName()).isEqualTo("ValueFeature");
+        TestFeature anonymousFeature = new TestFeature() { };
+        assertThat(anonymousFeature.getTraceName())
+                .isEqualTo(anonymousFeature.getClass().getName());
+    }
+
+    @Test
+    public void featureNamesAreCutToMaxSectionNameLength() {
+        TestFeature feature = new FeatureWithAVeryLongNameWhichExceedsTheMaximumLengthOfTraceSectionsAcceptedByAndroidWhenTracingIsEnabledForTheWholeApplicationProcess();
+        String className = feature.getClass().getSimpleName();
+        assertThat(feature.getTraceName())
+                .isEqualTo(className.substring(0, TraceSink.MAX_SECTION_NAME_LENGTH));
+    }
+
+    private class ValueFeature extends TestFeature {
+
+        @Override
+        void onValue(int value) {
+            mDeliveredValues.add(value);
+        }
+    }
+
+    private static class FeatureWithAVeryLongNameWhichExceedsTheMaximumLengthOfTraceSectionsAcceptedByAndroidWhenTracingIsEnabledForTheWholeApplicationProcess
+            extends TestFeature {
+        // nop
+    }
+
+    private static class ThrowingFeature extends TestFeature {
+
+        @Override
+        void onValue(int value) {
+            throw new IllegalStateException("expected by test");
+        }
+    }
+
+    private static class RecordingTraceSink implements TraceSink {
+
+        final List<String> mSections = new ArrayList<>();
+
+        @Override
+        public void beginSection(@NotNull String sectionName) {
+            mSections.add("begin " + sectionName);
+        }
+
+        @Override
+        public void endSection() {
+            mSections.add("end");
+        }
+    }
+
+}